@@ -0,0 +1,57 @@
+package serial;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Frame checksum over buffers of typical frame sizes.
+ * buffer runs the bulk (slicing) path used for whole frames and values, perByte the byte at a time path of the parser
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChecksumBenchmark {
+
+	@Param({"4", "64", "255"})
+	int size;
+	
+	@Param({"SUM", "CRC8", "CRC16"})
+	FrameIntegrity integrity;
+	
+	byte[] data;
+	
+	@Setup
+	public void setup() {
+		data = new byte[size];
+		new Random(42).nextBytes(data);
+	}
+	
+	@Benchmark
+	public int buffer() {
+		return integrity.compute(data, 0, size);
+	}
+	
+	@Benchmark
+	public int perByte() {
+		int checksum = integrity.init();
+		for (int i = 0; i < size; i++) {
+			checksum = integrity.update(checksum, data[i]);
+		}
+		return checksum;
+	}
+}
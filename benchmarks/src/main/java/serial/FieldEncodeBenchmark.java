@@ -0,0 +1,181 @@
+package serial;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import serial.ArduinoField.ArduinoType;
+
+/**
+ * Encoding of SET frames by the {@link ArduinoField} setters. Frames end in a sink instead of a port
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldEncodeBenchmark {
+
+	/**
+	 * Elements of the array fields
+	 */
+	@Param({"4", "60"})
+	int qty;
+	
+	SinkInterface serial;
+	ArduinoField byteField;
+	ArduinoField intField;
+	ArduinoField floatField;
+	ArduinoField byteArrayField;
+	ArduinoField intArrayField;
+	ArduinoField floatArrayField;
+	ArduinoField halfArrayField;
+	ArduinoField fixedArrayField;
+	ArduinoField bitsArrayField;
+	DoubleAccessor floatAccessor;
+	DoubleArrayAccessor floatArrayAccessor;
+	byte[] bytes;
+	int[] ints;
+	float[] floats;
+	double[] doubles;
+	boolean[] booleans;
+	int i = 0;
+	
+	@Setup
+	public void setup() {
+		serial = new SinkInterface();
+		byteField = new ArduinoField(1, ArduinoType.Byte);
+		intField = new ArduinoField(2, ArduinoType.Int);
+		floatField = new ArduinoField(3, ArduinoType.Float);
+		byteArrayField = new ArduinoField(4, ArduinoType.Byte, qty);
+		intArrayField = new ArduinoField(5, ArduinoType.Int, qty);
+		floatArrayField = new ArduinoField(6, ArduinoType.Float, qty);
+		halfArrayField = new ArduinoField(7, ArduinoType.Half, qty);
+		fixedArrayField = new ArduinoField(8, ArduinoType.Fixed16, qty, 0.01);
+		bitsArrayField = new ArduinoField(9, ArduinoType.Bits, qty);
+		serial.put("b", byteField);
+		serial.put("i", intField);
+		serial.put("f", floatField);
+		serial.put("ba", byteArrayField);
+		serial.put("ia", intArrayField);
+		serial.put("fa", floatArrayField);
+		serial.put("ha", halfArrayField);
+		serial.put("xa", fixedArrayField);
+		serial.put("bits", bitsArrayField);
+		FieldSchema schema = new FieldSchema();
+		schema.add("fs", 10, ArduinoType.Float, 1, 1);
+		schema.add("fas", 11, ArduinoType.Float, qty, 1);
+		Map<String, FieldAccessor> accessors = schema.register(serial);
+		floatAccessor = (DoubleAccessor) accessors.get("fs");
+		floatArrayAccessor = (DoubleArrayAccessor) accessors.get("fas");
+		bytes = new byte[qty];
+		ints = new int[qty];
+		floats = new float[qty];
+		doubles = new double[qty];
+		booleans = new boolean[qty];
+		for (int i = 0; i < qty; i++) {
+			bytes[i] = (byte) i;
+			ints[i] = i * 1000;
+			floats[i] = i * 0.5f;
+			doubles[i] = i * 0.25;
+			booleans[i] = i % 3 == 0;
+		}
+	}
+	
+	@Benchmark
+	public long setByte() {
+		byteField.set((byte) i++);
+		return serial.bytes;
+	}
+	
+	@Benchmark
+	public long setInt() {
+		intField.set(i++);
+		return serial.bytes;
+	}
+	
+	@Benchmark
+	public long setFloat() {
+		floatField.set(i++ * 0.5f);
+		return serial.bytes;
+	}
+	
+	@Benchmark
+	public long setByteArray() {
+		byteArrayField.set(bytes);
+		return serial.bytes;
+	}
+	
+	@Benchmark
+	public long setIntArray() {
+		intArrayField.set(ints);
+		return serial.bytes;
+	}
+	
+	@Benchmark
+	public long setFloatArray() {
+		floatArrayField.set(floats);
+		return serial.bytes;
+	}
+	
+	@Benchmark
+	public long setHalfArray() {
+		halfArrayField.set(floats);
+		return serial.bytes;
+	}
+	
+	@Benchmark
+	public long setFixedArray() {
+		fixedArrayField.set(doubles);
+		return serial.bytes;
+	}
+	
+	@Benchmark
+	public long setBitsArray() {
+		bitsArrayField.set(booleans);
+		return serial.bytes;
+	}
+	
+	/**
+	 * {@link #setFloat()} through a {@link FieldSchema} accessor
+	 */
+	@Benchmark
+	public long setFloatAccessor() {
+		floatAccessor.set(i++ * 0.5f);
+		return serial.bytes;
+	}
+	
+	@Benchmark
+	public long setFloatArrayAccessor() {
+		floatArrayAccessor.set(floats);
+		return serial.bytes;
+	}
+	
+	/**
+	 * Counts written bytes instead of writing them to a port
+	 */
+	static class SinkInterface extends ArduinoSerialInterface {
+		
+		long bytes = 0;
+		long checksums = 0;
+		
+		@Override
+		public synchronized boolean print(byte[] msg, int size) {
+			bytes += size;
+			checksums += msg[size - 1];
+			return true;
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package serial;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import serial.ArduinoField.ArduinoType;
+
+/**
+ * Decoding of SET and GET frames by {@link ArduinoSerialInterface}.
+ * One operation is one buffer of about 64 KB of frames fed in chunks like the port delivers them
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameDecodeBenchmark {
+	
+	private static final int STREAM_SIZE = 1 << 16;
+	private static final int CHUNK_SIZE = 4096;
+
+	/**
+	 * Floats per field
+	 */
+	@Param({"1", "16", "60"})
+	int qty;
+	
+	@Param({"1", "32", "200"})
+	int fields;
+	
+	/**
+	 * none: only framing and cache, view: {@link FieldValueListener}, boxed: {@link ArduinoField#subscribe},
+	 * history: {@link FieldHistory} of 4096 values per field
+	 */
+	@Param({"none", "view", "boxed", "history"})
+	String listener;
+	
+	@Param({"SUM", "CRC16"})
+	FrameIntegrity integrity;
+	
+	ArduinoSerialInterface serial;
+	byte[] setStream;
+	byte[] getStream;
+	
+	@Setup
+	public void setup(Blackhole blackhole) {
+		serial = new ArduinoSerialInterface();
+		serial.setFrameIntegrity(integrity);
+		for (int id = 0; id < fields; id++) {
+			ArduinoField field = new ArduinoField(id, ArduinoType.Float, qty);
+			serial.put("f" + id, field);
+			switch(listener) {
+			case "view": field.addValueListener(value -> blackhole.consume(value.getFloat(0))); break;
+			case "boxed": field.subscribe(blackhole::consume); break;
+			case "history": field.enableHistory(4096); break;
+			default: break;
+			}
+		}
+		setStream = Frames.setStream(fields, qty * 4, STREAM_SIZE, integrity);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (int id = 0; out.size() < STREAM_SIZE; id = (id + 1) % fields) {
+			out.writeBytes(Frames.get(id, integrity));
+		}
+		getStream = out.toByteArray();
+	}
+	
+	@Benchmark
+	public void decodeSet() {
+		feed(setStream);
+	}
+	
+	@Benchmark
+	public void decodeGet() {
+		feed(getStream);
+	}
+	
+	private void feed(byte[] stream) {
+		for (int i = 0; i < stream.length; i += CHUNK_SIZE) {
+			serial.chunkReceived(stream, i, Math.min(CHUNK_SIZE, stream.length - i));
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package serial;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+/**
+ * Builds wire frames for benchmarks
+ */
+class Frames {
+	
+	private Frames() {
+	}
+
+	/**
+	 * <SET>       ::= S <ID> <Size> <Value> <Checksum>
+	 */
+	static byte[] set(int id, byte[] value, FrameIntegrity integrity) {
+		int body = value.length + 3;
+		byte[] b = new byte[body + integrity.length()];
+		b[0] = 'S';
+		b[1] = (byte) id;
+		b[2] = (byte) value.length;
+		System.arraycopy(value, 0, b, 3, value.length);
+		integrity.write(integrity.compute(b, 0, body), b, body);
+		return b;
+	}
+	
+	/**
+	 * <GET>       ::= G <ID> <Checksum>
+	 */
+	static byte[] get(int id, FrameIntegrity integrity) {
+		byte[] b = new byte[2 + integrity.length()];
+		b[0] = 'G';
+		b[1] = (byte) id;
+		integrity.write(integrity.compute(b, 0, 2), b, 2);
+		return b;
+	}
+	
+	/**
+	 * Concatenates SET frames with random values of valueSize bytes for the field ids 0 to fields - 1
+	 * until the stream is at least minSize bytes long
+	 */
+	static byte[] setStream(int fields, int valueSize, int minSize, FrameIntegrity integrity) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Random random = new Random(42);
+		byte[] value = new byte[valueSize];
+		for (int id = 0; out.size() < minSize; id = (id + 1) % fields) {
+			random.nextBytes(value);
+			out.writeBytes(set(id, value, integrity));
+		}
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,102 @@
+package serial;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import serial.ArduinoField.ArduinoType;
+import serial.FieldEncodeBenchmark.SinkInterface;
+
+/**
+ * Sets a board worth of fields in one batch per operation with each {@link FrameGrouping}.
+ * The score is values encoded per second, the tear down prints how many values per second
+ * fit through a link of the given baud rate with the measured bytes per value
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(GroupedSetBenchmark.FIELDS)
+public class GroupedSetBenchmark {
+	
+	static final int FIELDS = 16;
+	private static final int BITS_PER_BYTE = 10;
+
+	@Param({"NONE", "GROUPED", "COMPRESSED"})
+	FrameGrouping grouping;
+	
+	/**
+	 * all: every value changes every batch, few: a quarter of the values changes, the rest gets set unchanged
+	 */
+	@Param({"all", "few"})
+	String change;
+	
+	@Param({"9600"})
+	int baud;
+	
+	SinkInterface serial;
+	ArduinoField[] fields = new ArduinoField[FIELDS];
+	float[] vector = new float[3];
+	long values = 0;
+	int round = 0;
+	
+	@Setup
+	public void setup() {
+		serial = new SinkInterface();
+		serial.setFrameGrouping(grouping);
+		for (int i = 0; i < FIELDS; i++) {
+			switch(i % 4) {
+			case 0: fields[i] = new ArduinoField(i, ArduinoType.Float); break;
+			case 1: fields[i] = new ArduinoField(i, ArduinoType.Int); break;
+			case 2: fields[i] = new ArduinoField(i, ArduinoType.Short); break;
+			default: fields[i] = new ArduinoField(i, ArduinoType.Float, 3); break;
+			}
+			serial.put("f" + i, fields[i]);
+		}
+	}
+	
+	@TearDown
+	public void tearDown() {
+		double bytesPerValue = (double) serial.bytes / values;
+		System.out.printf("%n%s %s: %.2f bytes per value, %.0f values/s at %d baud%n", grouping, change, bytesPerValue,
+				baud / (double) BITS_PER_BYTE / bytesPerValue, baud);
+	}
+	
+	@Benchmark
+	public long setBatch() {
+		round++;
+		serial.beginBatch();
+		for (int i = 0; i < FIELDS; i++) {
+			int r = change.equals("all") || i % 4 == round % 4 ? round : 0;
+			ArduinoField field = fields[i];
+			switch(i % 4) {
+			case 0: field.set(20 + r * 0.01f); break;
+			case 1: field.set(r); break;
+			case 2: field.set(r & 0x7fff); break;
+			default:
+				vector[0] = r * 0.5f;
+				vector[1] = -r * 0.5f;
+				vector[2] = 9.81f;
+				field.set(vector);
+				break;
+			}
+		}
+		serial.commit();
+		values += FIELDS;
+		return serial.bytes;
+	}
+}
@@ -0,0 +1,87 @@
+package serial;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import serial.ArduinoField.ArduinoType;
+
+/**
+ * Queries over a full {@link FieldHistory} like a dashboard refreshing a chart
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistoryBenchmark {
+
+	@Param({"10000", "1000000"})
+	int capacity;
+	
+	/**
+	 * Points of the chart
+	 */
+	@Param({"500"})
+	int buckets;
+	
+	FieldHistory history;
+	long from;
+	long to;
+	double[] min;
+	double[] max;
+	double[] mean;
+	long[] nanos;
+	double[] values;
+	double sum;
+	
+	@Setup
+	public void setup() {
+		ArduinoSerialInterface serial = new ArduinoSerialInterface();
+		ArduinoField field = new ArduinoField(1, ArduinoType.Float);
+		serial.put("f", field);
+		history = field.enableHistory(capacity);
+		byte[] value = new byte[4];
+		for (int i = 0; i < capacity; i++) {
+			FieldCodec.FLOAT.set(value, 0, (float) Math.sin(i * 0.001));
+			serial.processSet(1, value, 4);
+		}
+		from = history.getTimestamp(0);
+		to = history.getTimestamp(capacity - 1) + 1;
+		min = new double[buckets];
+		max = new double[buckets];
+		mean = new double[buckets];
+		nanos = new long[buckets];
+		values = new double[buckets];
+	}
+	
+	@Benchmark
+	public int downsample() {
+		return history.downsample(from, to, 0, min, max, mean);
+	}
+	
+	/**
+	 * Latest part of the range, found by binary search
+	 */
+	@Benchmark
+	public int rangeLastTenth() {
+		sum = 0;
+		return history.range(to - (to - from) / 10, to, 0, (t, v) -> sum += v);
+	}
+	
+	@Benchmark
+	public int lastN() {
+		return history.last(0, nanos, values);
+	}
+}
@@ -0,0 +1,90 @@
+package serial;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Line splitting of {@link Serial} in text mode. One operation is one received byte
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(LineFramingBenchmark.STREAM_SIZE)
+public class LineFramingBenchmark {
+	
+	static final int STREAM_SIZE = 1 << 16;
+
+	/**
+	 * default: the 5 terminators of Serial, lf: only \n, crlf: \r and \n, sequence: the two byte delimiter \r\n
+	 */
+	@Param({"default", "lf", "crlf", "sequence"})
+	String terminators;
+	
+	/**
+	 * string: {@link SerialReceiveListener}, text: {@link SerialTextListener} view
+	 */
+	@Param({"string", "text"})
+	String listener;
+	
+	@Param({"16", "256"})
+	int lineLength;
+	
+	/**
+	 * Bytes per port event
+	 */
+	@Param({"64", "4096"})
+	int chunkSize;
+	
+	Serial serial;
+	byte[] stream;
+	long lines;
+	
+	@Setup
+	public void setup() {
+		serial = new Serial();
+		switch(terminators) {
+		case "lf": serial.setTermination(new byte[] {'\n'}); break;
+		case "crlf": serial.setTermination(new byte[] {'\r', '\n'}); break;
+		case "sequence": serial.setFramer(new SequenceDelimiterFramer((byte) '\r', (byte) '\n')); break;
+		default: break;
+		}
+		if(listener.equals("text")) {
+			serial.addTextListener(line -> lines += line.length());
+		} else {
+			serial.addReceiveListener(msg -> lines += msg.length());
+		}
+		stream = new byte[STREAM_SIZE];
+		Random random = new Random(42);
+		for (int i = 0; i < STREAM_SIZE; i++) {
+			stream[i] = (byte) ('a' + random.nextInt(26));
+		}
+		for (int i = lineLength; i < STREAM_SIZE; i += lineLength + 2) {
+			stream[i] = '\r';
+			if(i + 1 < STREAM_SIZE) stream[i + 1] = '\n';
+		}
+	}
+	
+	@Benchmark
+	public long split() {
+		for (int i = 0; i < STREAM_SIZE; i += chunkSize) {
+			serial.received(stream, i, Math.min(chunkSize, STREAM_SIZE - i));
+		}
+		return lines;
+	}
+}
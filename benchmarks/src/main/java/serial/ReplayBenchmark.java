@@ -0,0 +1,88 @@
+package serial;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import serial.ArduinoField.ArduinoType;
+
+/**
+ * Max speed replay of a recorded session of about 4 MB of SET frames through {@link ArduinoSerialInterface},
+ * reading from the memory mapped segments like a replay of a field recording would.
+ * One operation is one full replay
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReplayBenchmark {
+	
+	private static final int SESSION_SIZE = 4 << 20;
+	
+	/**
+	 * Floats per field
+	 */
+	@Param({"1", "16"})
+	int qty;
+	
+	/**
+	 * Size of the recorded chunks
+	 */
+	@Param({"64", "4096"})
+	int chunkSize;
+	
+	Path directory;
+	ArduinoSerialInterface serial;
+	
+	@Setup
+	public void setup(Blackhole blackhole) throws IOException {
+		directory = Files.createTempDirectory("replay-benchmark");
+		byte[] stream = Frames.setStream(32, qty * 4, SESSION_SIZE, FrameIntegrity.SUM);
+		try (SessionRecorder recorder = new SessionRecorder(directory, 1 << 20, 0)) {
+			for (int i = 0; i < stream.length; i += chunkSize) {
+				recorder.record(SessionRecorder.RECEIVED, stream, i, Math.min(chunkSize, stream.length - i));
+			}
+		}
+		serial = new ArduinoSerialInterface();
+		serial.setOpenDelay(0);
+		for (int id = 0; id < 32; id++) {
+			ArduinoField field = new ArduinoField(id, ArduinoType.Float, qty);
+			serial.put("f" + id, field);
+			field.addValueListener(value -> blackhole.consume(value.getFloat(0)));
+		}
+	}
+	
+	@TearDown
+	public void tearDown() throws IOException {
+		serial.close();
+		for (Path segment : SessionRecorder.segments(directory)) {
+			Files.delete(segment);
+		}
+		Files.delete(directory);
+	}
+	
+	@Benchmark
+	public long replay() throws InterruptedException {
+		ReplayTransport replay = new ReplayTransport(directory, 0);
+		serial.open(replay);
+		replay.awaitEnd();
+		return replay.getReplayedBytes();
+	}
+}
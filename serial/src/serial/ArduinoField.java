@@ -1,14 +1,34 @@
 package serial;
 
-import java.nio.ByteBuffer;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
 
 public class ArduinoField {
 	
+	/**
+	 * Wire types, all big endian. Half is IEEE 754 half precision, Bits packs qty booleans 8 per byte
+	 * and Fixed16 / Fixed32 are 16 / 32 bit integers scaled by the scale of the field
+	 */
 	public enum ArduinoType {
-		Byte,Int,Float
+		Byte,Int,Float,Short,Long,Double,Half,Bits,Fixed16,Fixed32;
+		
+		boolean isInteger() {
+			return this == Short || this == Int || this == Long;
+		}
+		
+		boolean isReal() {
+			return this == Float || this == Double || this == Half || this == Fixed16 || this == Fixed32;
+		}
 	}
 	
 	protected ArduinoSerialInterface serial;
@@ -16,266 +36,916 @@ public class ArduinoField {
 	 * ID in arduino
 	 */
 	private int id;
-	private List<Consumer<Object>> callbacks = new ArrayList<>();
+	/**
+	 * Outstanding GET request
+	 */
+	private CompletableFuture<Object> pendingGet = null;
+	private long pendingGetSent;
+	private TimerWheel.Timeout pendingGetTimeout = null;
+	/**
+	 * True if anyone holds the future of the pending GET, otherwise the answer does not need to be boxed
+	 */
+	private boolean pendingGetBoxed = false;
+	private volatile long lastRoundTripNanos = -1;
+	private long totalRoundTripNanos = 0;
+	private long roundTrips = 0;
+	/**
+	 * Allocation free receive path
+	 */
+	private final ListenerRegistry<FieldValueListener> valueListeners = new ListenerRegistry<>();
+	private final ListenerRegistry<FieldValueListener> valueCallbacks = new ListenerRegistry<>();
+	private final ListenerRegistry<IntConsumer> intCallbacks = new ListenerRegistry<>();
+	private final ListenerRegistry<FloatConsumer> floatCallbacks = new ListenerRegistry<>();
+	private final FieldValue value = new FieldValue(this);
+	/**
+	 * Latest received value, also the lock guarding it
+	 */
+	final byte[] lastValue;
+	private final FieldValue lastView = new FieldValue(this);
+	private long lastReceivedNanos;
+	private boolean hasValue = false;
+	private final ListenerRegistry<Consumer<Object>> subscribers = new ListenerRegistry<>();
+	/**
+	 * Write filtering
+	 */
+	private volatile WritePolicy writePolicy = null;
+	private final Object writeLock = new Object();
+	/**
+	 * Last value sent to or received from the board
+	 */
+	private final byte[] lastWritten;
+	private boolean hasLastWritten = false;
+	private long lastSetNanos;
+	private long sets = 0;
+	private byte[] coalesced = null;
+	private ScheduledFuture<?> coalescedFlush = null;
+	private long skippedSets = 0;
+	private long coalescedSets = 0;
+	private List<SerialPublisher<Object>> publishers = new CopyOnWriteArrayList<>();
+	private volatile FieldHistory history = null;
 	ArduinoType type;
+	final FieldCodec codec;
+	final double scale;
+	/**
+	 * Size of one element in bytes, 0 for Bits
+	 */
 	protected int size;
 	protected int qty;
+	/**
+	 * Size of the whole value in bytes
+	 */
+	protected int length;
 	
 	public ArduinoField(int id, ArduinoType type) {
 		this(id, type, 1);
 	}
 	
 	public ArduinoField(int id, ArduinoType type, int qty) {
+		this(id, type, qty, 1);
+	}
+	
+	/**
+	 * @param scale value of one step of a Fixed16 or Fixed32 field, like 0.01 for centi units
+	 */
+	public ArduinoField(int id, ArduinoType type, int qty, double scale) {
 		super();
 		if(qty < 1) {
 			throw new RuntimeException("Qty cant be < 1");
 		}
+		if(!(scale > 0)) {
+			throw new RuntimeException("Scale has to be > 0");
+		}
 		this.id = id;
 		this.type = type;
 		this.qty = qty;
-		this.size = sizeFromType(type);
+		this.scale = scale;
+		this.codec = FieldCodec.of(type);
+		this.size = codec.elementSize;
+		this.length = codec.length(qty);
+		if(length > 255) {
+			throw new RuntimeException("A " + type.name() + " field of qty " + qty + " does not fit in a frame");
+		}
+		this.lastValue = new byte[length];
+		this.lastWritten = new byte[length];
 	}
 
 	public void getByte(Consumer<Byte> callback) {
+		getByteAsync().thenAccept(callback);
+	}
+	
+	public CompletableFuture<Byte> getByteAsync() {
 		if(type != ArduinoType.Byte) throw new RuntimeException("Can't get byte from a " + type.name() + " field!");
-		sendGet();
-		callbacks.add(obj -> {
-			callback.accept((byte) obj);
-		});
+		return getAsync().thenApply(obj -> (byte) obj);
 	}
 	
-	@SuppressWarnings("unchecked")
 	public void getByteList(Consumer<List<Byte>> callback) {
+		getByteListAsync().thenAccept(callback);
+	}
+	
+	@SuppressWarnings("unchecked")
+	public CompletableFuture<List<Byte>> getByteListAsync() {
 		if(type != ArduinoType.Byte || qty <= 1) throw new RuntimeException("Can't get byte[] from a " + type.name() + " field of qty " + qty + "!");
-		sendGet();
-		callbacks.add(obj -> {
-			callback.accept((List<Byte>) obj);
-		});
+		return getAsync().thenApply(obj -> (List<Byte>) obj);
 	}
 	
 	public void getBoolean(Consumer<Boolean> callback) {
-		if(type != ArduinoType.Byte) throw new RuntimeException("Can't get boolean from a " + type.name() + " field!");
-		sendGet();
-		callbacks.add(obj -> {
-			callback.accept((byte) obj != 0);
-		});
+		getBooleanAsync().thenAccept(callback);
+	}
+	
+	public CompletableFuture<Boolean> getBooleanAsync() {
+		if(type != ArduinoType.Byte && type != ArduinoType.Bits) throw new RuntimeException("Can't get boolean from a " + type.name() + " field!");
+		return getAsync().thenApply(ArduinoField::toBoolean);
 	}
 	
-	@SuppressWarnings("unchecked")
 	public void getBooleanList(Consumer<List<Boolean>> callback) {
-		if(type != ArduinoType.Byte || qty <= 1) throw new RuntimeException("Can't get boolean[] from a " + type.name() + " field of qty " + qty + "!");
-		sendGet();
-		callbacks.add(obj -> {
-			callback.accept((List<Boolean>) obj);
-		});
+		getBooleanListAsync().thenAccept(callback);
+	}
+	
+	public CompletableFuture<List<Boolean>> getBooleanListAsync() {
+		if(type != ArduinoType.Byte && type != ArduinoType.Bits || qty <= 1) throw new RuntimeException("Can't get boolean[] from a " + type.name() + " field of qty " + qty + "!");
+		return getListAsync(ArduinoField::toBoolean);
 	}
 	
 	public void getChar(Consumer<Character> callback) {
+		getCharAsync().thenAccept(callback);
+	}
+	
+	public CompletableFuture<Character> getCharAsync() {
 		if(type != ArduinoType.Byte) throw new RuntimeException("Can't get char from a " + type.name() + " field!");
-		sendGet();
-		callbacks.add(obj -> {
-			callback.accept((char) obj);
-		});
+		return getAsync().thenApply(obj -> (char) (byte) obj);
 	}
 	
-	@SuppressWarnings("unchecked")
 	public void getCharList(Consumer<List<Character>> callback) {
+		getCharListAsync().thenAccept(callback);
+	}
+	
+	public CompletableFuture<List<Character>> getCharListAsync() {
 		if(type != ArduinoType.Byte || qty <= 1) throw new RuntimeException("Can't get char[] from a " + type.name() + " field of qty " + qty + "!");
-		sendGet();
-		callbacks.add(obj -> {
-			callback.accept((List<Character>) obj);
-		});
+		return getListAsync(obj -> (char) (byte) obj);
 	}
 	
 	public void getInt(Consumer<Integer> callback) {
-		if(type != ArduinoType.Int) throw new RuntimeException("Can't get int from a " + type.name() + " field!");
-		sendGet();
-		callbacks.add(obj -> {
-			callback.accept((int) obj);
-		});
+		getIntAsync().thenAccept(callback);
+	}
+	
+	public CompletableFuture<Integer> getIntAsync() {
+		if(type != ArduinoType.Int && type != ArduinoType.Short) throw new RuntimeException("Can't get int from a " + type.name() + " field!");
+		return getAsync().thenApply(obj -> ((Number) obj).intValue());
 	}
 	
-	@SuppressWarnings("unchecked")
 	public void getIntList(Consumer<List<Integer>> callback) {
-		if(type != ArduinoType.Int || qty <= 1) throw new RuntimeException("Can't get int[] from a " + type.name() + " field of qty " + qty + "!");
-		sendGet();
-		callbacks.add(obj -> {
-			callback.accept((List<Integer>) obj);
-		});
+		getIntListAsync().thenAccept(callback);
+	}
+	
+	public CompletableFuture<List<Integer>> getIntListAsync() {
+		if(type != ArduinoType.Int && type != ArduinoType.Short || qty <= 1) throw new RuntimeException("Can't get int[] from a " + type.name() + " field of qty " + qty + "!");
+		return getListAsync(obj -> ((Number) obj).intValue());
+	}
+	
+	public void getLong(Consumer<Long> callback) {
+		getLongAsync().thenAccept(callback);
+	}
+	
+	public CompletableFuture<Long> getLongAsync() {
+		if(!type.isInteger()) throw new RuntimeException("Can't get long from a " + type.name() + " field!");
+		return getAsync().thenApply(obj -> ((Number) obj).longValue());
+	}
+	
+	public void getLongList(Consumer<List<Long>> callback) {
+		getLongListAsync().thenAccept(callback);
+	}
+	
+	public CompletableFuture<List<Long>> getLongListAsync() {
+		if(!type.isInteger() || qty <= 1) throw new RuntimeException("Can't get long[] from a " + type.name() + " field of qty " + qty + "!");
+		return getListAsync(obj -> ((Number) obj).longValue());
 	}
 	
 	public void getFloat(Consumer<Float> callback) {
-		if(type != ArduinoType.Float) throw new RuntimeException("Can't get float from a " + type.name() + " field!");
-		sendGet();
-		callbacks.add(obj -> {
-			callback.accept((float) obj);
-		});
+		getFloatAsync().thenAccept(callback);
+	}
+	
+	public CompletableFuture<Float> getFloatAsync() {
+		if(!type.isReal()) throw new RuntimeException("Can't get float from a " + type.name() + " field!");
+		return getAsync().thenApply(obj -> ((Number) obj).floatValue());
 	}
 	
-	@SuppressWarnings("unchecked")
 	public void getFloatList(Consumer<List<Float>> callback) {
-		if(type != ArduinoType.Float || qty <= 1) throw new RuntimeException("Can't get float[] from a " + type.name() + " field of qty " + qty + "!");
-		sendGet();
-		callbacks.add(obj -> {
-			callback.accept((List<Float>) obj);
-		});
+		getFloatListAsync().thenAccept(callback);
+	}
+	
+	public CompletableFuture<List<Float>> getFloatListAsync() {
+		if(!type.isReal() || qty <= 1) throw new RuntimeException("Can't get float[] from a " + type.name() + " field of qty " + qty + "!");
+		return getListAsync(obj -> ((Number) obj).floatValue());
 	}
 	
 	public void getDouble(Consumer<Double> callback) {
-		if(type != ArduinoType.Float) throw new RuntimeException("Can't get double from a " + type.name() + " field!");
-		sendGet();
-		callbacks.add(obj -> {
-			callback.accept((double) ((float) obj)); // Java trash
-		});
+		getDoubleAsync().thenAccept(callback);
+	}
+	
+	public CompletableFuture<Double> getDoubleAsync() {
+		if(!type.isReal()) throw new RuntimeException("Can't get double from a " + type.name() + " field!");
+		return getAsync().thenApply(obj -> ((Number) obj).doubleValue());
 	}
 	
-	@SuppressWarnings("unchecked")
 	public void getDoubleList(Consumer<List<Double>> callback) {
-		if(type != ArduinoType.Float || qty <= 1) throw new RuntimeException("Can't get double[] from a " + type.name() + " field of qty " + qty + "!");
-		sendGet();
-		callbacks.add(obj -> {
-			callback.accept((List<Double>) obj);
+		getDoubleListAsync().thenAccept(callback);
+	}
+	
+	public CompletableFuture<List<Double>> getDoubleListAsync() {
+		if(!type.isReal() || qty <= 1) throw new RuntimeException("Can't get double[] from a " + type.name() + " field of qty " + qty + "!");
+		return getListAsync(obj -> ((Number) obj).doubleValue());
+	}
+	
+	/**
+	 * Converts the elements of a list value
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> CompletableFuture<List<T>> getListAsync(Function<Object, T> element) {
+		return getAsync().thenApply(obj -> {
+			List<Object> list = (List<Object>) obj;
+			List<T> result = new ArrayList<>(list.size());
+			for (Object o : list) {
+				result.add(element.apply(o));
+			}
+			return result;
+		});
+	}
+	
+	private static boolean toBoolean(Object obj) {
+		return obj instanceof Boolean ? (Boolean) obj : (byte) obj != 0;
+	}
+	
+	/**
+	 * Requests the value of this field. Concurrent requests share one GET frame on the wire.
+	 * The future completes exceptionally with a {@link TimeoutException} if the board does not
+	 * answer within {@link ArduinoSerialInterface#getRequestTimeout()}. With auto reconnect the deadline
+	 * stops while the connection is lost and starts over when the GET gets resent after the reconnect
+	 * 
+	 * @return future of the value as Byte, Short, Integer, Long, Float, Double or Boolean or a List of them if qty > 1.
+	 * Half fields give Float and Fixed fields Double
+	 */
+	public CompletableFuture<Object> getAsync() {
+		CompletableFuture<Object> future;
+		synchronized (this) {
+			pendingGetBoxed = true;
+			if(pendingGet != null) {
+				return pendingGet.copy();
+			}
+			future = openGet();
+		}
+		requestGet(future);
+		return future.copy();
+	}
+	
+	/**
+	 * Registers a one shot callback on the pending GET and sends one if none is pending.
+	 * The callback gets dropped together with the GET if the board does not answer in time
+	 * 
+	 * @return future of the pending GET
+	 */
+	private <L> CompletableFuture<Object> getOnce(ListenerRegistry<L> callbacks, L callback) {
+		CompletableFuture<Object> future;
+		synchronized (this) {
+			callbacks.add(callback);
+			if(pendingGet != null) {
+				return pendingGet;
+			}
+			future = openGet();
+		}
+		requestGet(future);
+		return future;
+	}
+	
+	/**
+	 * Has to be called holding the lock of this field.
+	 * While the connection is lost the GET waits without deadline until {@link #resendGet()}
+	 */
+	private CompletableFuture<Object> openGet() {
+		CompletableFuture<Object> future = new CompletableFuture<>();
+		pendingGet = future;
+		if(!serial.isReconnecting()) {
+			startDeadline();
+		}
+		return future;
+	}
+	
+	/**
+	 * Has to be called holding the lock of this field
+	 */
+	private void startDeadline() {
+		CompletableFuture<Object> future = pendingGet;
+		pendingGetSent = System.nanoTime();
+		pendingGetTimeout = SerialScheduler.timeouts().schedule(serial.getRequestTimeout(), TimeUnit.MILLISECONDS,
+				() -> fail(future, new TimeoutException("No answer for field " + id)));
+	}
+	
+	/**
+	 * Stops the deadline of the pending GET while the connection is lost
+	 */
+	synchronized void suspendGet() {
+		if(pendingGetTimeout != null) {
+			pendingGetTimeout.cancel();
+			pendingGetTimeout = null;
+		}
+	}
+	
+	/**
+	 * Sends a GET after a reconnect. A pending GET gets a new deadline from now on
+	 */
+	boolean resendGet() {
+		synchronized (this) {
+			if(pendingGet != null) {
+				suspendGet();
+				startDeadline();
+			}
+		}
+		return sendGet();
+	}
+	
+	/**
+	 * Fails the pending GET, if any
+	 */
+	void cancelGet(Throwable cause) {
+		CompletableFuture<Object> future;
+		synchronized (this) {
+			future = pendingGet;
+		}
+		if(future != null) {
+			fail(future, cause);
+		}
+	}
+	
+	private void requestGet(CompletableFuture<Object> future) {
+		if(!sendGet() && !serial.isReconnecting()) { // while reconnecting the GET gets repeated after the reconnect
+			fail(future, new IOException("Could not send GET for field " + id));
+		}
+	}
+	
+	private void fail(CompletableFuture<Object> future, Throwable cause) {
+		synchronized (this) {
+			if(pendingGet != future) return;
+			pendingGet = null;
+			pendingGetBoxed = false;
+			suspendGet();
+			valueCallbacks.clear();
+			intCallbacks.clear();
+			floatCallbacks.clear();
+		}
+		future.completeExceptionally(cause);
+	}
+	
+	/**
+	 * Returns the cached value if it is younger than maxAgeMillis and only requests it from the board otherwise
+	 * 
+	 * @param maxAgeMillis max age of the cached value in milliseconds
+	 * @return future of the value like {@link #getAsync()}
+	 */
+	public CompletableFuture<Object> peek(long maxAgeMillis) {
+		synchronized (lastValue) {
+			if(hasValue && System.nanoTime() - lastReceivedNanos <= TimeUnit.MILLISECONDS.toNanos(maxAgeMillis)) {
+				return CompletableFuture.completedFuture(decode(lastValue));
+			}
+		}
+		return getAsync();
+	}
+	
+	/**
+	 * @return latest received value like {@link #getAsync()} or null if nothing has been received yet
+	 */
+	public Object getLastValue() {
+		synchronized (lastValue) {
+			return hasValue ? decode(lastValue) : null;
+		}
+	}
+	
+	/**
+	 * @return {@link System#nanoTime()} of the latest received value or -1 if nothing has been received yet
+	 */
+	public long getLastReceivedNanos() {
+		synchronized (lastValue) {
+			return hasValue ? lastReceivedNanos : -1;
+		}
+	}
+	
+	/**
+	 * Subscribers get every received value, also the ones the board sends without being asked,
+	 * and stay registered until {@link #unsubscribe(Consumer)}
+	 */
+	public boolean subscribe(Consumer<Object> subscriber) {
+		return subscribers.add(subscriber);
+	}
+	
+	/**
+	 * @param executor runs the subscriber off the receiving thread
+	 */
+	public boolean subscribe(Consumer<Object> subscriber, Executor executor) {
+		return subscribers.add(subscriber, executor);
+	}
+	
+	public boolean unsubscribe(Consumer<Object> subscriber) {
+		return subscribers.remove(subscriber);
+	}
+	
+	/**
+	 * Publishes every received value like {@link #subscribe(Consumer)} but with backpressure
+	 * 
+	 * @param bufferSize values buffered per subscriber
+	 * @param policy what to do with new values for a subscriber with a full buffer
+	 */
+	public SerialPublisher<Object> publishValues(int bufferSize, OverflowPolicy policy) {
+		SerialPublisher<Object> publisher = new SerialPublisher<>(bufferSize, policy);
+		publishers.add(publisher);
+		publisher.onClose(() -> publishers.remove(publisher));
+		return publisher;
+	}
+	
+	void closePublishers() {
+		for (SerialPublisher<Object> publisher : publishers) {
+			publisher.close();
+		}
+	}
+	
+	private boolean isPublishing() {
+		for (SerialPublisher<Object> publisher : publishers) {
+			if(publisher.hasSubscribers()) return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Keeps the latest capacity received values from now on, replacing the history kept so far
+	 * 
+	 * @return the new history
+	 */
+	public FieldHistory enableHistory(int capacity) {
+		FieldHistory history = new FieldHistory(capacity, qty);
+		this.history = history;
+		return history;
+	}
+	
+	public void disableHistory() {
+		history = null;
+	}
+	
+	/**
+	 * @return history of received values or null if not enabled
+	 */
+	public FieldHistory getHistory() {
+		return history;
+	}
+	
+	/**
+	 * @return true if a GET request is waiting for its answer
+	 */
+	public synchronized boolean isPending() {
+		return pendingGet != null;
+	}
+	
+	/**
+	 * @return round trip time of the last answered GET request in nanoseconds or -1 if none got answered yet
+	 */
+	public long getLastRoundTripNanos() {
+		return lastRoundTripNanos;
+	}
+	
+	/**
+	 * @return mean round trip time of all answered GET requests in nanoseconds or -1 if none got answered yet
+	 */
+	public synchronized long getAverageRoundTripNanos() {
+		return roundTrips == 0 ? -1 : totalRoundTripNanos / roundTrips;
+	}
+	
+	/**
+	 * Requests the value once and passes it as view without boxing.
+	 * The callback gets dropped if the board does not answer within {@link ArduinoSerialInterface#getRequestTimeout()}
+	 */
+	public void getValue(FieldValueListener callback) {
+		getOnce(valueCallbacks, callback);
+	}
+	
+	/**
+	 * Requests the value once like {@link #getAsync()} and completes with what reader reads from the view,
+	 * so the value never gets boxed as Object
+	 */
+	<T> CompletableFuture<T> getAsync(Function<FieldValue, T> reader) {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		getOnce(valueCallbacks, v -> {
+			try {
+				future.complete(reader.apply(v));
+			} catch (RuntimeException e) {
+				future.completeExceptionally(e);
+			}
+		}).whenComplete((v, e) -> { // the callback got dropped with the pending GET
+			if(e != null) future.completeExceptionally(e);
 		});
+		return future;
+	}
+	
+	/**
+	 * Passes the latest received value to reader while it can't change
+	 * 
+	 * @return false if nothing has been received yet
+	 */
+	boolean readLast(FieldValueListener reader) {
+		synchronized (lastValue) {
+			if(!hasValue) return false;
+			lastView.bind(lastValue, 0);
+			reader.valueReceived(lastView);
+			return true;
+		}
+	}
+	
+	/**
+	 * Allocation free variant of {@link #getByte(Consumer)}
+	 */
+	public void getByteValue(IntConsumer callback) {
+		if(type != ArduinoType.Byte) throw new RuntimeException("Can't get byte from a " + type.name() + " field!");
+		getOnce(intCallbacks, callback);
+	}
+	
+	/**
+	 * Allocation free variant of {@link #getInt(Consumer)}
+	 */
+	public void getIntValue(IntConsumer callback) {
+		if(type != ArduinoType.Int && type != ArduinoType.Short) throw new RuntimeException("Can't get int from a " + type.name() + " field!");
+		getOnce(intCallbacks, callback);
+	}
+	
+	/**
+	 * Allocation free variant of {@link #getFloat(Consumer)}
+	 */
+	public void getFloatValue(FloatConsumer callback) {
+		if(!type.isReal()) throw new RuntimeException("Can't get float from a " + type.name() + " field!");
+		getOnce(floatCallbacks, callback);
+	}
+	
+	/**
+	 * Listeners stay registered and get called for every received value
+	 */
+	public boolean addValueListener(FieldValueListener l) {
+		return valueListeners.add(l);
+	}
+	
+	/**
+	 * @param executor runs the listener off the receiving thread. It gets a copy of the value
+	 */
+	public boolean addValueListener(FieldValueListener l, Executor executor) {
+		return valueListeners.add(l, executor);
+	}
+	
+	public boolean removeValueListener(FieldValueListener l) {
+		return valueListeners.remove(l);
 	}
 	
 	public void set(byte bVal) {
 		if(type != ArduinoType.Byte) throw new RuntimeException("Can't set byte of a " + type.name() + " field!");
-		sendSet(ByteBuffer.allocate(1).put(bVal).array());
+		byte[] value = new byte[length];
+		value[0] = bVal;
+		sendSet(value);
 	}
 	
 	public void set(byte[] bList) {
 		if(type != ArduinoType.Byte || qty <= 1) throw new RuntimeException("Can't set byte[] of a " + type.name() + " field with qty=" + qty);
-		ByteBuffer buffer = ByteBuffer.allocate(qty);
-		for (Byte b : bList) {
-			buffer.put(b);
-		}
-		sendSet(buffer.array());
+		byte[] value = new byte[length];
+		System.arraycopy(bList, 0, value, 0, elements(bList.length));
+		sendSet(value);
 	}
 	
 	public void set(boolean b) {
-		if(type != ArduinoType.Byte) throw new RuntimeException("Can't set boolean of a " + type.name() + " field!");
-		sendSet(ByteBuffer.allocate(1).put((byte) (b ? 1 : 0)).array());
+		if(type != ArduinoType.Byte && type != ArduinoType.Bits) throw new RuntimeException("Can't set boolean of a " + type.name() + " field!");
+		byte[] value = new byte[length];
+		codec.putBoolean(value, 0, 0, b, scale);
+		sendSet(value);
 	}
 	
 	public void set(boolean[] bList) {
-		if(type != ArduinoType.Byte || qty <= 1) throw new RuntimeException("Can't set boolean[] of a " + type.name() + " field with qty=" + qty);
-		ByteBuffer buffer = ByteBuffer.allocate(qty);
-		for (Boolean b : bList) {
-			buffer.put((byte) (b ? 1 : 0));
-		}
-		sendSet(buffer.array());
+		if(type != ArduinoType.Byte && type != ArduinoType.Bits || qty <= 1) throw new RuntimeException("Can't set boolean[] of a " + type.name() + " field with qty=" + qty);
+		byte[] value = new byte[length];
+		codec.encode(bList, elements(bList.length), value, 0, scale);
+		sendSet(value);
 	}
 	
 	public void set(char c) {
 		if(type != ArduinoType.Byte) throw new RuntimeException("Can't set char of a " + type.name() + " field!");
-		sendSet(ByteBuffer.allocate(1).putChar(c).array());
+		byte[] value = new byte[length];
+		value[0] = (byte) c;
+		sendSet(value);
 	}
 	
 	public void set(char[] cList) {
 		if(type != ArduinoType.Byte || qty <= 1) throw new RuntimeException("Can't set char[] of a " + type.name() + " field with qty=" + qty);
-		ByteBuffer buffer = ByteBuffer.allocate(qty);
-		for (char c : cList) {
-			buffer.putChar(c);
+		byte[] value = new byte[length];
+		for (int i = 0; i < elements(cList.length); i++) {
+			value[i] = (byte) cList[i];
 		}
-		sendSet(buffer.array());
+		sendSet(value);
 	}
 	
+	/**
+	 * Short, Int and Long fields, and Fixed fields as whole units
+	 */
 	public void set(int iVal) {
-		if(type != ArduinoType.Int) throw new RuntimeException("Can't set int of a " + type.name() + " field!");
-		sendSet(ByteBuffer.allocate(4).putInt(iVal).array());
+		set((long) iVal);
 	}
 	
 	public void set(int[] iList) {
-		if(type != ArduinoType.Int || qty <= 1) throw new RuntimeException("Can't set int[] of a " + type.name() + " field with qty=" + qty);
-		ByteBuffer buffer = ByteBuffer.allocate(qty);
-		for (int i : iList) {
-			buffer.putInt(i);
-		}
-		sendSet(buffer.array());
+		if(!type.isInteger() && !isFixed() || qty <= 1) throw new RuntimeException("Can't set int[] of a " + type.name() + " field with qty=" + qty);
+		byte[] value = new byte[length];
+		codec.encode(iList, elements(iList.length), value, 0, scale);
+		sendSet(value);
 	}
 	
+	public void set(long lVal) {
+		if(!type.isInteger() && !isFixed()) throw new RuntimeException("Can't set integer of a " + type.name() + " field!");
+		byte[] value = new byte[length];
+		codec.putLong(value, 0, 0, lVal, scale);
+		sendSet(value);
+	}
+	
+	public void set(long[] lList) {
+		if(!type.isInteger() && !isFixed() || qty <= 1) throw new RuntimeException("Can't set long[] of a " + type.name() + " field with qty=" + qty);
+		byte[] value = new byte[length];
+		codec.encode(lList, elements(lList.length), value, 0, scale);
+		sendSet(value);
+	}
+	
+	/**
+	 * Float, Double, Half and Fixed fields
+	 */
 	public void set(float f) {
-		if(type != ArduinoType.Float) throw new RuntimeException("Can't set float of a " + type.name() + " field!");
-		sendSet(ByteBuffer.allocate(4).putFloat(f).array());
+		set((double) f);
 	}
 	
 	public void set(float[] fList) {
-		if(type != ArduinoType.Float || qty <= 1) throw new RuntimeException("Can't set float[] of a " + type.name() + " field with qty=" + qty);
-		ByteBuffer buffer = ByteBuffer.allocate(qty);
-		for (float f : fList) {
-			buffer.putFloat(f);
-		}
-		sendSet(buffer.array());
+		if(!type.isReal() || qty <= 1) throw new RuntimeException("Can't set float[] of a " + type.name() + " field with qty=" + qty);
+		byte[] value = new byte[length];
+		codec.encode(fList, elements(fList.length), value, 0, scale);
+		sendSet(value);
 	}
 	
+	/**
+	 * Rounded to the precision of the field, only Double fields keep every bit
+	 */
 	public void set(double d) {
-		if(type != ArduinoType.Float) throw new RuntimeException("Can't set double of a " + type.name() + " field!");
-		sendSet(ByteBuffer.allocate(4).putFloat((float) d).array());
+		if(!type.isReal()) throw new RuntimeException("Can't set real of a " + type.name() + " field!");
+		byte[] value = new byte[length];
+		codec.putDouble(value, 0, 0, d, scale);
+		sendSet(value);
 	}
 	
 	public void set(double[] dList) {
-		if(type != ArduinoType.Float || qty <= 1) throw new RuntimeException("Can't set double[] of a " + type.name() + " field with qty=" + qty);
-		ByteBuffer buffer = ByteBuffer.allocate(qty);
-		for (double f : dList) {
-			buffer.putFloat((float) f);
+		if(!type.isReal() || qty <= 1) throw new RuntimeException("Can't set double[] of a " + type.name() + " field with qty=" + qty);
+		byte[] value = new byte[length];
+		codec.encode(dList, elements(dList.length), value, 0, scale);
+		sendSet(value);
+	}
+	
+	/**
+	 * @return elements to encode from an array of the given length. Missing elements stay 0
+	 */
+	private int elements(int arrayLength) {
+		if(arrayLength > qty) throw new RuntimeException("Can't set " + arrayLength + " values of a field with qty=" + qty);
+		return arrayLength;
+	}
+	
+	private boolean isFixed() {
+		return type == ArduinoType.Fixed16 || type == ArduinoType.Fixed32;
+	}
+	
+	public WritePolicy getWritePolicy() {
+		return writePolicy;
+	}
+	
+	/**
+	 * Filters and rate limits the values set on this field before they get sent.
+	 * null to send every value, a value waiting for the rate limit gets sent at once then
+	 */
+	public void setWritePolicy(WritePolicy writePolicy) {
+		synchronized (writeLock) {
+			this.writePolicy = writePolicy;
+			if(writePolicy == null && coalesced != null) {
+				coalescedFlush.cancel(false);
+				coalescedFlush = null;
+				byte[] value = coalesced;
+				coalesced = null;
+				writeSet(value, false);
+			}
+		}
+	}
+	
+	/**
+	 * Applies the {@link WritePolicy}
+	 * 
+	 * @param value encoded value of {@link #length} bytes
+	 */
+	void sendSet(byte[] value) {
+		WritePolicy policy = writePolicy;
+		if(policy == null) {
+			writeSet(value, false);
+			return;
+		}
+		synchronized (writeLock) {
+			if(hasLastWritten && policy.skip(this, lastWritten, value)) {
+				skippedSets++;
+				return;
+			}
+			boolean critical = policy.getPriority() == WritePriority.CRITICAL;
+			long interval = critical ? 0 : policy.minIntervalNanos();
+			long now = System.nanoTime();
+			if(interval > 0 && sets > 0 && now - lastSetNanos < interval) { // coalesce, the latest value wins
+				if(coalesced != null) coalescedSets++;
+				coalesced = value;
+				if(coalescedFlush == null) {
+					coalescedFlush = serial.getScheduler().schedule(this::flushCoalesced, lastSetNanos + interval - now, TimeUnit.NANOSECONDS);
+				}
+				return;
+			}
+			if(coalesced != null) { // superseded by this value
+				coalescedSets++;
+				coalesced = null;
+				coalescedFlush.cancel(false);
+				coalescedFlush = null;
+			}
+			writeSet(value, critical);
+		}
+	}
+	
+	private void flushCoalesced() {
+		synchronized (writeLock) {
+			coalescedFlush = null;
+			byte[] value = coalesced;
+			coalesced = null;
+			WritePolicy policy = writePolicy;
+			if(value == null || policy == null) return;
+			if(hasLastWritten && policy.skip(this, lastWritten, value)) {
+				skippedSets++;
+				return;
+			}
+			writeSet(value, false);
 		}
-		sendSet(buffer.array());
 	}
 	
 	/**
 	 * <SET>       ::= S <ID> <Size> <Value> <Checksum>
+	 * The checksum has {@link FrameIntegrity#length()} bytes.
+	 * Inside a batch of a link with {@link FrameGrouping} the value goes into the GROUP frame of the batch instead
 	 */
-	private void sendSet(byte[] value) {
-		byte[] b = new byte[size * qty + 4];
-		int checksum = initSet(b);
-		
-		for (int i = 0; i < value.length; i++) {
-			b[i + 3] = value[i];
+	private void writeSet(byte[] value, boolean immediately) {
+		if(immediately) {
+			serial.ungroupSet(id);
+		}
+		if(immediately || !serial.groupSet(id, value)) {
+			FrameIntegrity integrity = serial.getFrameIntegrity();
+			int body = length + 3;
+			byte[] b = new byte[body + integrity.length()];
+			b[0] = 'S';
+			b[1] = (byte) id;
+			b[2] = (byte) length;
+			System.arraycopy(value, 0, b, 3, length);
+			integrity.write(integrity.compute(b, 0, body), b, body);
+			if(immediately) {
+				serial.printImmediately(b, b.length);
+			} else {
+				serial.print(b);
+			}
+		}
+		if(writePolicy != null) {
+			synchronized (writeLock) {
+				System.arraycopy(value, 0, lastWritten, 0, length);
+				hasLastWritten = true;
+				lastSetNanos = System.nanoTime();
+				sets++;
+			}
+		}
+	}
+	
+	/**
+	 * The board may have lost its values, so the next set gets sent even if unchanged
+	 */
+	void forgetWritten() {
+		synchronized (writeLock) {
+			hasLastWritten = false;
+		}
+	}
+	
+	/**
+	 * @return values not sent because of the {@link WritePolicy} deadband or because they were unchanged
+	 */
+	public long getSkippedSets() {
+		synchronized (writeLock) {
+			return skippedSets;
+		}
+	}
+	
+	/**
+	 * @return values not sent because a newer one replaced them while waiting for the rate limit
+	 */
+	public long getCoalescedSets() {
+		synchronized (writeLock) {
+			return coalescedSets;
 		}
-		
-		checksum = ArduinoSerialInterface.addChecksum(checksum, value, value.length);
-		b[b.length - 1] = (byte) checksum;
-		serial.print(b);
 	}
 	
-	private int initSet(byte[] b) {
-		int checksum = 0;
-		b[0] = 'S'; checksum = ArduinoSerialInterface.addChecksum(checksum, 'S');
-		b[1] = (byte) id; checksum = ArduinoSerialInterface.addChecksum(checksum, (byte) id); // @todo check
-		b[2] = (byte) (size * qty); checksum = ArduinoSerialInterface.addChecksum(checksum, (byte) (size * qty));
-		return checksum;
+	/**
+	 * @return true if anyone listens to every value of this field
+	 */
+	boolean hasSubscribers() {
+		return !subscribers.isEmpty() || !valueListeners.isEmpty() || isPublishing();
 	}
 	
-	private void sendGet() {
-		byte[] b = {'G', (byte) getId(), (byte) (('G' + getId()) % 255)};
-		serial.print(b, 3);
+	boolean sendGet() {
+		FrameIntegrity integrity = serial.getFrameIntegrity();
+		byte[] b = new byte[2 + integrity.length()];
+		b[0] = 'G';
+		b[1] = (byte) id;
+		integrity.write(integrity.compute(b, 0, 2), b, 2);
+		return serial.print(b, b.length);
 	}
 	
 	protected void receive(byte[] bytes) {
-		if(bytes.length != size * qty) return;
-		Object newVal;
-		if(qty > 1) {
-			List<Object> newListVal = new ArrayList<Object>();
-			for (int i = 0; i < qty; i++) {
-				newListVal.add(parse(bytes, i * size));
+		receive(bytes, bytes.length);
+	}
+	
+	/**
+	 * @param bytes buffer holding the value at index 0. Gets reused after this call
+	 * @param length length of the value in bytes
+	 */
+	protected void receive(byte[] bytes, int length) {
+		if(length != this.length) return;
+		long now = System.nanoTime();
+		synchronized (lastValue) {
+			System.arraycopy(bytes, 0, lastValue, 0, length);
+			lastReceivedNanos = now;
+			hasValue = true;
+		}
+		if(writePolicy != null) { // what the board has now is what the next set gets compared to
+			synchronized (writeLock) {
+				System.arraycopy(bytes, 0, lastWritten, 0, length);
+				hasLastWritten = true;
 			}
-			newVal = newListVal;
-		} else {
-			newVal = parse(bytes, 0);
 		}
+		value.bind(bytes, 0);
+		FieldHistory history = this.history;
+		if(history != null) {
+			history.record(now, value);
+		}
+		valueListeners.dispatch((l, v) -> l.valueReceived(v), value, FieldValue::copy);
 		
-		for (Consumer<Object> c : callbacks) {
-			c.accept(newVal);
+		/*
+		 * The one shot callbacks get taken together with the pending GET, so a callback registered
+		 * from now on finds no pending GET and sends its own instead of waiting for this answer
+		 */
+		CompletableFuture<Object> future;
+		boolean boxed;
+		ListenerRegistry.Entry<FieldValueListener>[] values;
+		ListenerRegistry.Entry<IntConsumer>[] ints;
+		ListenerRegistry.Entry<FloatConsumer>[] floats;
+		synchronized (this) {
+			values = valueCallbacks.takeAll();
+			ints = intCallbacks.takeAll();
+			floats = floatCallbacks.takeAll();
+			future = pendingGet;
+			boxed = pendingGetBoxed;
+			if(future != null) {
+				pendingGet = null;
+				pendingGetBoxed = false;
+				suspendGet();
+				lastRoundTripNanos = System.nanoTime() - pendingGetSent;
+				totalRoundTripNanos += lastRoundTripNanos;
+				roundTrips++;
+			}
+		}
+		if(future != null) {
+			serial.getMetrics().recordGetRoundTrip(id, lastRoundTripNanos);
+		}
+		valueCallbacks.dispatch(values, (l, v) -> l.valueReceived(v), value, FieldValue::copy);
+		intCallbacks.dispatch(ints, (l, v) -> l.accept(v.getInt(0)), value, FieldValue::copy);
+		floatCallbacks.dispatch(floats, (l, v) -> l.accept(v.getFloat(0)), value, FieldValue::copy);
+		boolean publishing = isPublishing();
+		Object newVal = null;
+		if(boxed || !subscribers.isEmpty() || publishing) { // only box values if anyone wants them
+			newVal = decode(bytes);
+			subscribers.dispatch((l, v) -> l.accept(v), newVal);
+			if(publishing) {
+				for (SerialPublisher<Object> publisher : publishers) {
+					publisher.submit(newVal);
+				}
+			}
+		}
+		if(future != null) {
+			future.complete(newVal);
 		}
-		callbacks.clear();
 	}
 	
-	protected Object parse(byte[] arr, int start) {
-		switch(type) {
-		case Byte: return arr[start];
-		case Int: return ByteBuffer.wrap(arr, start, size).getInt();
-		case Float: return ByteBuffer.wrap(arr, start, size).getFloat();
-		default: return null;
+	private Object decode(byte[] bytes) {
+		if(qty > 1) {
+			List<Object> newListVal = new ArrayList<Object>(qty);
+			for (int i = 0; i < qty; i++) {
+				newListVal.add(codec.box(bytes, 0, i, scale));
+			}
+			return newListVal;
+		} else {
+			return codec.box(bytes, 0, 0, scale);
 		}
 	}
 
@@ -283,12 +953,18 @@ public class ArduinoField {
 		return id;
 	}
 	
-	private static int sizeFromType(ArduinoType type) {
-		switch(type) {
-		case Byte: return 1;
-		case Float: return 4;
-		case Int: return 4;
-		default: return 0;
-		}
+	public ArduinoType getType() {
+		return type;
+	}
+	
+	public int getQty() {
+		return qty;
+	}
+	
+	/**
+	 * @return value of one step of a Fixed16 or Fixed32 field, 1 for other types
+	 */
+	public double getScale() {
+		return scale;
 	}
-}
\ No newline at end of file
+}
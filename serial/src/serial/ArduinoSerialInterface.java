@@ -1,52 +1,425 @@
 package serial;
 
+import java.io.IOException;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import javax.swing.Timer;
 
 import serial.ArduinoField.ArduinoType;
 
-public class ArduinoSerialInterface extends Serial implements SerialByteReceiveListener {
+public class ArduinoSerialInterface extends Serial implements SerialByteReceiveListener, SerialChunkReceiveListener {
 	
-	private static final int TIMEOUT = 100;
+	private static final long TIMEOUT_MICROS = 100000;
+	private static final int BITS_PER_CHARACTER = 10;
+	private static final long DEFAULT_REQUEST_TIMEOUT = 1000;
 	private static final int MAX_SIZE = 255;
 	
 	private static final int FRAME_TYPE_GET	 	= 'G';
 	private static final int FRAME_TYPE_SET 	= 'S';
 	private static final int FRAME_TYPE_EXECUTE = 'E';
+	private static final int FRAME_TYPE_INTEGRITY = 'I';
+	private static final int FRAME_TYPE_GROUP = 'M';
+	private static final int FRAME_TYPE_CAPABILITY = 'C';
 	
 	private static final int MODE_COMPLEX = 0;
 	
 	public Map<String, ArduinoField> setup = new HashMap<>();
+	/**
+	 * Fields indexed by their id. The id is a single byte on the wire
+	 */
+	private final ArduinoField[] fieldsById = new ArduinoField[256];
+	/**
+	 * Longest value of all fields ever put. SET frames announcing a longer value are noise
+	 */
+	private volatile int maxValueSize = 0;
+	private volatile long requestTimeout = DEFAULT_REQUEST_TIMEOUT;
+	/**
+	 * History capacity of fields put from now on, 0 for none
+	 */
+	private volatile int historyCapacity = 0;
+	/**
+	 * Integrity check of G, S and E frames. I frames always use the legacy sum
+	 */
+	private volatile FrameIntegrity frameIntegrity = FrameIntegrity.SUM;
+	private CompletableFuture<Boolean> pendingIntegrity = null;
+	private FrameIntegrity requestedIntegrity = null;
+	private TimerWheel.Timeout pendingIntegrityTimeout = null;
+	/**
+	 * Grouping of SET frames, guarded by this
+	 */
+	private volatile FrameGrouping frameGrouping = FrameGrouping.NONE;
+	private CompletableFuture<Boolean> pendingGrouping = null;
+	private FrameGrouping requestedGrouping = null;
+	private TimerWheel.Timeout pendingGroupingTimeout = null;
+	private final FieldGroupEncoder groupEncoder = new FieldGroupEncoder();
+	private final FieldGroupDecoder groupDecoder = new FieldGroupDecoder();
 	
 	/**
 	 * Parsing variables
 	 */
 	private long lastByteReceived = 0;
+	private long interByteTimeoutNanos = TimeUnit.MICROSECONDS.toNanos(TIMEOUT_MICROS);
+	private int timeoutCharacters = 0;
+	private final ListenerRegistry<FrameAbandonListener> abandonListeners = new ListenerRegistry<>();
 	private int framePos = 0;
 	private int frameId = 0;
+	private int groupSeq = 0;
 	private int checksum = 0;
+	private FrameIntegrity checksumIntegrity = FrameIntegrity.SUM;
+	private int trailer = 0;
+	private int trailerPos = 0;
 	private int frameType;
-	private int invalidCheckSums = 0;
-	private byte[] valueBuff = new byte[255];
+	/**
+	 * Reused for every frame
+	 */
+	private byte[] valueBuff = new byte[MAX_SIZE];
 	private int valueBuffSize = 0;
+	private int valueSize = 0;
 	
 	public ArduinoSerialInterface() {
-		this(null);
+		this((String) null);
 		reset();
 	}
 	
 	public ArduinoSerialInterface(String port) {
 		super(port);
-		addByteReceiveListener(this);
+		addChunkReceiveListener(this);
+	}
+	
+	public ArduinoSerialInterface(SerialTransport transport) {
+		super(transport);
+		addChunkReceiveListener(this);
 	}
 	
 	
 	public void put(String identifier, ArduinoField field) {
+		int id = field.getId() & 0xff;
+		if(id != field.getId()) throw new RuntimeException("Field id " + field.getId() + " does not fit in one byte");
+		ArduinoField registered = fieldsById[id];
+		ArduinoField replaced = setup.get(identifier);
+		if(registered != null && registered != replaced && registered != field) {
+			throw new RuntimeException("Id " + id + " is already used by another field");
+		}
+		if(replaced != null) {
+			fieldsById[replaced.getId()] = null;
+		}
 		setup.put(identifier, field);
+		fieldsById[id] = field;
+		maxValueSize = Math.max(maxValueSize, field.length);
 		field.serial = this;
+		if(historyCapacity > 0 && field.getHistory() == null) {
+			field.enableHistory(historyCapacity);
+		}
+	}
+	
+	/**
+	 * Keeps the latest capacity received values of every field, also of fields put later
+	 * @see ArduinoField#enableHistory(int)
+	 */
+	public synchronized void enableHistory(int capacity) {
+		if(capacity < 1) throw new RuntimeException("Capacity cant be < 1");
+		historyCapacity = capacity;
+		for (ArduinoField field : fieldsById) {
+			if(field != null) field.enableHistory(capacity);
+		}
+	}
+	
+	public synchronized void disableHistory() {
+		historyCapacity = 0;
+		for (ArduinoField field : fieldsById) {
+			if(field != null) field.disableHistory();
+		}
+	}
+	
+	/**
+	 * @return time in milliseconds after which unanswered GET requests fail
+	 */
+	public long getRequestTimeout() {
+		return requestTimeout;
+	}
+
+	public void setRequestTimeout(long requestTimeout) {
+		this.requestTimeout = requestTimeout;
+	}
+	
+	/**
+	 * Reads all fields with one write and one round trip. The GET frames of all fields
+	 * are written in a single batch and the result completes once every field answered or timed out.
+	 * 
+	 * @return map of the fields that answered in time to their values as returned by {@link ArduinoField#getAsync()}
+	 */
+	public CompletableFuture<Map<ArduinoField, Object>> getAll(Collection<ArduinoField> fields) {
+		Map<ArduinoField, Object> result = new ConcurrentHashMap<>();
+		CompletableFuture<?>[] futures = new CompletableFuture<?>[fields.size()];
+		beginBatch();
+		try {
+			int i = 0;
+			for (ArduinoField field : fields) {
+				if(field.serial != this) throw new RuntimeException("Field " + field.getId() + " is not part of this interface");
+				futures[i++] = field.getAsync().thenAccept(value -> result.put(field, value)).exceptionally(e -> null);
+			}
+		} finally {
+			commit();
+		}
+		return CompletableFuture.allOf(futures).thenApply(v -> result);
+	}
+	
+	/**
+	 * Reads all fields of the setup with one round trip
+	 * @see #getAll(Collection)
+	 */
+	public CompletableFuture<Map<ArduinoField, Object>> getAll() {
+		return getAll(setup.values());
+	}
+	
+	/**
+	 * Requests all values that were pending when the connection got lost and the ones with subscribers.
+	 * A board that got reset by the reconnect is back on the legacy sum without grouping,
+	 * so a stronger check and the grouping get negotiated again first
+	 */
+	@Override
+	protected void onReconnected() {
+		for (ArduinoField field : fieldsById) {
+			if(field != null) field.forgetWritten();
+		}
+		FrameIntegrity integrity = frameIntegrity;
+		FrameGrouping grouping = frameGrouping;
+		frameIntegrity = FrameIntegrity.SUM;
+		synchronized (this) {
+			frameGrouping = FrameGrouping.NONE;
+		}
+		negotiateFrameIntegrity(integrity)
+				.thenCompose(accepted -> negotiateFrameGrouping(grouping))
+				.thenRun(this::requestPending);
+	}
+	
+	/**
+	 * Pending GETs wait for the reconnect without a deadline, {@link #requestPending()} gives them a new one
+	 */
+	@Override
+	protected void onConnectionLost() {
+		for (ArduinoField field : fieldsById) {
+			if(field != null) field.suspendGet();
+		}
+	}
+	
+	private void requestPending() {
+		beginBatch();
+		try {
+			for (ArduinoField field : fieldsById) {
+				if(field != null && (field.isPending() || field.hasSubscribers())) {
+					field.resendGet();
+				}
+			}
+		} finally {
+			commit();
+		}
+	}
+	
+	/**
+	 * @return integrity check currently used for G, S and E frames
+	 */
+	public FrameIntegrity getFrameIntegrity() {
+		return frameIntegrity;
+	}
+	
+	/**
+	 * Switches the integrity check without asking the board.
+	 * Only use this if the board is configured to the same mode by other means
+	 */
+	public void setFrameIntegrity(FrameIntegrity frameIntegrity) {
+		this.frameIntegrity = frameIntegrity;
+	}
+	
+	/**
+	 * Asks the board to switch to another integrity check.
+	 * <I> ::= I <Mode> <Checksum>, always checked with the legacy sum.
+	 * A board that supports the mode echoes the frame and switches after sending the echo,
+	 * this side switches when the echo arrives. Boards without support never answer and the link stays on the current mode.
+	 * 
+	 * @return future completing with true once both sides use the mode or with false after the request timeout
+	 */
+	public CompletableFuture<Boolean> negotiateFrameIntegrity(FrameIntegrity mode) {
+		if(mode == frameIntegrity) return CompletableFuture.completedFuture(true);
+		CompletableFuture<Boolean> future = new CompletableFuture<>();
+		CompletableFuture<Boolean> replaced;
+		synchronized (this) {
+			replaced = pendingIntegrity;
+			if(pendingIntegrityTimeout != null) pendingIntegrityTimeout.cancel();
+			pendingIntegrity = future;
+			requestedIntegrity = mode;
+			pendingIntegrityTimeout = SerialScheduler.timeouts().schedule(requestTimeout, TimeUnit.MILLISECONDS,
+					() -> completeIntegrity(future, false));
+		}
+		if(replaced != null) replaced.complete(false);
+		byte[] b = {'I', mode.code(), 0};
+		b[2] = (byte) FrameIntegrity.SUM.compute(b, 0, 2);
+		if(!print(b, 3)) {
+			completeIntegrity(future, false);
+		}
+		return future;
+	}
+	
+	private void completeIntegrity(CompletableFuture<Boolean> future, boolean accepted) {
+		synchronized (this) {
+			if(pendingIntegrity != future) return;
+			if(accepted) frameIntegrity = requestedIntegrity;
+			pendingIntegrity = null;
+			requestedIntegrity = null;
+			pendingIntegrityTimeout.cancel();
+			pendingIntegrityTimeout = null;
+		}
+		future.complete(accepted);
+	}
+	
+	void processIntegrity(int code) {
+		CompletableFuture<Boolean> future;
+		synchronized (this) {
+			if(requestedIntegrity == null || requestedIntegrity.code() != code) return;
+			future = pendingIntegrity;
+		}
+		completeIntegrity(future, true);
+	}
+	
+	/**
+	 * @return how SET frames written in one batch travel
+	 */
+	public FrameGrouping getFrameGrouping() {
+		return frameGrouping;
+	}
+	
+	/**
+	 * Switches the grouping without asking the board.
+	 * Only use this if the board is configured to the same mode by other means
+	 */
+	public synchronized void setFrameGrouping(FrameGrouping frameGrouping) {
+		this.frameGrouping = frameGrouping;
+		groupEncoder.reset();
+		groupDecoder.reset();
+	}
+	
+	/**
+	 * Asks the board to group SET frames. Values set between {@link #beginBatch()} and {@link #commit()}
+	 * then share GROUP frames and with {@link FrameGrouping#COMPRESSED} get sent as difference to their previous value.
+	 * <C> ::= C <Mode> <Checksum>, always checked with the legacy sum.
+	 * Like {@link #negotiateFrameIntegrity(FrameIntegrity)} a board that supports the mode echoes the frame and
+	 * switches after sending the echo, boards without support never answer
+	 * 
+	 * @return future completing with true once both sides use the mode or with false after the request timeout
+	 */
+	public CompletableFuture<Boolean> negotiateFrameGrouping(FrameGrouping mode) {
+		if(mode == frameGrouping) return CompletableFuture.completedFuture(true);
+		CompletableFuture<Boolean> future = new CompletableFuture<>();
+		CompletableFuture<Boolean> replaced;
+		synchronized (this) {
+			replaced = pendingGrouping;
+			if(pendingGroupingTimeout != null) pendingGroupingTimeout.cancel();
+			pendingGrouping = future;
+			requestedGrouping = mode;
+			pendingGroupingTimeout = SerialScheduler.timeouts().schedule(requestTimeout, TimeUnit.MILLISECONDS,
+					() -> completeGrouping(future, false));
+		}
+		if(replaced != null) replaced.complete(false);
+		byte[] b = {'C', mode.code(), 0};
+		b[2] = (byte) FrameIntegrity.SUM.compute(b, 0, 2);
+		if(!print(b, 3)) {
+			completeGrouping(future, false);
+		}
+		return future;
+	}
+	
+	private void completeGrouping(CompletableFuture<Boolean> future, boolean accepted) {
+		synchronized (this) {
+			if(pendingGrouping != future) return;
+			if(accepted) setFrameGrouping(requestedGrouping);
+			pendingGrouping = null;
+			requestedGrouping = null;
+			pendingGroupingTimeout.cancel();
+			pendingGroupingTimeout = null;
+		}
+		future.complete(accepted);
+	}
+	
+	void processGrouping(int code) {
+		CompletableFuture<Boolean> future;
+		synchronized (this) {
+			if(requestedGrouping == null || requestedGrouping.code() != code) return;
+			future = pendingGrouping;
+		}
+		completeGrouping(future, true);
+	}
+	
+	/**
+	 * Frames after this many compressed GROUP frames are key frames again, so a board that lost a frame
+	 * resyncs. Default 16
+	 */
+	public synchronized void setGroupKeyInterval(int frames) {
+		if(frames < 0) throw new RuntimeException("Key interval cant be < 0");
+		groupEncoder.setKeyInterval(frames);
+	}
+	
+	/**
+	 * Adds a value to the GROUP frame of the current batch
+	 * 
+	 * @return false if the value has to be sent in its own SET frame
+	 */
+	synchronized boolean groupSet(int id, byte[] value) {
+		if(frameGrouping == FrameGrouping.NONE || getBatchDepth() == 0 || !FieldGroupEncoder.fits(value.length)) return false;
+		groupEncoder.add(id, value);
+		return true;
+	}
+	
+	/**
+	 * A value written at once supersedes the one waiting in the group
+	 */
+	synchronized void ungroupSet(int id) {
+		groupEncoder.remove(id);
+	}
+	
+	/**
+	 * Frames of a batch keep their order, so the grouped values go out before any other frame follows them
+	 */
+	@Override
+	public synchronized boolean print(byte[] msg, int size) {
+		flushGroup();
+		return super.print(msg, size);
+	}
+	
+	/**
+	 * The outermost commit writes the values grouped since the last other frame
+	 */
+	@Override
+	public synchronized boolean commit() {
+		if(getBatchDepth() == 1) {
+			flushGroup();
+		}
+		return super.commit();
+	}
+	
+	private void flushGroup() {
+		if(!groupEncoder.isEmpty()) {
+			groupEncoder.flush(frameGrouping == FrameGrouping.COMPRESSED, frameIntegrity, super::print);
+		}
+	}
+	
+	/**
+	 * Also completes the value publishers of all fields and fails their pending GETs
+	 */
+	@Override
+	public void close() {
+		super.close();
+		for (ArduinoField field : fieldsById) {
+			if(field != null) {
+				field.closePublishers();
+				field.cancelGet(new IOException("Interface closed"));
+			}
+		}
 	}
 	
 	public void writeEEPROM() {
@@ -64,14 +437,21 @@ public class ArduinoSerialInterface extends Serial implements SerialByteReceiveL
 		print(b, 2);
 	}
 	
+	/**
+	 * The board starts with the legacy sum and without grouping after a reboot
+	 */
 	public void reboot() {
 		byte[] b = {'B', 'B'};
 		print(b, 2);
+		frameIntegrity = FrameIntegrity.SUM;
+		setFrameGrouping(FrameGrouping.NONE);
 	}
 	
 	private void reset() {
 		framePos = 0;
         checksum = 0;
+        trailer = 0;
+        trailerPos = 0;
         valueBuffSize = 0;
 	}
 	
@@ -84,10 +464,11 @@ public class ArduinoSerialInterface extends Serial implements SerialByteReceiveL
     }
 
 	protected static int addChecksum(int checksum, byte[] data, int size) {
-        for (int i = 0; i < size; i++) {
-            checksum = addChecksum(checksum, data[i]);
-        }
-        return checksum;
+        return addChecksum(checksum, data, 0, size);
+    }
+	
+	protected static int addChecksum(int checksum, byte[] data, int offset, int size) {
+        return FrameIntegrity.SUM.update(checksum, data, offset, size);
     }
 	
 	void processGet(int id) {
@@ -95,13 +476,10 @@ public class ArduinoSerialInterface extends Serial implements SerialByteReceiveL
 	}
 	
 	private ArduinoField getArduinoField(int id) {
-		for (ArduinoField field : setup.values()) {
-			if(field.getId() == id) return field;
-		}
-		return null;
+		return fieldsById[id & 0xff];
 	}
 	
-	void processSet(int id, byte[] valueBuff) {
+	void processSet(int id, byte[] valueBuff, int length) {
 //		System.out.print("Processing set (id=" + id + "), body: ");
 //		for (int i : valueBuff) {
 //			System.out.print(i);
@@ -112,75 +490,211 @@ public class ArduinoSerialInterface extends Serial implements SerialByteReceiveL
 		ArduinoField f = getArduinoField(id);
 		if(f == null) {
 			System.err.println("No id " + id + " in setup");
+			return;
+		}
+		f.receive(valueBuff, length);
+	}
+	
+	@Override
+	public void chunkReceived(byte[] data, int offset, int length) {
+		long now = System.nanoTime(); // all bytes of a chunk arrived together
+		checkTimeout(now);
+		int end = offset + length;
+		int i = offset;
+		while(i < end) {
+			if(valueBuffSize < valueSize && (frameType == FRAME_TYPE_SET && framePos > 2 || frameType == FRAME_TYPE_GROUP && framePos > 3)) {
+				/**
+				 * Copy as much of the value as this chunk holds at once
+				 */
+				int n = Math.min(valueSize - valueBuffSize, end - i);
+				if(n > 0) {
+					System.arraycopy(data, i, valueBuff, valueBuffSize, n);
+					checksum = checksumIntegrity.update(checksum, data, i, n);
+					valueBuffSize += n;
+					framePos += n;
+					i += n;
+					continue;
+				}
+			}
+			receive(data[i]);
+			i++;
 		}
-		f.receive(valueBuff);
+		lastByteReceived = now;
 	}
 	
 	@Override
 	public void byteReceived(byte c) {
+		long now = System.nanoTime();
+		checkTimeout(now);
+		receive(c);
+		lastByteReceived = now;
+	}
+	
+	private void checkTimeout(long now) {
+		if(framePos > 0 && now - lastByteReceived > interByteTimeoutNanos) { // timout and framePos > 1
+			metrics.frameTimeouts.increment();
+			abandon(FrameAbandonListener.Reason.TIMEOUT);
+			reset();
+		}
+	}
+	
+	private void abandon(FrameAbandonListener.Reason reason) {
+		if(abandonListeners.isEmpty()) return;
+		int type = frameType;
+		int pos = framePos;
+		abandonListeners.dispatch((l, r) -> l.frameAbandoned(type, pos, r), reason);
+	}
+	
+	/**
+	 * @return time in microseconds after which a partially received frame gets dropped if no more bytes arrive
+	 */
+	public long getInterByteTimeoutMicros() {
+		return TimeUnit.NANOSECONDS.toMicros(interByteTimeoutNanos);
+	}
+	
+	/**
+	 * Sets a fixed inter byte timeout. Default is 100ms
+	 */
+	public void setInterByteTimeoutMicros(long micros) {
+		timeoutCharacters = 0;
+		interByteTimeoutNanos = TimeUnit.MICROSECONDS.toNanos(micros);
+	}
+	
+	/**
+	 * Derives the inter byte timeout from the baud rate, now and whenever the baud rate changes,
+	 * so fast links resync after a broken frame within microseconds
+	 * 
+	 * @param characters timeout in character times of the current baud rate
+	 */
+	public void setInterByteTimeoutCharacters(int characters) {
+		timeoutCharacters = characters;
+		SerialTransport transport = getTransport();
+		if(transport != null) {
+			applyTimeoutCharacters(transport.getBaudRate());
+		}
+	}
+	
+	private void applyTimeoutCharacters(int baudRate) {
+		if(timeoutCharacters > 0 && baudRate > 0) {
+			interByteTimeoutNanos = TimeUnit.SECONDS.toNanos((long) timeoutCharacters * BITS_PER_CHARACTER) / baudRate;
+		}
+	}
+	
+	@Override
+	public void setBaudRate(int rate) {
+		super.setBaudRate(rate);
+		applyTimeoutCharacters(rate);
+	}
+	
+	@Override
+	public void setListenerErrorHandler(ListenerErrorHandler errorHandler) {
+		super.setListenerErrorHandler(errorHandler);
+		abandonListeners.setErrorHandler(errorHandler);
+	}
+	
+	public boolean addFrameAbandonListener(FrameAbandonListener l) {
+		return abandonListeners.add(l);
+	}
+	
+	public boolean removeFrameAbandonListener(FrameAbandonListener l) {
+		return abandonListeners.remove(l);
+	}
+	
+	private void receive(byte c) {
 //		System.out.println("got: " + c);
-		if((System.currentTimeMillis() > lastByteReceived + TIMEOUT && framePos > 0) || framePos >= MAX_SIZE) { // timoutand framePos > 1 OR overflow
-            reset();
-        }
-        lastByteReceived = System.currentTimeMillis();
         /**
          * First Byte
          */
         if(framePos == 0) {
-            if(c == FRAME_TYPE_GET || c == FRAME_TYPE_SET || c == FRAME_TYPE_EXECUTE) {// Complex
+            if(c == FRAME_TYPE_GET || c == FRAME_TYPE_SET || c == FRAME_TYPE_EXECUTE || c == FRAME_TYPE_GROUP) {// Complex
 //                mode = MODE_COMPLEX;
+            	checksumIntegrity = frameIntegrity;
+            } else if(c == FRAME_TYPE_INTEGRITY || c == FRAME_TYPE_CAPABILITY) {
+            	checksumIntegrity = FrameIntegrity.SUM;
             } else {
                 reset();
                 return;
             }
             frameType = c;
             framePos++;
-            checksum = addChecksum(checksum, c);
+            checksum = checksumIntegrity.update(checksumIntegrity.init(), c);
             return;
         }
         //Following Bytes
         //Mode Complex
-        if(framePos == 1) { // ID
-            frameId = c;
-        } else {
-            if(frameType == FRAME_TYPE_GET || frameType == FRAME_TYPE_EXECUTE) {
-                if((c & 0xff) == checksum) {
-                    if(frameType == FRAME_TYPE_GET) {
-                    	processGet(frameId);
-                    } else {
-//                    	Skip execute
-                    }
-                } else {
-                    invalidCheckSums++;
-                    System.out.println("checksum: " + checksum + ", c: " + c);
-                    System.out.println("Invalid checksum! (total: " + invalidCheckSums + ")");
-                }
-                reset();
-                return;
-            }
-            if(frameType == FRAME_TYPE_SET) {
-                if(framePos == 2) {
-                	valueBuff = new byte[c];
-                }
-                if(framePos == valueBuff.length + 3) { // pos of checksum
-                    if((c & 0xff) == checksum) {
-                        processSet(frameId, valueBuff);
-                    } else {
-                        invalidCheckSums++;
-                        System.out.println("checksum: " + checksum + ", c: " + c);
-                        System.out.println("Invalid checksum! (total: " + invalidCheckSums + ")");
-                    }
-                    reset();
-                    return;
-                }
-                if(framePos > 2) {
-                    valueBuff[valueBuffSize] = c;
-                    valueBuffSize++;
-                }
-            }
+        if(framePos == 1) { // ID, flags of GROUP frames
+            frameId = c & 0xff;
+        } else if(frameType == FRAME_TYPE_SET && framePos == 2) {
+        	valueSize = c & 0xff;
+        	if(valueSize > maxValueSize) { // resync at once instead of swallowing the following frames
+        		framePos++;
+        		metrics.overflowResets.increment();
+        		abandon(FrameAbandonListener.Reason.OVERFLOW);
+        		reset();
+        		return;
+        	}
+        } else if(frameType == FRAME_TYPE_GROUP && framePos == 2) {
+        	groupSeq = c & 0xff;
+        } else if(frameType == FRAME_TYPE_GROUP && framePos == 3) {
+        	valueSize = c & 0xff;
+        } else if(framePos >= bodyLength()) { // checksum bytes
+        	trailer = (trailer << 8) | (c & 0xff);
+        	trailerPos++;
+        	framePos++;
+        	if(trailerPos == checksumIntegrity.length()) {
+        		if(trailer == checksum) {
+        			process();
+        		} else {
+        			metrics.checksumFailures.increment();
+        		}
+        		reset();
+        	}
+        	return;
+        } else if(frameType == FRAME_TYPE_SET || frameType == FRAME_TYPE_GROUP) {
+            valueBuff[valueBuffSize] = c;
+            valueBuffSize++;
         }
         framePos++;
-        checksum = addChecksum(checksum, c);
+        checksum = checksumIntegrity.update(checksum, c);
+	}
+	
+	/**
+	 * @return number of bytes of the current frame before its checksum
+	 */
+	private int bodyLength() {
+		switch(frameType) {
+		case FRAME_TYPE_SET: return valueSize + 3;
+		case FRAME_TYPE_GROUP: return valueSize + FieldGroupEncoder.HEADER;
+		default: return 2;
+		}
+	}
+	
+	private void process() {
+		switch (frameType) {
+		case FRAME_TYPE_GET:
+			metrics.getFrames.increment();
+			processGet(frameId);
+			break;
+		case FRAME_TYPE_SET:
+			metrics.setFrames.increment();
+			processSet(frameId, valueBuff, valueSize);
+			break;
+		case FRAME_TYPE_EXECUTE:
+			metrics.executeFrames.increment(); // Skip execute
+			break;
+		case FRAME_TYPE_GROUP:
+			metrics.groupFrames.increment();
+			if(!groupDecoder.decode(frameId, groupSeq, valueBuff, valueSize, this::processSet)) {
+				metrics.droppedGroups.increment();
+			}
+			break;
+		case FRAME_TYPE_INTEGRITY:
+			processIntegrity(frameId);
+			break;
+		case FRAME_TYPE_CAPABILITY:
+			processGrouping(frameId);
+			break;
+		}
 	}
 	
 	public static void main(String[] args) {
@@ -192,7 +706,6 @@ public class ArduinoSerialInterface extends Serial implements SerialByteReceiveL
 		serial.selectPort("COM10");
 		serial.addOpenListeners(() -> {
 			serial.setBaudRate(9600);
-			System.out.println("opened");
 			serial.setup.get("d").getFloat(i -> {
 				System.err.println(i);
 				
@@ -0,0 +1,58 @@
+package serial;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Accessor of Bits fields with qty 1. Bits is the only wire type, so the codec gets captured as its concrete class
+ */
+public final class BooleanAccessor extends FieldAccessor {
+	
+	private final FieldCodec.BitsCodec codec;
+
+	BooleanAccessor(ArduinoField field) {
+		super(field);
+		codec = (FieldCodec.BitsCodec) field.codec;
+	}
+	
+	public void set(boolean value) {
+		byte[] b = newValue();
+		codec.putBoolean(b, 0, 0, value, field.scale);
+		field.sendSet(b);
+	}
+	
+	/**
+	 * @return latest received value, false if nothing has been received yet
+	 */
+	public boolean getLast() {
+		byte[] last = field.lastValue;
+		synchronized (last) {
+			return codec.getBoolean(last, 0, 0, field.scale);
+		}
+	}
+	
+	/**
+	 * Requests the value once
+	 */
+	public void request(Consumer<Boolean> callback) {
+		field.getValue(v -> callback.accept(codec.getBoolean(v.buffer(), v.offset(), 0, field.scale)));
+	}
+	
+	/**
+	 * Requests the value once, failing with a {@link java.util.concurrent.TimeoutException} after {@link ArduinoSerialInterface#getRequestTimeout()}
+	 */
+	public CompletableFuture<Boolean> getAsync() {
+		return field.getAsync(v -> codec.getBoolean(v.buffer(), v.offset(), 0, field.scale));
+	}
+	
+	/**
+	 * Gets called for every received value
+	 * 
+	 * @return the registered listener for {@link ArduinoField#removeValueListener(FieldValueListener)}
+	 */
+	public FieldValueListener addListener(Consumer<Boolean> listener) {
+		FieldValueListener l = v -> listener.accept(codec.getBoolean(v.buffer(), v.offset(), 0, field.scale));
+		field.addValueListener(l);
+		return l;
+	}
+}
@@ -0,0 +1,52 @@
+package serial;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Accessor of Bits fields with qty > 1. Bits is the only wire type, so the codec gets captured as its concrete class
+ */
+public final class BooleanArrayAccessor extends FieldAccessor {
+	
+	private final FieldCodec.BitsCodec codec;
+
+	BooleanArrayAccessor(ArduinoField field) {
+		super(field);
+		codec = (FieldCodec.BitsCodec) field.codec;
+	}
+	
+	/**
+	 * @return number of elements
+	 */
+	public int length() {
+		return field.qty;
+	}
+	
+	/**
+	 * @param values up to {@link #length()} values, missing ones get sent as false
+	 */
+	public void set(boolean[] values) {
+		byte[] b = newValue();
+		codec.encode(values, elements(values.length), b, 0, field.scale);
+		field.sendSet(b);
+	}
+	
+	/**
+	 * Copies the latest received value to dst
+	 * 
+	 * @return false if nothing has been received yet
+	 */
+	public boolean getLast(boolean[] dst) {
+		return field.readLast(v -> codec.decode(v.buffer(), v.offset(), dst, field.qty, field.scale));
+	}
+	
+	/**
+	 * Requests the value once, failing with a {@link java.util.concurrent.TimeoutException} after {@link ArduinoSerialInterface#getRequestTimeout()}
+	 */
+	public CompletableFuture<boolean[]> getAsync() {
+		return field.getAsync(v -> {
+			boolean[] values = new boolean[field.qty];
+			codec.decode(v.buffer(), v.offset(), values, field.qty, field.scale);
+			return values;
+		});
+	}
+}
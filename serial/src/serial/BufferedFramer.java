@@ -0,0 +1,148 @@
+package serial;
+
+import java.util.Arrays;
+
+/**
+ * Base of the framers. Frames that lie completely inside one received chunk get passed on as a view
+ * of the chunk, only frames spanning several chunks get copied into a buffer that grows up to the max frame size.
+ */
+public abstract class BufferedFramer implements SerialFramer {
+	
+	public static final int DEFAULT_MAX_FRAME_SIZE = 1 << 16;
+
+	private byte[] buffer = new byte[256];
+	private int size = 0;
+	private int maxFrameSize = DEFAULT_MAX_FRAME_SIZE;
+	private FrameOverflowPolicy overflowPolicy = FrameOverflowPolicy.SPLIT;
+	private boolean discarding = false;
+	private boolean skipEmpty = true;
+	private long overflows = 0;
+	
+	/**
+	 * Appends one byte to the current frame
+	 */
+	protected final void append(byte b, SerialFrameListener sink) {
+		if(discarding || (size == maxFrameSize && !overflow(sink))) return;
+		if(size == buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.min(buffer.length * 2, maxFrameSize));
+		}
+		buffer[size++] = b;
+	}
+	
+	/**
+	 * Appends data[offset] to data[offset + length - 1] to the current frame
+	 */
+	protected final void append(byte[] data, int offset, int length, SerialFrameListener sink) {
+		while(length > 0) {
+			if(discarding || (size == maxFrameSize && !overflow(sink))) return;
+			int n = Math.min(length, maxFrameSize - size);
+			if(size + n > buffer.length) {
+				buffer = Arrays.copyOf(buffer, Math.min(Math.max(buffer.length * 2, size + n), maxFrameSize));
+			}
+			System.arraycopy(data, offset, buffer, size, n);
+			size += n;
+			offset += n;
+			length -= n;
+		}
+	}
+	
+	/**
+	 * @return true if appending can go on
+	 */
+	private boolean overflow(SerialFrameListener sink) {
+		overflows++;
+		if(overflowPolicy == FrameOverflowPolicy.SPLIT) {
+			sink.frameReceived(buffer, 0, size);
+			size = 0;
+			return true;
+		}
+		discarding = true;
+		size = 0;
+		return false;
+	}
+	
+	/**
+	 * Ends the current frame and passes it on
+	 */
+	protected final void complete(SerialFrameListener sink) {
+		if(!discarding && (size > 0 || !skipEmpty)) {
+			sink.frameReceived(buffer, 0, size);
+		}
+		size = 0;
+		discarding = false;
+	}
+	
+	/**
+	 * Ends the current frame with the bytes data[offset] to data[offset + length - 1].
+	 * Passes the frame on without copying if nothing of it is buffered
+	 */
+	protected final void complete(byte[] data, int offset, int length, SerialFrameListener sink) {
+		if(size == 0 && !discarding && length <= maxFrameSize) {
+			if(length > 0 || !skipEmpty) {
+				sink.frameReceived(data, offset, length);
+			}
+			return;
+		}
+		append(data, offset, length, sink);
+		complete(sink);
+	}
+	
+	/**
+	 * @return number of bytes of the current frame that are buffered
+	 */
+	protected final int buffered() {
+		return size;
+	}
+	
+	/**
+	 * Removes the last bytes of the buffered frame
+	 */
+	protected final void trim(int bytes) {
+		size = Math.max(0, size - bytes);
+	}
+	
+	@Override
+	public void reset() {
+		size = 0;
+		discarding = false;
+	}
+	
+	public int getMaxFrameSize() {
+		return maxFrameSize;
+	}
+	
+	public FrameOverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+	
+	/**
+	 * Default is {@link #DEFAULT_MAX_FRAME_SIZE} and {@link FrameOverflowPolicy#SPLIT}
+	 */
+	public void setMaxFrameSize(int maxFrameSize, FrameOverflowPolicy overflowPolicy) {
+		if(maxFrameSize < 1) throw new RuntimeException("maxFrameSize cant be < 1");
+		this.maxFrameSize = maxFrameSize;
+		this.overflowPolicy = overflowPolicy;
+		if(buffer.length > maxFrameSize) {
+			buffer = new byte[maxFrameSize];
+			size = 0;
+		}
+	}
+	
+	/**
+	 * @return number of frames that were longer than the max frame size
+	 */
+	public long getOverflows() {
+		return overflows;
+	}
+	
+	public boolean isSkipEmpty() {
+		return skipEmpty;
+	}
+	
+	/**
+	 * Empty frames get dropped by default, like empty lines between \r and \n
+	 */
+	public void setSkipEmpty(boolean skipEmpty) {
+		this.skipEmpty = skipEmpty;
+	}
+}
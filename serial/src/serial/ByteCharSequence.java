@@ -0,0 +1,67 @@
+package serial;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reusable view of a byte range with one char per byte. Only used where it decodes
+ * the same as the charset of the {@link Serial}, otherwise the range gets decoded into a String
+ */
+class ByteCharSequence implements CharSequence {
+	
+	private byte[] data;
+	private int offset;
+	private int length;
+	
+	ByteCharSequence bind(byte[] data, int offset, int length) {
+		this.data = data;
+		this.offset = offset;
+		this.length = length;
+		return this;
+	}
+	
+	/**
+	 * ISO-8859-1 maps every byte to the char of the same value, ASCII compatible charsets like UTF-8
+	 * do so for bytes below 0x80. Everything else gets decoded
+	 * 
+	 * @return this view bound to the range if it decodes the same as charset, otherwise the decoded String
+	 */
+	CharSequence bind(byte[] data, int offset, int length, Charset charset) {
+		if(charset.equals(StandardCharsets.ISO_8859_1)) {
+			return bind(data, offset, length);
+		}
+		if(charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII)) {
+			int end = offset + length;
+			int i = offset;
+			while(i < end && data[i] >= 0) {
+				i++;
+			}
+			if(i == end) {
+				return bind(data, offset, length);
+			}
+		}
+		return new String(data, offset, length, charset);
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if(index < 0 || index >= length) throw new IndexOutOfBoundsException(index);
+		return (char) (data[offset + index] & 0xff);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		if(start < 0 || end > length || start > end) throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+		return new String(data, offset + start, end - start, StandardCharsets.ISO_8859_1);
+	}
+	
+	@Override
+	public String toString() {
+		return new String(data, offset, length, StandardCharsets.ISO_8859_1);
+	}
+}
@@ -0,0 +1,169 @@
+package serial;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock free single producer / single consumer ring buffer for bytes.
+ * The producer is the port event thread, the consumer is the reader thread of {@link Serial}.
+ * Head and tail are ever increasing positions, the index in the array is position & mask.
+ * With {@link OverflowPolicy#DROP_OLDEST} the producer moves the tail forward itself,
+ * the consumer detects this by a failing compare and set and rereads.
+ */
+class ByteRingBuffer {
+	
+	private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+	private final byte[] buffer;
+	private final int mask;
+	private final OverflowPolicy policy;
+	/**
+	 * Next position to write. Only written by the producer
+	 */
+	private final AtomicLong head = new AtomicLong();
+	/**
+	 * Next position to read
+	 */
+	private final AtomicLong tail = new AtomicLong();
+	private final AtomicLong droppedBytes = new AtomicLong();
+	private volatile Thread waitingConsumer;
+	private volatile Thread waitingProducer;
+	private volatile boolean closed = false;
+	/**
+	 * Called by the producer after new bytes became readable. May be null
+	 */
+	private final Runnable dataListener;
+	
+	/**
+	 * @param capacity gets rounded up to the next power of two
+	 */
+	ByteRingBuffer(int capacity, OverflowPolicy policy) {
+		this(capacity, policy, null);
+	}
+	
+	/**
+	 * @param dataListener called by the producer after new bytes became readable
+	 */
+	ByteRingBuffer(int capacity, OverflowPolicy policy, Runnable dataListener) {
+		super();
+		if(capacity < 1 || capacity > 1 << 30) throw new RuntimeException("Invalid capacity: " + capacity);
+		int size = Integer.highestOneBit(capacity);
+		if(size < capacity) size <<= 1;
+		this.buffer = new byte[size];
+		this.mask = size - 1;
+		this.policy = policy;
+		this.dataListener = dataListener;
+	}
+	
+	/**
+	 * Producer side. Copies data[offset] to data[offset + length - 1] into the buffer
+	 */
+	void offer(byte[] data, int offset, int length) {
+		int written = 0;
+		while(written < length && !closed) {
+			long h = head.get();
+			long t = tail.get();
+			int free = buffer.length - (int) (h - t);
+			if(free == 0) {
+				switch(policy) {
+				case DROP_NEWEST:
+					droppedBytes.addAndGet(length - written);
+					return;
+				case DROP_OLDEST:
+					int drop = Math.min(length - written, (int) (h - t));
+					if(tail.compareAndSet(t, t + drop)) {
+						droppedBytes.addAndGet(drop);
+					}
+					continue;
+				case BLOCK:
+					waitingProducer = Thread.currentThread();
+					if(head.get() - tail.get() == buffer.length) {
+						LockSupport.parkNanos(this, PARK_NANOS);
+					}
+					waitingProducer = null;
+					continue;
+				}
+			}
+			int n = Math.min(free, length - written);
+			int index = (int) (h & mask);
+			int first = Math.min(n, buffer.length - index);
+			System.arraycopy(data, offset + written, buffer, index, first);
+			System.arraycopy(data, offset + written + first, buffer, 0, n - first);
+			/*
+			 * Volatile write, not lazySet: the read of waitingConsumer below must not move before it,
+			 * otherwise a consumer that checked isEmpty() in between parks without a wakeup
+			 */
+			head.set(h + n);
+			written += n;
+			Thread consumer = waitingConsumer;
+			if(consumer != null) {
+				LockSupport.unpark(consumer);
+			}
+			if(dataListener != null) {
+				dataListener.run();
+			}
+		}
+	}
+	
+	/**
+	 * Consumer side. Moves up to out.length bytes into out
+	 * @return number of bytes read
+	 */
+	int poll(byte[] out) {
+		while(true) {
+			long t = tail.get();
+			long h = head.get();
+			int n = (int) Math.min(h - t, out.length);
+			if(n == 0) return 0;
+			int index = (int) (t & mask);
+			int first = Math.min(n, buffer.length - index);
+			System.arraycopy(buffer, index, out, 0, first);
+			System.arraycopy(buffer, 0, out, first, n - first);
+			if(tail.compareAndSet(t, t + n)) {
+				Thread producer = waitingProducer;
+				if(producer != null) {
+					LockSupport.unpark(producer);
+				}
+				return n;
+			}
+			// the producer dropped bytes we were reading. try again
+		}
+	}
+	
+	/**
+	 * Consumer side. Parks until data is available, the buffer got closed or a short timeout elapsed.
+	 * Publishes waitingConsumer before checking head, the mirror image of {@link #offer(byte[], int, int)}
+	 */
+	void awaitData() {
+		waitingConsumer = Thread.currentThread();
+		if(isEmpty() && !closed) {
+			LockSupport.parkNanos(this, PARK_NANOS);
+		}
+		waitingConsumer = null;
+	}
+	
+	boolean isEmpty() {
+		return head.get() == tail.get();
+	}
+	
+	void close() {
+		closed = true;
+		Thread consumer = waitingConsumer;
+		if(consumer != null) LockSupport.unpark(consumer);
+		Thread producer = waitingProducer;
+		if(producer != null) LockSupport.unpark(producer);
+	}
+	
+	boolean isClosed() {
+		return closed;
+	}
+	
+	int capacity() {
+		return buffer.length;
+	}
+	
+	long getDroppedBytes() {
+		return droppedBytes.get();
+	}
+}
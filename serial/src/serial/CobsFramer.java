@@ -0,0 +1,73 @@
+package serial;
+
+import java.util.Arrays;
+
+/**
+ * Consistent Overhead Byte Stuffing. Frames end with 0 and contain no other 0 bytes,
+ * every 0 of the payload is replaced by the distance to the next one. Decoded while scanning
+ */
+public class CobsFramer extends BufferedFramer {
+	
+	/**
+	 * Bytes until the next code byte, 0 at the start of a frame
+	 */
+	private int remaining = 0;
+	private boolean zeroPending = false;
+	private boolean started = false;
+
+	@Override
+	public void feed(byte[] data, int offset, int length, SerialFrameListener sink) {
+		int end = offset + length;
+		for (int i = offset; i < end; i++) {
+			byte b = data[i];
+			if(b == 0) {
+				complete(sink);
+				remaining = 0;
+				started = false;
+			} else if(remaining > 0) {
+				append(b, sink);
+				remaining--;
+			} else { // code byte
+				if(started && zeroPending) append((byte) 0, sink);
+				started = true;
+				int code = b & 0xff;
+				remaining = code - 1;
+				zeroPending = code != 0xff;
+			}
+		}
+	}
+	
+	/**
+	 * @return the encoded payload including the terminating 0
+	 */
+	public static byte[] encode(byte[] data, int offset, int length) {
+		byte[] out = new byte[length + length / 254 + 2];
+		int codePos = 0;
+		int o = 1;
+		int code = 1;
+		for (int i = offset; i < offset + length; i++) {
+			if(data[i] == 0) {
+				out[codePos] = (byte) code;
+				codePos = o++;
+				code = 1;
+			} else {
+				out[o++] = data[i];
+				if(++code == 0xff) {
+					out[codePos] = (byte) code;
+					codePos = o++;
+					code = 1;
+				}
+			}
+		}
+		out[codePos] = (byte) code;
+		out[o++] = 0;
+		return Arrays.copyOf(out, o);
+	}
+	
+	@Override
+	public void reset() {
+		super.reset();
+		remaining = 0;
+		started = false;
+	}
+}
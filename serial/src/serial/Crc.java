@@ -0,0 +1,74 @@
+package serial;
+
+/**
+ * Table driven CRCs processing four bytes per step (slicing by 4).
+ * CRC-8 uses polynomial 0x07, CRC-16 is CRC-16/CCITT-FALSE (polynomial 0x1021, init 0xFFFF).
+ * Both are MSB first without reflection, matching the usual AVR implementations
+ */
+class Crc {
+	
+	private static final int[][] CRC8 = new int[4][256];
+	private static final int[][] CRC16 = new int[4][256];
+	
+	static {
+		for (int i = 0; i < 256; i++) {
+			int crc = i;
+			for (int bit = 0; bit < 8; bit++) {
+				crc = (crc & 0x80) != 0 ? (crc << 1) ^ 0x07 : crc << 1;
+			}
+			CRC8[0][i] = crc & 0xff;
+			crc = i << 8;
+			for (int bit = 0; bit < 8; bit++) {
+				crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+			}
+			CRC16[0][i] = crc & 0xffff;
+		}
+		/**
+		 * Table k holds the CRC of a byte followed by k zero bytes
+		 */
+		for (int k = 1; k < 4; k++) {
+			for (int i = 0; i < 256; i++) {
+				CRC8[k][i] = CRC8[0][CRC8[k - 1][i]];
+				int prev = CRC16[k - 1][i];
+				CRC16[k][i] = ((prev << 8) ^ CRC16[0][prev >> 8]) & 0xffff;
+			}
+		}
+	}
+	
+	private Crc() {
+	}
+
+	static int crc8(int crc, byte b) {
+		return CRC8[0][(crc ^ b) & 0xff];
+	}
+	
+	static int crc8(int crc, byte[] data, int offset, int length) {
+		int i = offset;
+		int end = offset + length;
+		int[] t0 = CRC8[0], t1 = CRC8[1], t2 = CRC8[2], t3 = CRC8[3];
+		for (; i + 4 <= end; i += 4) {
+			crc = t3[(crc ^ data[i]) & 0xff] ^ t2[data[i + 1] & 0xff] ^ t1[data[i + 2] & 0xff] ^ t0[data[i + 3] & 0xff];
+		}
+		for (; i < end; i++) {
+			crc = t0[(crc ^ data[i]) & 0xff];
+		}
+		return crc;
+	}
+	
+	static int crc16(int crc, byte b) {
+		return ((crc << 8) ^ CRC16[0][((crc >> 8) ^ b) & 0xff]) & 0xffff;
+	}
+	
+	static int crc16(int crc, byte[] data, int offset, int length) {
+		int i = offset;
+		int end = offset + length;
+		int[] t0 = CRC16[0], t1 = CRC16[1], t2 = CRC16[2], t3 = CRC16[3];
+		for (; i + 4 <= end; i += 4) {
+			crc = t3[((crc >> 8) ^ data[i]) & 0xff] ^ t2[(crc ^ data[i + 1]) & 0xff] ^ t1[data[i + 2] & 0xff] ^ t0[data[i + 3] & 0xff];
+		}
+		for (; i < end; i++) {
+			crc = ((crc << 8) ^ CRC16[0][((crc >> 8) ^ data[i]) & 0xff]) & 0xffff;
+		}
+		return crc;
+	}
+}
@@ -0,0 +1,80 @@
+package serial;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Ends a frame at any of a set of single byte delimiters, like the line endings of text mode.
+ * Delimiters are looked up in a 256 entry table. With a single delimiter eight bytes get tested at once
+ * by reading them as one long (SWAR), which is what makes scanning for '\n' cheap.
+ */
+public class DelimiterFramer extends BufferedFramer {
+	
+	private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+	private static final long ONES = 0x0101010101010101L;
+	private static final long HIGHS = 0x8080808080808080L;
+
+	private final boolean[] delimiters = new boolean[256];
+	private final byte[] delimiterBytes;
+	private final boolean single;
+	/**
+	 * The single delimiter repeated in every byte
+	 */
+	private final long pattern;
+	
+	public DelimiterFramer(byte... delimiters) {
+		super();
+		if(delimiters.length == 0) throw new RuntimeException("No delimiter");
+		this.delimiterBytes = delimiters.clone();
+		for (byte d : delimiters) {
+			this.delimiters[d & 0xff] = true;
+		}
+		single = delimiters.length == 1;
+		pattern = (delimiters[0] & 0xffL) * ONES;
+	}
+
+	@Override
+	public void feed(byte[] data, int offset, int length, SerialFrameListener sink) {
+		int end = offset + length;
+		int start = offset;
+		int i = offset;
+		while(true) {
+			i = single ? indexOf(data, i, end) : indexOfAny(data, i, end);
+			if(i == end) break;
+			complete(data, start, i - start, sink);
+			start = ++i;
+		}
+		if(start < end) {
+			append(data, start, end - start, sink);
+		}
+	}
+	
+	private int indexOfAny(byte[] data, int from, int end) {
+		boolean[] table = delimiters;
+		for (int i = from; i < end; i++) {
+			if(table[data[i] & 0xff]) return i;
+		}
+		return end;
+	}
+	
+	private int indexOf(byte[] data, int from, int end) {
+		int i = from;
+		for (; i + 8 <= end; i += 8) {
+			long x = (long) LONGS.get(data, i) ^ pattern;
+			long found = (x - ONES) & ~x & HIGHS; // high bit set in the first byte that equals the delimiter
+			if(found != 0) {
+				return i + (Long.numberOfTrailingZeros(found) >>> 3);
+			}
+		}
+		byte d = delimiterBytes[0];
+		for (; i < end; i++) {
+			if(data[i] == d) return i;
+		}
+		return end;
+	}
+	
+	public byte[] getDelimiters() {
+		return delimiterBytes.clone();
+	}
+}
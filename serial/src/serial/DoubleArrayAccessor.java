@@ -0,0 +1,77 @@
+package serial;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Accessor of Float, Double, Half, Fixed16 and Fixed32 fields with qty > 1. Holds the codec of the wire type in a final field
+ * and leaves binding the calls to that codec to the JIT
+ */
+public final class DoubleArrayAccessor extends FieldAccessor {
+
+	private final FieldCodec codec;
+
+	DoubleArrayAccessor(ArduinoField field) {
+		super(field);
+		codec = field.codec;
+	}
+	
+	/**
+	 * Decodes all elements at b[offset] into dst
+	 */
+	private void decode(byte[] b, int offset, double[] dst) {
+		codec.decode(b, offset, dst, field.qty, field.scale);
+	}
+	
+	/**
+	 * Encodes n elements of src at b[0]
+	 */
+	private void encode(double[] src, int n, byte[] b) {
+		codec.encode(src, n, b, 0, field.scale);
+	}
+	
+	private void encode(float[] src, int n, byte[] b) {
+		codec.encode(src, n, b, 0, field.scale);
+	}
+	
+	/**
+	 * @return number of elements
+	 */
+	public int length() {
+		return field.qty;
+	}
+	
+	/**
+	 * @param values up to {@link #length()} values, missing ones get sent as 0
+	 */
+	public void set(double[] values) {
+		byte[] b = newValue();
+		encode(values, elements(values.length), b);
+		field.sendSet(b);
+	}
+	
+	public void set(float[] values) {
+		byte[] b = newValue();
+		encode(values, elements(values.length), b);
+		field.sendSet(b);
+	}
+	
+	/**
+	 * Copies the latest received value to dst
+	 * 
+	 * @return false if nothing has been received yet
+	 */
+	public boolean getLast(double[] dst) {
+		return field.readLast(v -> decode(v.buffer(), v.offset(), dst));
+	}
+	
+	/**
+	 * Requests the value once, failing with a {@link java.util.concurrent.TimeoutException} after {@link ArduinoSerialInterface#getRequestTimeout()}
+	 */
+	public CompletableFuture<double[]> getAsync() {
+		return field.getAsync(v -> {
+			double[] values = new double[field.qty];
+			decode(v.buffer(), v.offset(), values);
+			return values;
+		});
+	}
+}
@@ -0,0 +1,39 @@
+package serial;
+
+/**
+ * Typed access to one {@link ArduinoField}, created by a {@link FieldSchema} for the type and qty of the field.
+ * The type got checked once when the schema was registered, so the accessors read and write the value bytes
+ * directly instead of checking the type on every call and boxing values as Object
+ */
+public abstract class FieldAccessor {
+
+	protected final ArduinoField field;
+	
+	FieldAccessor(ArduinoField field) {
+		super();
+		this.field = field;
+	}
+	
+	public ArduinoField getField() {
+		return field;
+	}
+	
+	/**
+	 * @return true if a value has been received
+	 */
+	public boolean hasValue() {
+		return field.getLastReceivedNanos() >= 0;
+	}
+	
+	/**
+	 * @return new buffer for an encoded value
+	 */
+	byte[] newValue() {
+		return new byte[field.length];
+	}
+	
+	int elements(int arrayLength) {
+		if(arrayLength > field.qty) throw new RuntimeException("Can't set " + arrayLength + " values of a field with qty=" + field.qty);
+		return arrayLength;
+	}
+}
@@ -0,0 +1,579 @@
+package serial;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+import serial.ArduinoField.ArduinoType;
+
+/**
+ * Converts field values between Java and their wire format, big endian like the rest of the protocol.
+ * There is one codec per {@link ArduinoType} in a table indexed by the type, each with tight loops
+ * over byte array views for whole arrays so array transfers cost no per element ByteBuffer calls.
+ * Elements are addressed by index since packed bits share bytes.
+ */
+abstract class FieldCodec {
+	
+	static final VarHandle SHORT = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.BIG_ENDIAN);
+	static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+	static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+	static final VarHandle FLOAT = MethodHandles.byteArrayViewVarHandle(float[].class, ByteOrder.BIG_ENDIAN);
+	static final VarHandle DOUBLE = MethodHandles.byteArrayViewVarHandle(double[].class, ByteOrder.BIG_ENDIAN);
+	
+	private static final FieldCodec[] CODECS = new FieldCodec[ArduinoType.values().length];
+	
+	static {
+		CODECS[ArduinoType.Byte.ordinal()] = new ByteCodec();
+		CODECS[ArduinoType.Int.ordinal()] = new IntCodec();
+		CODECS[ArduinoType.Float.ordinal()] = new FloatCodec();
+		CODECS[ArduinoType.Short.ordinal()] = new ShortCodec();
+		CODECS[ArduinoType.Long.ordinal()] = new LongCodec();
+		CODECS[ArduinoType.Double.ordinal()] = new DoubleCodec();
+		CODECS[ArduinoType.Half.ordinal()] = new HalfCodec();
+		CODECS[ArduinoType.Bits.ordinal()] = new BitsCodec();
+		CODECS[ArduinoType.Fixed16.ordinal()] = new Fixed16Codec();
+		CODECS[ArduinoType.Fixed32.ordinal()] = new Fixed32Codec();
+	}
+	
+	static FieldCodec of(ArduinoType type) {
+		return CODECS[type.ordinal()];
+	}
+	
+	/**
+	 * Size of one element in bytes, 0 for packed bits
+	 */
+	final int elementSize;
+	
+	FieldCodec(int elementSize) {
+		this.elementSize = elementSize;
+	}
+	
+	/**
+	 * @return bytes of qty elements on the wire
+	 */
+	int length(int qty) {
+		return elementSize * qty;
+	}
+	
+	/**
+	 * Integer value of element i. Real types get rounded
+	 */
+	abstract long getLong(byte[] b, int offset, int i, double scale);
+	
+	abstract double getDouble(byte[] b, int offset, int i, double scale);
+	
+	abstract void putLong(byte[] b, int offset, int i, long value, double scale);
+	
+	abstract void putDouble(byte[] b, int offset, int i, double value, double scale);
+	
+	boolean getBoolean(byte[] b, int offset, int i, double scale) {
+		return getLong(b, offset, i, scale) != 0;
+	}
+	
+	void putBoolean(byte[] b, int offset, int i, boolean value, double scale) {
+		putLong(b, offset, i, value ? 1 : 0, scale);
+	}
+	
+	/**
+	 * @return element i as the boxed type of {@link ArduinoField#getAsync()}
+	 */
+	abstract Object box(byte[] b, int offset, int i, double scale);
+	
+	/**
+	 * Bulk conversions of n elements. Overridden with tight loops by the types they fit
+	 */
+	void decode(byte[] b, int offset, long[] dst, int n, double scale) {
+		for (int i = 0; i < n; i++) dst[i] = getLong(b, offset, i, scale);
+	}
+	
+	void decode(byte[] b, int offset, int[] dst, int n, double scale) {
+		for (int i = 0; i < n; i++) dst[i] = (int) getLong(b, offset, i, scale);
+	}
+	
+	void decode(byte[] b, int offset, double[] dst, int n, double scale) {
+		for (int i = 0; i < n; i++) dst[i] = getDouble(b, offset, i, scale);
+	}
+	
+	void decode(byte[] b, int offset, float[] dst, int n, double scale) {
+		for (int i = 0; i < n; i++) dst[i] = (float) getDouble(b, offset, i, scale);
+	}
+	
+	void decode(byte[] b, int offset, boolean[] dst, int n, double scale) {
+		for (int i = 0; i < n; i++) dst[i] = getBoolean(b, offset, i, scale);
+	}
+	
+	void encode(long[] src, int n, byte[] b, int offset, double scale) {
+		for (int i = 0; i < n; i++) putLong(b, offset, i, src[i], scale);
+	}
+	
+	void encode(int[] src, int n, byte[] b, int offset, double scale) {
+		for (int i = 0; i < n; i++) putLong(b, offset, i, src[i], scale);
+	}
+	
+	void encode(double[] src, int n, byte[] b, int offset, double scale) {
+		for (int i = 0; i < n; i++) putDouble(b, offset, i, src[i], scale);
+	}
+	
+	void encode(float[] src, int n, byte[] b, int offset, double scale) {
+		for (int i = 0; i < n; i++) putDouble(b, offset, i, src[i], scale);
+	}
+	
+	void encode(boolean[] src, int n, byte[] b, int offset, double scale) {
+		for (int i = 0; i < n; i++) putBoolean(b, offset, i, src[i], scale);
+	}
+	
+	/**
+	 * IEEE 754 half precision, round to nearest even. Not in the JDK before Java 20
+	 */
+	static short floatToHalf(float f) {
+		int bits = Float.floatToRawIntBits(f);
+		int sign = (bits >>> 16) & 0x8000;
+		int abs = bits & 0x7fffffff;
+		if(abs >= 0x7f800000) { // infinity or NaN, NaN stays NaN
+			return (short) (sign | 0x7c00 | (abs > 0x7f800000 ? 0x200 | (abs >>> 13 & 0x3ff) : 0));
+		}
+		if(abs >= 0x477ff000) { // rounds to 65520 or more
+			return (short) (sign | 0x7c00);
+		}
+		if(abs < 0x38800000) { // subnormal half, exact multiple of 2^-24 after rounding
+			return (short) (sign | (int) Math.rint(Float.intBitsToFloat(abs) * 0x1p24f));
+		}
+		int h = abs - 0x38000000; // exponent bias 127 to 15
+		h = (h + 0xfff + ((h >>> 13) & 1)) >>> 13;
+		return (short) (sign | h);
+	}
+	
+	static float halfToFloat(short half) {
+		int h = half & 0xffff;
+		int sign = (h & 0x8000) << 16;
+		int exp = (h >>> 10) & 0x1f;
+		int mantissa = h & 0x3ff;
+		if(exp == 0x1f) {
+			return Float.intBitsToFloat(sign | 0x7f800000 | mantissa << 13);
+		}
+		if(exp == 0) {
+			float value = mantissa * 0x1p-24f;
+			return sign != 0 ? -value : value;
+		}
+		return Float.intBitsToFloat(sign | (exp + 112) << 23 | mantissa << 13);
+	}
+	
+	static final class ByteCodec extends FieldCodec {
+		
+		ByteCodec() {
+			super(1);
+		}
+		
+		@Override
+		long getLong(byte[] b, int offset, int i, double scale) {
+			return b[offset + i];
+		}
+
+		@Override
+		double getDouble(byte[] b, int offset, int i, double scale) {
+			return b[offset + i];
+		}
+
+		@Override
+		void putLong(byte[] b, int offset, int i, long value, double scale) {
+			b[offset + i] = (byte) value;
+		}
+
+		@Override
+		void putDouble(byte[] b, int offset, int i, double value, double scale) {
+			b[offset + i] = (byte) Math.round(value);
+		}
+
+		@Override
+		Object box(byte[] b, int offset, int i, double scale) {
+			return b[offset + i];
+		}
+	}
+	
+	static final class ShortCodec extends FieldCodec {
+		
+		ShortCodec() {
+			super(2);
+		}
+
+		@Override
+		long getLong(byte[] b, int offset, int i, double scale) {
+			return (short) SHORT.get(b, offset + i * 2);
+		}
+
+		@Override
+		double getDouble(byte[] b, int offset, int i, double scale) {
+			return (short) SHORT.get(b, offset + i * 2);
+		}
+
+		@Override
+		void putLong(byte[] b, int offset, int i, long value, double scale) {
+			SHORT.set(b, offset + i * 2, (short) value);
+		}
+
+		@Override
+		void putDouble(byte[] b, int offset, int i, double value, double scale) {
+			SHORT.set(b, offset + i * 2, (short) Math.round(value));
+		}
+
+		@Override
+		Object box(byte[] b, int offset, int i, double scale) {
+			return (short) SHORT.get(b, offset + i * 2);
+		}
+	}
+	
+	static final class IntCodec extends FieldCodec {
+		
+		IntCodec() {
+			super(4);
+		}
+
+		@Override
+		long getLong(byte[] b, int offset, int i, double scale) {
+			return (int) INT.get(b, offset + i * 4);
+		}
+
+		@Override
+		double getDouble(byte[] b, int offset, int i, double scale) {
+			return (int) INT.get(b, offset + i * 4);
+		}
+
+		@Override
+		void putLong(byte[] b, int offset, int i, long value, double scale) {
+			INT.set(b, offset + i * 4, (int) value);
+		}
+
+		@Override
+		void putDouble(byte[] b, int offset, int i, double value, double scale) {
+			INT.set(b, offset + i * 4, (int) Math.round(value));
+		}
+
+		@Override
+		Object box(byte[] b, int offset, int i, double scale) {
+			return (int) INT.get(b, offset + i * 4);
+		}
+		
+		@Override
+		void decode(byte[] b, int offset, int[] dst, int n, double scale) {
+			for (int i = 0; i < n; i++) dst[i] = (int) INT.get(b, offset + i * 4);
+		}
+		
+		@Override
+		void encode(int[] src, int n, byte[] b, int offset, double scale) {
+			for (int i = 0; i < n; i++) INT.set(b, offset + i * 4, src[i]);
+		}
+	}
+	
+	static final class LongCodec extends FieldCodec {
+		
+		LongCodec() {
+			super(8);
+		}
+
+		@Override
+		long getLong(byte[] b, int offset, int i, double scale) {
+			return (long) LONG.get(b, offset + i * 8);
+		}
+
+		@Override
+		double getDouble(byte[] b, int offset, int i, double scale) {
+			return (long) LONG.get(b, offset + i * 8);
+		}
+
+		@Override
+		void putLong(byte[] b, int offset, int i, long value, double scale) {
+			LONG.set(b, offset + i * 8, value);
+		}
+
+		@Override
+		void putDouble(byte[] b, int offset, int i, double value, double scale) {
+			LONG.set(b, offset + i * 8, Math.round(value));
+		}
+
+		@Override
+		Object box(byte[] b, int offset, int i, double scale) {
+			return (long) LONG.get(b, offset + i * 8);
+		}
+		
+		@Override
+		void decode(byte[] b, int offset, long[] dst, int n, double scale) {
+			for (int i = 0; i < n; i++) dst[i] = (long) LONG.get(b, offset + i * 8);
+		}
+		
+		@Override
+		void encode(long[] src, int n, byte[] b, int offset, double scale) {
+			for (int i = 0; i < n; i++) LONG.set(b, offset + i * 8, src[i]);
+		}
+	}
+	
+	static final class FloatCodec extends FieldCodec {
+		
+		FloatCodec() {
+			super(4);
+		}
+
+		@Override
+		long getLong(byte[] b, int offset, int i, double scale) {
+			return Math.round((float) FLOAT.get(b, offset + i * 4));
+		}
+
+		@Override
+		double getDouble(byte[] b, int offset, int i, double scale) {
+			return (float) FLOAT.get(b, offset + i * 4);
+		}
+
+		@Override
+		void putLong(byte[] b, int offset, int i, long value, double scale) {
+			FLOAT.set(b, offset + i * 4, (float) value);
+		}
+
+		@Override
+		void putDouble(byte[] b, int offset, int i, double value, double scale) {
+			FLOAT.set(b, offset + i * 4, (float) value);
+		}
+
+		@Override
+		Object box(byte[] b, int offset, int i, double scale) {
+			return (float) FLOAT.get(b, offset + i * 4);
+		}
+		
+		@Override
+		void decode(byte[] b, int offset, float[] dst, int n, double scale) {
+			for (int i = 0; i < n; i++) dst[i] = (float) FLOAT.get(b, offset + i * 4);
+		}
+		
+		@Override
+		void encode(float[] src, int n, byte[] b, int offset, double scale) {
+			for (int i = 0; i < n; i++) FLOAT.set(b, offset + i * 4, src[i]);
+		}
+	}
+	
+	static final class DoubleCodec extends FieldCodec {
+		
+		DoubleCodec() {
+			super(8);
+		}
+
+		@Override
+		long getLong(byte[] b, int offset, int i, double scale) {
+			return Math.round((double) DOUBLE.get(b, offset + i * 8));
+		}
+
+		@Override
+		double getDouble(byte[] b, int offset, int i, double scale) {
+			return (double) DOUBLE.get(b, offset + i * 8);
+		}
+
+		@Override
+		void putLong(byte[] b, int offset, int i, long value, double scale) {
+			DOUBLE.set(b, offset + i * 8, (double) value);
+		}
+
+		@Override
+		void putDouble(byte[] b, int offset, int i, double value, double scale) {
+			DOUBLE.set(b, offset + i * 8, value);
+		}
+
+		@Override
+		Object box(byte[] b, int offset, int i, double scale) {
+			return (double) DOUBLE.get(b, offset + i * 8);
+		}
+		
+		@Override
+		void decode(byte[] b, int offset, double[] dst, int n, double scale) {
+			for (int i = 0; i < n; i++) dst[i] = (double) DOUBLE.get(b, offset + i * 8);
+		}
+		
+		@Override
+		void encode(double[] src, int n, byte[] b, int offset, double scale) {
+			for (int i = 0; i < n; i++) DOUBLE.set(b, offset + i * 8, src[i]);
+		}
+	}
+	
+	static final class HalfCodec extends FieldCodec {
+		
+		HalfCodec() {
+			super(2);
+		}
+
+		@Override
+		long getLong(byte[] b, int offset, int i, double scale) {
+			return Math.round(getDouble(b, offset, i, scale));
+		}
+
+		@Override
+		double getDouble(byte[] b, int offset, int i, double scale) {
+			return halfToFloat((short) SHORT.get(b, offset + i * 2));
+		}
+
+		@Override
+		void putLong(byte[] b, int offset, int i, long value, double scale) {
+			SHORT.set(b, offset + i * 2, floatToHalf(value));
+		}
+
+		@Override
+		void putDouble(byte[] b, int offset, int i, double value, double scale) {
+			SHORT.set(b, offset + i * 2, floatToHalf((float) value));
+		}
+
+		@Override
+		Object box(byte[] b, int offset, int i, double scale) {
+			return halfToFloat((short) SHORT.get(b, offset + i * 2));
+		}
+		
+		@Override
+		void decode(byte[] b, int offset, float[] dst, int n, double scale) {
+			for (int i = 0; i < n; i++) dst[i] = halfToFloat((short) SHORT.get(b, offset + i * 2));
+		}
+		
+		@Override
+		void encode(float[] src, int n, byte[] b, int offset, double scale) {
+			for (int i = 0; i < n; i++) SHORT.set(b, offset + i * 2, floatToHalf(src[i]));
+		}
+	}
+	
+	/**
+	 * Booleans packed 8 per byte, element i is bit i % 8 of byte i / 8
+	 */
+	static final class BitsCodec extends FieldCodec {
+		
+		BitsCodec() {
+			super(0);
+		}
+		
+		@Override
+		int length(int qty) {
+			return (qty + 7) / 8;
+		}
+		
+		@Override
+		boolean getBoolean(byte[] b, int offset, int i, double scale) {
+			return (b[offset + (i >>> 3)] & (1 << (i & 7))) != 0;
+		}
+		
+		@Override
+		void putBoolean(byte[] b, int offset, int i, boolean value, double scale) {
+			int index = offset + (i >>> 3);
+			b[index] = (byte) (value ? b[index] | (1 << (i & 7)) : b[index] & ~(1 << (i & 7)));
+		}
+
+		@Override
+		long getLong(byte[] b, int offset, int i, double scale) {
+			return getBoolean(b, offset, i, scale) ? 1 : 0;
+		}
+
+		@Override
+		double getDouble(byte[] b, int offset, int i, double scale) {
+			return getBoolean(b, offset, i, scale) ? 1 : 0;
+		}
+
+		@Override
+		void putLong(byte[] b, int offset, int i, long value, double scale) {
+			putBoolean(b, offset, i, value != 0, scale);
+		}
+
+		@Override
+		void putDouble(byte[] b, int offset, int i, double value, double scale) {
+			putBoolean(b, offset, i, value != 0, scale);
+		}
+
+		@Override
+		Object box(byte[] b, int offset, int i, double scale) {
+			return getBoolean(b, offset, i, scale);
+		}
+		
+		@Override
+		void decode(byte[] b, int offset, boolean[] dst, int n, double scale) {
+			for (int i = 0; i < n; i++) dst[i] = (b[offset + (i >>> 3)] & (1 << (i & 7))) != 0;
+		}
+		
+		@Override
+		void encode(boolean[] src, int n, byte[] b, int offset, double scale) {
+			for (int i = 0; i < n; i += 8) {
+				int bits = 0;
+				int end = Math.min(8, n - i);
+				for (int bit = 0; bit < end; bit++) {
+					if(src[i + bit]) bits |= 1 << bit;
+				}
+				b[offset + (i >>> 3)] = (byte) bits;
+			}
+		}
+	}
+	
+	/**
+	 * Fixed point, the value is the raw integer times the scale of the field
+	 */
+	static final class Fixed16Codec extends FieldCodec {
+		
+		Fixed16Codec() {
+			super(2);
+		}
+
+		@Override
+		long getLong(byte[] b, int offset, int i, double scale) {
+			return Math.round(getDouble(b, offset, i, scale));
+		}
+
+		@Override
+		double getDouble(byte[] b, int offset, int i, double scale) {
+			return (short) SHORT.get(b, offset + i * 2) * scale;
+		}
+
+		@Override
+		void putLong(byte[] b, int offset, int i, long value, double scale) {
+			putDouble(b, offset, i, value, scale);
+		}
+
+		@Override
+		void putDouble(byte[] b, int offset, int i, double value, double scale) {
+			SHORT.set(b, offset + i * 2, (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(value / scale))));
+		}
+
+		@Override
+		Object box(byte[] b, int offset, int i, double scale) {
+			return getDouble(b, offset, i, scale);
+		}
+		
+		@Override
+		void decode(byte[] b, int offset, double[] dst, int n, double scale) {
+			for (int i = 0; i < n; i++) dst[i] = (short) SHORT.get(b, offset + i * 2) * scale;
+		}
+	}
+	
+	static final class Fixed32Codec extends FieldCodec {
+		
+		Fixed32Codec() {
+			super(4);
+		}
+
+		@Override
+		long getLong(byte[] b, int offset, int i, double scale) {
+			return Math.round(getDouble(b, offset, i, scale));
+		}
+
+		@Override
+		double getDouble(byte[] b, int offset, int i, double scale) {
+			return (int) INT.get(b, offset + i * 4) * scale;
+		}
+
+		@Override
+		void putLong(byte[] b, int offset, int i, long value, double scale) {
+			putDouble(b, offset, i, value, scale);
+		}
+
+		@Override
+		void putDouble(byte[] b, int offset, int i, double value, double scale) {
+			INT.set(b, offset + i * 4, (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, Math.round(value / scale))));
+		}
+
+		@Override
+		Object box(byte[] b, int offset, int i, double scale) {
+			return getDouble(b, offset, i, scale);
+		}
+		
+		@Override
+		void decode(byte[] b, int offset, double[] dst, int n, double scale) {
+			for (int i = 0; i < n; i++) dst[i] = (int) INT.get(b, offset + i * 4) * scale;
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package serial;
+
+import java.util.Arrays;
+
+/**
+ * Unpacks GROUP frames written by a {@link FieldGroupEncoder} and keeps the previous values delta frames refer to
+ */
+class FieldGroupDecoder {
+	
+	@FunctionalInterface
+	interface ValueSink {
+		
+		/**
+		 * @param value buffer holding the value at index 0. Gets reused after this call
+		 */
+		void value(int id, byte[] value, int length);
+	}
+
+	private final byte[][] references = new byte[256][];
+	private final int[] referenceGeneration = new int[256];
+	private int generation = 1;
+	private int lastSeq = 0;
+	/**
+	 * True if every frame since the last key frame arrived
+	 */
+	private boolean chained = false;
+	
+	/**
+	 * Drops delta frames until the next key frame
+	 */
+	void reset() {
+		chained = false;
+	}
+	
+	/**
+	 * @return false if the frame got dropped because a frame before it was lost or it was malformed
+	 */
+	boolean decode(int flags, int seq, byte[] payload, int length, ValueSink sink) {
+		boolean delta = (flags & FieldGroupEncoder.FLAG_DELTA) != 0;
+		if(delta && (!chained || seq != ((lastSeq + 1) & 0xff))) {
+			chained = false;
+			return false;
+		}
+		if(!delta) {
+			generation++;
+			chained = true;
+		}
+		lastSeq = seq;
+		int pos = 0;
+		while(pos < length) {
+			if(pos + (delta ? 3 : 2) > length) break;
+			int id = payload[pos] & 0xff;
+			int size = payload[pos + 1] & 0xff;
+			pos += 2;
+			byte[] reference = reference(id, size);
+			if(!delta) {
+				if(pos + size > length) break;
+				System.arraycopy(payload, pos, reference, 0, size);
+				pos += size;
+			} else {
+				int encoded = payload[pos++] & 0xff;
+				if(encoded == FieldGroupEncoder.LITERAL) {
+					if(pos + size > length) break;
+					System.arraycopy(payload, pos, reference, 0, size);
+					pos += size;
+				} else {
+					if(pos + encoded > length || !applyDelta(payload, pos, encoded, reference)) break;
+					pos += encoded;
+				}
+			}
+			referenceGeneration[id] = generation;
+			sink.value(id, reference, size);
+		}
+		if(pos != length) { // the previous values can't be trusted anymore
+			chained = false;
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * @return the previous value of the field, zeros if it has none since the last key frame
+	 */
+	private byte[] reference(int id, int size) {
+		byte[] reference = references[id];
+		if(reference == null || reference.length != size) {
+			reference = references[id] = new byte[size];
+		} else if(referenceGeneration[id] != generation) {
+			Arrays.fill(reference, (byte) 0);
+		}
+		return reference;
+	}
+	
+	/**
+	 * Xors the delta runs into the previous value
+	 */
+	private static boolean applyDelta(byte[] src, int offset, int length, byte[] value) {
+		int pos = offset;
+		int end = offset + length;
+		int i = 0;
+		while(pos < end) {
+			int zeros = src[pos++] & 0xff;
+			if(zeros >= 0x80) {
+				if(pos >= end) return false;
+				zeros = (zeros & 0x7f) | (src[pos++] & 0xff) << 7;
+			}
+			if(pos >= end) return false;
+			int count = src[pos++] & 0xff;
+			if(count >= 0x80) {
+				if(pos >= end) return false;
+				count = (count & 0x7f) | (src[pos++] & 0xff) << 7;
+			}
+			i += zeros;
+			if(i + count > value.length || pos + count > end) return false;
+			for (int j = 0; j < count; j++) {
+				value[i++] ^= src[pos++];
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,219 @@
+package serial;
+
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Packs the values of several fields into GROUP frames. Used by both ends of a link, each direction has its own encoder.
+ * 
+ * <GROUP> ::= M <Flags> <Seq> <Size> <Entry>* <Checksum>
+ * Key frames (Flags 0) hold <ID> <Size> <Value> entries and restart the link state.
+ * Delta frames (Flags 1) hold <ID> <Size> <Length> <Delta> entries. The delta is the value xor the previous value
+ * of the field since the last key frame, or zeros, as runs of <Zeros> <Count> <Count bytes> with varint counts.
+ * Trailing zeros are left out, so an unchanged value takes 3 bytes. A Length of 255 means the value follows as is.
+ * Delta frames only apply if the receiver got every frame since the key frame, checked by the Seq byte,
+ * so a key frame gets sent every {@link #setKeyInterval(int)} frames to resync after a lost frame
+ */
+class FieldGroupEncoder {
+
+	static final int FLAG_DELTA = 1;
+	static final int MAX_PAYLOAD = 255;
+	static final int HEADER = 4;
+	/**
+	 * Delta length that marks a value sent as is
+	 */
+	static final int LITERAL = 0xff;
+	
+	/**
+	 * Last value of every field on the link, valid if sent since the key frame of referenceGeneration
+	 */
+	private final byte[][] references = new byte[256][];
+	private final int[] referenceGeneration = new int[256];
+	private int generation = 1;
+	private int seq = 0;
+	private int framesSinceKey = 0;
+	private boolean keyNeeded = true;
+	private int keyInterval = 16;
+	/**
+	 * Values waiting for the next flush in the order they were added. A field added twice keeps its place
+	 */
+	private final byte[][] pending = new byte[256][];
+	private final int[] order = new int[256];
+	private int count = 0;
+	private final byte[] frame = new byte[HEADER + MAX_PAYLOAD + 2];
+	
+	/**
+	 * @return true if a value of length bytes fits in a GROUP frame
+	 */
+	static boolean fits(int length) {
+		return length <= MAX_PAYLOAD - 3;
+	}
+	
+	/**
+	 * @param value encoded value, must not change until the next flush
+	 */
+	void add(int id, byte[] value) {
+		if(pending[id] == null) {
+			order[count++] = id;
+		}
+		pending[id] = value;
+	}
+	
+	/**
+	 * Drops the pending value of a field
+	 */
+	void remove(int id) {
+		if(pending[id] == null) return;
+		pending[id] = null;
+		int j = 0;
+		for (int i = 0; i < count; i++) {
+			if(order[i] != id) order[j++] = order[i];
+		}
+		count = j;
+	}
+	
+	boolean isEmpty() {
+		return count == 0;
+	}
+	
+	/**
+	 * The next frame is a key frame. Both ends reset when the grouping gets negotiated
+	 */
+	void reset() {
+		keyNeeded = true;
+	}
+	
+	void setKeyInterval(int keyInterval) {
+		this.keyInterval = keyInterval;
+	}
+	
+	/**
+	 * Encodes all pending values into as few frames as possible
+	 * 
+	 * @param sink gets each frame and its length. The frame buffer gets reused
+	 */
+	void flush(boolean compress, FrameIntegrity integrity, ObjIntConsumer<byte[]> sink) {
+		boolean delta = compress && !keyNeeded && framesSinceKey < keyInterval;
+		if(!delta) {
+			generation++; // a key frame forgets all previous values
+		}
+		int size = 0;
+		for (int i = 0; i < count; i++) {
+			int id = order[i];
+			byte[] value = pending[id];
+			pending[id] = null;
+			int length = value.length;
+			if(size + length + (delta ? 3 : 2) > MAX_PAYLOAD) {
+				emit(delta, size, integrity, sink);
+				delta = compress;
+				size = 0;
+			}
+			int pos = HEADER + size;
+			frame[pos] = (byte) id;
+			frame[pos + 1] = (byte) length;
+			if(delta) {
+				byte[] reference = reference(id, length);
+				int encoded = encodeDelta(value, reference, frame, pos + 3, Math.min(length, LITERAL) - 1);
+				if(encoded < 0) {
+					frame[pos + 2] = (byte) LITERAL;
+					System.arraycopy(value, 0, frame, pos + 3, length);
+					size += 3 + length;
+				} else {
+					frame[pos + 2] = (byte) encoded;
+					size += 3 + encoded;
+				}
+			} else {
+				System.arraycopy(value, 0, frame, pos + 2, length);
+				size += 2 + length;
+			}
+			if(compress) {
+				remember(id, value);
+			}
+		}
+		count = 0;
+		if(size > 0) {
+			emit(delta, size, integrity, sink);
+		}
+	}
+	
+	private void emit(boolean delta, int size, FrameIntegrity integrity, ObjIntConsumer<byte[]> sink) {
+		if(delta) {
+			framesSinceKey++;
+		} else {
+			framesSinceKey = 0;
+			keyNeeded = false;
+		}
+		int body = HEADER + size;
+		frame[0] = 'M';
+		frame[1] = (byte) (delta ? FLAG_DELTA : 0);
+		frame[2] = (byte) seq++;
+		frame[3] = (byte) size;
+		integrity.write(integrity.compute(frame, 0, body), frame, body);
+		sink.accept(frame, body + integrity.length());
+	}
+	
+	private void remember(int id, byte[] value) {
+		byte[] reference = references[id];
+		if(reference == null || reference.length != value.length) {
+			reference = references[id] = new byte[value.length];
+		}
+		System.arraycopy(value, 0, reference, 0, value.length);
+		referenceGeneration[id] = generation;
+	}
+	
+	/**
+	 * @return the previous value of the field or null if it has none since the last key frame
+	 */
+	private byte[] reference(int id, int length) {
+		byte[] reference = references[id];
+		return reference != null && reference.length == length && referenceGeneration[id] == generation ? reference : null;
+	}
+	
+	/**
+	 * @param reference previous value or null for zeros
+	 * @return bytes written or -1 if the delta would take more than limit bytes
+	 */
+	static int encodeDelta(byte[] value, byte[] reference, byte[] dst, int offset, int limit) {
+		int length = value.length;
+		int pos = offset;
+		int end = offset + limit;
+		int i = 0;
+		while(i < length) {
+			int zerosStart = i;
+			while(i < length && xor(value, reference, i) == 0) i++;
+			if(i == length) break; // trailing zeros are implicit
+			int zeros = i - zerosStart;
+			int start = i;
+			// a single unchanged byte is cheaper inside the run than as a new run
+			while(i < length && (xor(value, reference, i) != 0 || i + 1 < length && xor(value, reference, i + 1) != 0)) i++;
+			int count = i - start;
+			if(pos + varintLength(zeros) + varintLength(count) + count > end) return -1;
+			pos = writeVarint(zeros, dst, pos);
+			pos = writeVarint(count, dst, pos);
+			for (int j = start; j < i; j++) {
+				dst[pos++] = xor(value, reference, j);
+			}
+		}
+		return pos - offset;
+	}
+	
+	private static byte xor(byte[] value, byte[] reference, int i) {
+		return reference == null ? value[i] : (byte) (value[i] ^ reference[i]);
+	}
+	
+	static int varintLength(int value) {
+		return value < 0x80 ? 1 : 2;
+	}
+	
+	/**
+	 * 7 bits per byte, least significant first. Counts are below 2^14
+	 */
+	static int writeVarint(int value, byte[] dst, int pos) {
+		if(value < 0x80) {
+			dst[pos++] = (byte) value;
+		} else {
+			dst[pos++] = (byte) (value | 0x80);
+			dst[pos++] = (byte) (value >>> 7);
+		}
+		return pos;
+	}
+}
@@ -0,0 +1,230 @@
+package serial;
+
+/**
+ * Fixed capacity ring of the latest received values of one {@link ArduinoField}, for charts and dashboards.
+ * Timestamps and values live in primitive arrays allocated once, so recording allocates nothing and the memory use is
+ * capacity * (8 + 8 * qty) bytes no matter how long it runs. Values get stored as double, every element of array fields.
+ * Queries run over the ring in place while holding its lock, so keep the consumers short.
+ * Samples are indexed from the oldest (0) to the newest (size - 1), timestamps are {@link System#nanoTime()}
+ * 
+ * 	FieldHistory history = field.enableHistory(10_000);
+ * 	history.downsample(from, to, 0, min, max, mean);
+ */
+public class FieldHistory {
+	
+	@FunctionalInterface
+	public interface SampleConsumer {
+		
+		public void accept(long nanos, double value);
+	}
+
+	private final int capacity;
+	/**
+	 * Elements per sample
+	 */
+	private final int width;
+	private final long[] timestamps;
+	private final double[] values;
+	/**
+	 * Slot of the next sample
+	 */
+	private int next = 0;
+	private int size = 0;
+	private long recorded = 0;
+	
+	FieldHistory(int capacity, int width) {
+		super();
+		if(capacity < 1) throw new RuntimeException("Capacity cant be < 1");
+		this.capacity = capacity;
+		this.width = width;
+		this.timestamps = new long[capacity];
+		this.values = new double[capacity * width];
+	}
+	
+	synchronized void record(long nanos, FieldValue value) {
+		timestamps[next] = nanos;
+		int base = next * width;
+		for (int e = 0; e < width; e++) {
+			values[base + e] = value.getDouble(e);
+		}
+		next = next + 1 == capacity ? 0 : next + 1;
+		if(size < capacity) size++;
+		recorded++;
+	}
+	
+	public int getCapacity() {
+		return capacity;
+	}
+	
+	/**
+	 * @return elements per sample, the qty of the field
+	 */
+	public int getWidth() {
+		return width;
+	}
+	
+	/**
+	 * @return number of samples held
+	 */
+	public synchronized int size() {
+		return size;
+	}
+	
+	/**
+	 * @return number of samples recorded, including the ones already overwritten
+	 */
+	public synchronized long getRecorded() {
+		return recorded;
+	}
+	
+	public synchronized void clear() {
+		size = 0;
+		next = 0;
+	}
+	
+	public synchronized long getTimestamp(int index) {
+		return timestamps[slot(index)];
+	}
+	
+	public synchronized double getValue(int index, int element) {
+		checkElement(element);
+		return values[slot(index) * width + element];
+	}
+	
+	/**
+	 * Passes the samples with from <= timestamp < to, oldest first
+	 * 
+	 * @return number of samples passed
+	 */
+	public synchronized int range(long fromNanos, long toNanos, int element, SampleConsumer consumer) {
+		checkElement(element);
+		int n = 0;
+		for (int i = lowerBound(fromNanos); i < size; i++) {
+			int slot = physical(i);
+			if(timestamps[slot] - toNanos >= 0) break;
+			consumer.accept(timestamps[slot], values[slot * width + element]);
+			n++;
+		}
+		return n;
+	}
+	
+	/**
+	 * Passes the latest n samples, oldest first
+	 * 
+	 * @return number of samples passed, less than n if fewer are held
+	 */
+	public synchronized int last(int n, int element, SampleConsumer consumer) {
+		checkElement(element);
+		n = Math.min(n, size);
+		for (int i = size - n; i < size; i++) {
+			int slot = physical(i);
+			consumer.accept(timestamps[slot], values[slot * width + element]);
+		}
+		return n;
+	}
+	
+	/**
+	 * Copies the latest samples into the arrays of the caller, oldest first, as many as fit
+	 * 
+	 * @return number of samples copied
+	 */
+	public synchronized int last(int element, long[] nanos, double[] dst) {
+		checkElement(element);
+		int n = Math.min(Math.min(nanos.length, dst.length), size);
+		for (int i = 0; i < n; i++) {
+			int slot = physical(size - n + i);
+			nanos[i] = timestamps[slot];
+			dst[i] = values[slot * width + element];
+		}
+		return n;
+	}
+	
+	/**
+	 * Splits from <= timestamp < to into min.length equal buckets and computes min, max and mean of each
+	 * in one pass over the samples. Buckets without samples get NaN
+	 * 
+	 * @param min min of each bucket, its length is the number of buckets
+	 * @param max max of each bucket, null to skip
+	 * @param mean mean of each bucket, null to skip
+	 * @return number of samples in the range
+	 */
+	public synchronized int downsample(long fromNanos, long toNanos, int element, double[] min, double[] max, double[] mean) {
+		checkElement(element);
+		if(toNanos - fromNanos <= 0) throw new RuntimeException("Empty range");
+		int buckets = min.length;
+		if(max != null && max.length < buckets || mean != null && mean.length < buckets) {
+			throw new RuntimeException("Result arrays need " + buckets + " buckets");
+		}
+		double span = toNanos - fromNanos;
+		int bucket = -1;
+		int count = 0;
+		double bucketMin = 0, bucketMax = 0, sum = 0;
+		int n = 0;
+		for (int b = 0; b < buckets; b++) {
+			min[b] = Double.NaN;
+			if(max != null) max[b] = Double.NaN;
+			if(mean != null) mean[b] = Double.NaN;
+		}
+		for (int i = lowerBound(fromNanos); i < size; i++) {
+			int slot = physical(i);
+			long t = timestamps[slot];
+			if(t - toNanos >= 0) break;
+			int b = Math.min(buckets - 1, (int) ((t - fromNanos) / span * buckets));
+			if(b != bucket) {
+				if(count > 0) {
+					store(bucket, count, bucketMin, bucketMax, sum, min, max, mean);
+				}
+				bucket = b;
+				count = 0;
+				sum = 0;
+			}
+			double v = values[slot * width + element];
+			if(count == 0 || v < bucketMin) bucketMin = v;
+			if(count == 0 || v > bucketMax) bucketMax = v;
+			sum += v;
+			count++;
+			n++;
+		}
+		if(count > 0) {
+			store(bucket, count, bucketMin, bucketMax, sum, min, max, mean);
+		}
+		return n;
+	}
+	
+	private static void store(int bucket, int count, double bucketMin, double bucketMax, double sum, double[] min, double[] max, double[] mean) {
+		min[bucket] = bucketMin;
+		if(max != null) max[bucket] = bucketMax;
+		if(mean != null) mean[bucket] = sum / count;
+	}
+	
+	/**
+	 * @return index of the first sample with timestamp >= nanos, size if there is none. Timestamps only grow
+	 */
+	private int lowerBound(long nanos) {
+		int low = 0;
+		int high = size;
+		while(low < high) {
+			int mid = (low + high) >>> 1;
+			if(timestamps[physical(mid)] - nanos < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+	
+	private int slot(int index) {
+		if(index < 0 || index >= size) throw new IndexOutOfBoundsException("Index " + index + " of " + size + " samples");
+		return physical(index);
+	}
+	
+	private int physical(int index) {
+		int slot = next - size + index;
+		return slot < 0 ? slot + capacity : slot;
+	}
+	
+	private void checkElement(int element) {
+		if(element < 0 || element >= width) throw new IndexOutOfBoundsException("Element " + element + " of " + width);
+	}
+}
@@ -0,0 +1,197 @@
+package serial;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import serial.ArduinoField.ArduinoType;
+
+/**
+ * Describes the fields of a board in one place instead of one put call per field.
+ * Registering a schema creates the fields and a typed {@link FieldAccessor} for each of them,
+ * so types get checked once at startup and never again per value.
+ * 
+ * A schema is read from a descriptor with one field per line, # starts a comment:
+ * 
+ * 	# name id type [qty] [scale]
+ * 	temperature 3 Float
+ * 	velocity    2 Float 3
+ * 	setpoint    7 Fixed16 1 0.01
+ * 
+ * or declared by an interface with {@link SerialField} annotated methods:
+ * 
+ * 	interface Board {
+ * 		&#64;SerialField(id = 3, type = ArduinoType.Float)
+ * 		DoubleAccessor temperature();
+ * 	}
+ * 	Board board = FieldSchema.bind(Board.class, serial);
+ * 	board.temperature().addListener(t -&gt; System.out.println(t));
+ */
+public class FieldSchema {
+
+	private final List<Entry> entries = new ArrayList<>();
+	
+	public FieldSchema() {
+		super();
+	}
+	
+	/**
+	 * Reads a descriptor file
+	 */
+	public static FieldSchema load(Path file) throws IOException {
+		try(Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			return load(reader);
+		}
+	}
+	
+	public static FieldSchema load(Reader descriptor) throws IOException {
+		FieldSchema schema = new FieldSchema();
+		BufferedReader reader = new BufferedReader(descriptor);
+		String line;
+		int lineNumber = 0;
+		while((line = reader.readLine()) != null) {
+			lineNumber++;
+			int comment = line.indexOf('#');
+			if(comment >= 0) line = line.substring(0, comment);
+			line = line.trim();
+			if(line.isEmpty()) continue;
+			String[] parts = line.split("\\s+");
+			if(parts.length < 3 || parts.length > 5) {
+				throw new RuntimeException("Line " + lineNumber + ": expected name id type [qty] [scale]");
+			}
+			try {
+				schema.add(parts[0], Integer.parseInt(parts[1]), ArduinoType.valueOf(parts[2]),
+						parts.length > 3 ? Integer.parseInt(parts[3]) : 1, parts.length > 4 ? Double.parseDouble(parts[4]) : 1);
+			} catch(IllegalArgumentException e) {
+				throw new RuntimeException("Line " + lineNumber + ": " + e.getMessage(), e);
+			}
+		}
+		return schema;
+	}
+	
+	/**
+	 * Reads the {@link SerialField} annotations of a schema interface. All its methods have to declare fields
+	 */
+	public static FieldSchema of(Class<?> schemaInterface) {
+		if(!schemaInterface.isInterface()) throw new RuntimeException(schemaInterface.getName() + " is not an interface");
+		FieldSchema schema = new FieldSchema();
+		for (Method method : schemaInterface.getMethods()) {
+			SerialField annotation = method.getAnnotation(SerialField.class);
+			if(annotation == null) throw new RuntimeException(method.getName() + " is not annotated with @SerialField");
+			if(method.getParameterCount() != 0) throw new RuntimeException(method.getName() + " can't have parameters");
+			schema.add(method.getName(), annotation.id(), annotation.type(), annotation.qty(), annotation.scale());
+			Class<?> accessor = accessorType(annotation.type(), annotation.qty());
+			if(method.getReturnType() != accessor) {
+				throw new RuntimeException(method.getName() + " has to return " + accessor.getSimpleName() + " for a "
+						+ annotation.type().name() + " field of qty " + annotation.qty());
+			}
+		}
+		return schema;
+	}
+	
+	/**
+	 * Registers the fields of a schema interface and implements it with their accessors
+	 */
+	public static <T> T bind(Class<T> schemaInterface, ArduinoSerialInterface serial) {
+		Map<String, FieldAccessor> accessors = of(schemaInterface).register(serial);
+		Map<Method, FieldAccessor> byMethod = new HashMap<>();
+		for (Method method : schemaInterface.getMethods()) {
+			if(method.isAnnotationPresent(SerialField.class)) {
+				byMethod.put(method, accessors.get(method.getName()));
+			}
+		}
+		Object proxy = Proxy.newProxyInstance(schemaInterface.getClassLoader(), new Class<?>[] {schemaInterface}, (self, method, args) -> {
+			FieldAccessor accessor = byMethod.get(method);
+			if(accessor != null) return accessor;
+			switch(method.getName()) {
+			case "equals": return self == args[0];
+			case "hashCode": return System.identityHashCode(self);
+			case "toString": return schemaInterface.getSimpleName() + accessors.keySet();
+			default: throw new UnsupportedOperationException(method.getName() + " is not a field");
+			}
+		});
+		return schemaInterface.cast(proxy);
+	}
+	
+	/**
+	 * @param scale value of one step of Fixed16 and Fixed32 fields, 1 otherwise
+	 */
+	public void add(String name, int id, ArduinoType type, int qty, double scale) {
+		if(id < 0 || id > 255) throw new RuntimeException("ID " + id + " of " + name + " is not a byte");
+		for (Entry entry : entries) {
+			if(entry.name.equals(name)) throw new RuntimeException("Field " + name + " is declared twice");
+			if(entry.id == id) throw new RuntimeException("Fields " + entry.name + " and " + name + " share the ID " + id);
+		}
+		entries.add(new Entry(name, id, type, qty, scale));
+	}
+	
+	/**
+	 * Creates the fields, puts them into the setup of serial and creates their accessors
+	 * 
+	 * @return accessors by field name in declaration order
+	 */
+	public Map<String, FieldAccessor> register(ArduinoSerialInterface serial) {
+		Map<String, FieldAccessor> accessors = new LinkedHashMap<>();
+		for (Entry entry : entries) {
+			ArduinoField field = new ArduinoField(entry.id, entry.type, entry.qty, entry.scale);
+			serial.put(entry.name, field);
+			accessors.put(entry.name, accessor(field));
+		}
+		return Collections.unmodifiableMap(accessors);
+	}
+	
+	/**
+	 * @return number of declared fields
+	 */
+	public int size() {
+		return entries.size();
+	}
+	
+	/**
+	 * @return the accessor class for fields of type and qty
+	 */
+	public static Class<? extends FieldAccessor> accessorType(ArduinoType type, int qty) {
+		if(type == ArduinoType.Bits) return qty > 1 ? BooleanArrayAccessor.class : BooleanAccessor.class;
+		if(type.isReal()) return qty > 1 ? DoubleArrayAccessor.class : DoubleAccessor.class;
+		return qty > 1 ? LongArrayAccessor.class : LongAccessor.class;
+	}
+	
+	static FieldAccessor accessor(ArduinoField field) {
+		Class<? extends FieldAccessor> type = accessorType(field.type, field.qty);
+		if(type == BooleanAccessor.class) return new BooleanAccessor(field);
+		if(type == BooleanArrayAccessor.class) return new BooleanArrayAccessor(field);
+		if(type == DoubleAccessor.class) return new DoubleAccessor(field);
+		if(type == DoubleArrayAccessor.class) return new DoubleArrayAccessor(field);
+		if(type == LongAccessor.class) return new LongAccessor(field);
+		return new LongArrayAccessor(field);
+	}
+	
+	private static class Entry {
+		
+		final String name;
+		final int id;
+		final ArduinoType type;
+		final int qty;
+		final double scale;
+		
+		Entry(String name, int id, ArduinoType type, int qty, double scale) {
+			super();
+			this.name = name;
+			this.id = id;
+			this.type = type;
+			this.qty = qty;
+			this.scale = scale;
+		}
+	}
+}
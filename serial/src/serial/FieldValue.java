@@ -0,0 +1,114 @@
+package serial;
+
+import java.util.Arrays;
+
+/**
+ * Read only view over the value bytes of a received SET frame.
+ * One instance is reused for every frame of a field so reading values allocates nothing.
+ * A FieldValue is only valid inside the {@link FieldValueListener} call it was passed to
+ */
+public class FieldValue {
+
+	private final ArduinoField field;
+	private byte[] buffer;
+	private int offset;
+	
+	FieldValue(ArduinoField field) {
+		super();
+		this.field = field;
+	}
+	
+	void bind(byte[] buffer, int offset) {
+		this.buffer = buffer;
+		this.offset = offset;
+	}
+	
+	byte[] buffer() {
+		return buffer;
+	}
+	
+	int offset() {
+		return offset;
+	}
+	
+	/**
+	 * @return a value that stays valid after the listener call
+	 */
+	FieldValue copy() {
+		FieldValue copy = new FieldValue(field);
+		copy.bind(Arrays.copyOfRange(buffer, offset, offset + field.length), 0);
+		return copy;
+	}
+	
+	public ArduinoField getField() {
+		return field;
+	}
+	
+	/**
+	 * @return number of elements
+	 */
+	public int length() {
+		return field.qty;
+	}
+	
+	/**
+	 * Raw byte of the value, for Byte fields the element
+	 */
+	public byte getByte(int index) {
+		return buffer[offset + index];
+	}
+	
+	public boolean getBoolean(int index) {
+		return field.codec.getBoolean(buffer, offset, index, field.scale);
+	}
+	
+	public short getShort(int index) {
+		return (short) field.codec.getLong(buffer, offset, index, field.scale);
+	}
+	
+	/**
+	 * Elements of any type converted to int, reals get rounded
+	 */
+	public int getInt(int index) {
+		return (int) field.codec.getLong(buffer, offset, index, field.scale);
+	}
+	
+	public long getLong(int index) {
+		return field.codec.getLong(buffer, offset, index, field.scale);
+	}
+	
+	public float getFloat(int index) {
+		return (float) field.codec.getDouble(buffer, offset, index, field.scale);
+	}
+	
+	public double getDouble(int index) {
+		return field.codec.getDouble(buffer, offset, index, field.scale);
+	}
+	
+	/**
+	 * Copies the raw value bytes
+	 */
+	public void getBytes(byte[] dst) {
+		System.arraycopy(buffer, offset, dst, 0, field.length);
+	}
+	
+	public void getBooleans(boolean[] dst) {
+		field.codec.decode(buffer, offset, dst, length(), field.scale);
+	}
+	
+	public void getInts(int[] dst) {
+		field.codec.decode(buffer, offset, dst, length(), field.scale);
+	}
+	
+	public void getLongs(long[] dst) {
+		field.codec.decode(buffer, offset, dst, length(), field.scale);
+	}
+	
+	public void getFloats(float[] dst) {
+		field.codec.decode(buffer, offset, dst, length(), field.scale);
+	}
+	
+	public void getDoubles(double[] dst) {
+		field.codec.decode(buffer, offset, dst, length(), field.scale);
+	}
+}
@@ -0,0 +1,14 @@
+package serial;
+
+/**
+ * Receives decoded field values without boxing
+ */
+@FunctionalInterface
+public interface FieldValueListener {
+
+	/**
+	 * Called when a value for the field has been received.
+	 * The value is a view over the receive buffer and only valid for the duration of the call
+	 */
+	public void valueReceived(FieldValue value);
+}
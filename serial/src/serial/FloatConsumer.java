@@ -0,0 +1,10 @@
+package serial;
+
+/**
+ * Primitive float counterpart of {@link java.util.function.Consumer}
+ */
+@FunctionalInterface
+public interface FloatConsumer {
+
+	public void accept(float value);
+}
@@ -0,0 +1,24 @@
+package serial;
+
+/**
+ * Gets notified when {@link ArduinoSerialInterface} drops a partially received frame
+ */
+public interface FrameAbandonListener {
+	
+	public enum Reason {
+		/**
+		 * The next byte did not arrive within the inter byte timeout
+		 */
+		TIMEOUT,
+		/**
+		 * A SET frame announced a value longer than any field, so it can only be noise
+		 */
+		OVERFLOW
+	}
+
+	/**
+	 * @param frameType first byte of the frame, e.g. 'S'
+	 * @param bytesReceived number of bytes of the frame received so far
+	 */
+	public void frameAbandoned(int frameType, int bytesReceived, Reason reason);
+}
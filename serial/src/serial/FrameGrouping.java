@@ -0,0 +1,32 @@
+package serial;
+
+/**
+ * How values set in one batch travel over the link, negotiated with
+ * {@link ArduinoSerialInterface#negotiateFrameGrouping(FrameGrouping)}.
+ * Grouping pays off on slow links where the header and checksum of a SET frame are as large as the value
+ */
+public enum FrameGrouping {
+	
+	/**
+	 * Every value in its own SET frame
+	 */
+	NONE,
+	/**
+	 * All values of a batch share GROUP frames with 2 bytes of overhead per value
+	 */
+	GROUPED,
+	/**
+	 * Like GROUPED, but values are sent as difference to the previous value of the field on the link.
+	 * Unchanged bytes cost next to nothing, so slowly changing and unchanged values shrink the most
+	 */
+	COMPRESSED;
+	
+	public byte code() {
+		return (byte) ordinal();
+	}
+	
+	static FrameGrouping fromCode(int code) {
+		FrameGrouping[] values = values();
+		return code >= 0 && code < values.length ? values[code] : null;
+	}
+}
@@ -0,0 +1,104 @@
+package serial;
+
+/**
+ * Integrity check appended to every G, S and E frame.
+ * SUM is the legacy one byte sum modulo 255 every board understands. The CRCs detect
+ * swapped, doubled and burst errors the sum misses and have to be supported by the board.
+ * 
+ * @see ArduinoSerialInterface#negotiateFrameIntegrity(FrameIntegrity)
+ */
+public enum FrameIntegrity {
+	
+	SUM(1) {
+		@Override
+		int update(int checksum, byte b) {
+			return (checksum + (b & 0xff)) % 255;
+		}
+
+		@Override
+		int update(int checksum, byte[] data, int offset, int length) {
+			/**
+			 * (a + b) % 255 == (a % 255 + b) % 255 so one modulo for the whole range is enough
+			 */
+			long sum = checksum;
+			int end = offset + length;
+			for (int i = offset; i < end; i++) {
+				sum += data[i] & 0xff;
+			}
+			return (int) (sum % 255);
+		}
+	},
+	CRC8(1) {
+		@Override
+		int update(int checksum, byte b) {
+			return Crc.crc8(checksum, b);
+		}
+
+		@Override
+		int update(int checksum, byte[] data, int offset, int length) {
+			return Crc.crc8(checksum, data, offset, length);
+		}
+	},
+	CRC16(2) {
+		@Override
+		int init() {
+			return 0xffff;
+		}
+		
+		@Override
+		int update(int checksum, byte b) {
+			return Crc.crc16(checksum, b);
+		}
+
+		@Override
+		int update(int checksum, byte[] data, int offset, int length) {
+			return Crc.crc16(checksum, data, offset, length);
+		}
+	};
+	
+	private final int length;
+	
+	private FrameIntegrity(int length) {
+		this.length = length;
+	}
+	
+	/**
+	 * @return number of check bytes at the end of a frame
+	 */
+	public int length() {
+		return length;
+	}
+	
+	/**
+	 * @return code of this mode in an I frame
+	 */
+	public byte code() {
+		return (byte) ordinal();
+	}
+	
+	static FrameIntegrity fromCode(int code) {
+		FrameIntegrity[] values = values();
+		return code >= 0 && code < values.length ? values[code] : null;
+	}
+	
+	int init() {
+		return 0;
+	}
+	
+	abstract int update(int checksum, byte b);
+	
+	abstract int update(int checksum, byte[] data, int offset, int length);
+	
+	public int compute(byte[] data, int offset, int length) {
+		return update(init(), data, offset, length);
+	}
+	
+	/**
+	 * Writes the check bytes most significant byte first
+	 */
+	void write(int checksum, byte[] dst, int offset) {
+		for (int i = length - 1; i >= 0; i--) {
+			dst[offset++] = (byte) (checksum >>> (8 * i));
+		}
+	}
+}
@@ -0,0 +1,15 @@
+package serial;
+
+/**
+ * What a {@link BufferedFramer} does with a frame longer than its max frame size
+ */
+public enum FrameOverflowPolicy {
+	/**
+	 * Passes the frame on in pieces of max frame size. Nothing gets lost
+	 */
+	SPLIT,
+	/**
+	 * Drops the whole frame
+	 */
+	DISCARD
+}
@@ -0,0 +1,106 @@
+package serial;
+
+import com.fazecast.jSerialComm.SerialPort;
+import com.fazecast.jSerialComm.SerialPortDataListener;
+import com.fazecast.jSerialComm.SerialPortEvent;
+
+/**
+ * Transport over a real port using jSerialComm
+ */
+public class JSerialCommTransport implements SerialTransport {
+
+	private final SerialPort port;
+	
+	public JSerialCommTransport(SerialPort port) {
+		super();
+		this.port = port;
+	}
+	
+	@Override
+	public boolean open(SerialChunkReceiveListener receiver) {
+		if(!port.openPort()) return false; // no listener on a closed port, reconnect attempts would pile them up
+		port.addDataListener(new SerialPortDataListener() {
+			@Override
+			public void serialEvent(SerialPortEvent arg0) {
+				byte[] data = arg0.getReceivedData();
+				receiver.chunkReceived(data, 0, data.length);
+			}
+			
+			@Override
+			public int getListeningEvents() {
+				return SerialPort.LISTENING_EVENT_DATA_RECEIVED;
+			}
+		});
+		return true;
+	}
+
+	@Override
+	public void close() {
+		port.removeDataListener();
+		port.closePort();
+	}
+
+	@Override
+	public boolean isOpen() {
+		return port.isOpen();
+	}
+
+	@Override
+	public int write(byte[] data, int offset, int length) {
+		return port.writeBytes(data, length, offset);
+	}
+
+	@Override
+	public void setBaudRate(int rate) {
+		port.setBaudRate(rate);
+	}
+	
+	@Override
+	public int getBaudRate() {
+		return port.getBaudRate();
+	}
+
+	@Override
+	public int bytesAvailable() {
+		return port.bytesAvailable();
+	}
+	
+	@Override
+	public String getName() {
+		return port.getDescriptivePortName();
+	}
+	
+	/**
+	 * jSerialComm 2.7.0 reports no disconnects, so the port also counts as dead once it vanished from the port list
+	 */
+	@Override
+	public boolean isAlive() {
+		return port.isOpen() && PortRegistry.getInstance().find(port.getSystemPortName()) != null;
+	}
+	
+	/**
+	 * Matches the port by its system name. USB adapters may come back under a different one,
+	 * then the port gets matched by its description, but only if exactly one port that is not open has it.
+	 * Identical adapters share a description
+	 */
+	@Override
+	public SerialTransport recreate() {
+		PortRegistry registry = PortRegistry.getInstance();
+		registry.refresh();
+		SerialPort found = registry.find(port.getSystemPortName());
+		if(found == null) {
+			String description = port.getPortDescription();
+			for (SerialPort candidate : registry.getPorts()) {
+				if(!description.equals(candidate.getPortDescription())) continue;
+				if(found != null) return null; // ambiguous
+				found = candidate;
+			}
+			if(found != null && found.isOpen()) return null;
+		}
+		return found == null ? null : new JSerialCommTransport(found);
+	}
+	
+	public SerialPort getPort() {
+		return port;
+	}
+}
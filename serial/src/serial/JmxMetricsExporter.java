@@ -0,0 +1,65 @@
+package serial;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registers metrics as MXBean serial:type=SerialMetrics,name=&lt;name&gt; so they show up in JConsole and friends.
+ * The bean reads the live counters, so it gets registered on the first export and
+ * exporting the same metrics again does nothing
+ */
+public class JmxMetricsExporter implements MetricsExporter {
+
+	private final MBeanServer server;
+	private final Map<String, SerialMetrics> registered = new ConcurrentHashMap<>();
+	
+	public JmxMetricsExporter() {
+		this(ManagementFactory.getPlatformMBeanServer());
+	}
+	
+	public JmxMetricsExporter(MBeanServer server) {
+		super();
+		this.server = server;
+	}
+	
+	@Override
+	public void export(String name, SerialMetrics metrics) {
+		if(registered.get(name) == metrics) return;
+		try {
+			synchronized (registered) {
+				if(registered.get(name) == metrics) return;
+				ObjectName objectName = objectName(name);
+				if(server.isRegistered(objectName)) {
+					server.unregisterMBean(objectName);
+				}
+				server.registerMBean(metrics, objectName);
+				registered.put(name, metrics);
+			}
+		} catch (JMException e) {
+			throw new RuntimeException("Could not register metrics of " + name, e);
+		}
+	}
+	
+	public void remove(String name) {
+		try {
+			synchronized (registered) {
+				registered.remove(name);
+				ObjectName objectName = objectName(name);
+				if(server.isRegistered(objectName)) {
+					server.unregisterMBean(objectName);
+				}
+			}
+		} catch (JMException e) {
+			throw new RuntimeException("Could not unregister metrics of " + name, e);
+		}
+	}
+	
+	private static ObjectName objectName(String name) throws JMException {
+		return new ObjectName("serial:type=SerialMetrics,name=" + ObjectName.quote(name));
+	}
+}
@@ -0,0 +1,70 @@
+package serial;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free histogram of durations in nanoseconds with one bucket per power of two.
+ * Recording is a few adds, percentiles are upper bounds of the bucket they fall in
+ */
+public class LatencyHistogram {
+
+	private final LongAdder[] buckets = new LongAdder[64];
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+	
+	public LatencyHistogram() {
+		super();
+		for (int i = 0; i < buckets.length; i++) {
+			buckets[i] = new LongAdder();
+		}
+	}
+	
+	public void record(long nanos) {
+		if(nanos < 0) nanos = 0;
+		buckets[64 - Long.numberOfLeadingZeros(nanos) - (nanos == 0 ? 0 : 1)].increment();
+		count.increment();
+		sum.add(nanos);
+		max.accumulate(nanos);
+	}
+	
+	public long getCount() {
+		return count.sum();
+	}
+	
+	/**
+	 * @return mean in nanoseconds or 0 if nothing has been recorded
+	 */
+	public long getMean() {
+		long n = count.sum();
+		return n == 0 ? 0 : sum.sum() / n;
+	}
+	
+	public long getMax() {
+		return max.get();
+	}
+	
+	/**
+	 * @param percentile between 0 and 100
+	 * @return upper bound in nanoseconds of the bucket the percentile falls in
+	 */
+	public long getPercentile(double percentile) {
+		long n = count.sum();
+		if(n == 0) return 0;
+		long rank = (long) Math.ceil(n * percentile / 100);
+		long seen = 0;
+		for (int i = 0; i < buckets.length; i++) {
+			seen += buckets[i].sum();
+			if(seen >= rank) {
+				return Math.min(i == 63 ? Long.MAX_VALUE : (1L << (i + 1)) - 1, getMax());
+			}
+		}
+		return getMax();
+	}
+	
+	@Override
+	public String toString() {
+		return "count=" + getCount() + " mean=" + getMean() + "ns p50=" + getPercentile(50) + "ns p99=" + getPercentile(99) + "ns max=" + getMax() + "ns";
+	}
+}
@@ -0,0 +1,65 @@
+package serial;
+
+/**
+ * Frames of <Length> <Payload> with a big endian length of 1, 2 or 4 bytes
+ */
+public class LengthPrefixFramer extends BufferedFramer {
+
+	private final int prefixSize;
+	private int headerPos = 0;
+	private long remaining = 0;
+	
+	/**
+	 * @param prefixSize size of the length in bytes, 1, 2 or 4
+	 */
+	public LengthPrefixFramer(int prefixSize) {
+		super();
+		if(prefixSize != 1 && prefixSize != 2 && prefixSize != 4) throw new RuntimeException("prefixSize must be 1, 2 or 4");
+		this.prefixSize = prefixSize;
+	}
+
+	@Override
+	public void feed(byte[] data, int offset, int length, SerialFrameListener sink) {
+		int end = offset + length;
+		int i = offset;
+		while(i < end) {
+			if(headerPos < prefixSize) {
+				remaining = (remaining << 8) | (data[i++] & 0xff);
+				if(++headerPos == prefixSize && remaining == 0) {
+					complete(sink);
+					headerPos = 0;
+				}
+				continue;
+			}
+			int n = (int) Math.min(remaining, end - i);
+			remaining -= n;
+			if(remaining == 0) {
+				complete(data, i, n, sink);
+				headerPos = 0;
+			} else {
+				append(data, i, n, sink);
+			}
+			i += n;
+		}
+	}
+	
+	/**
+	 * @return the payload with its length in front
+	 */
+	public byte[] encode(byte[] data, int offset, int length) {
+		if(prefixSize < 4 && length >>> (8 * prefixSize) != 0) throw new RuntimeException("Frame of " + length + " bytes does not fit a " + prefixSize + " byte length");
+		byte[] frame = new byte[prefixSize + length];
+		for (int i = 0; i < prefixSize; i++) {
+			frame[i] = (byte) (length >>> (8 * (prefixSize - 1 - i)));
+		}
+		System.arraycopy(data, offset, frame, prefixSize, length);
+		return frame;
+	}
+	
+	@Override
+	public void reset() {
+		super.reset();
+		headerPos = 0;
+		remaining = 0;
+	}
+}
@@ -0,0 +1,26 @@
+package serial;
+
+/**
+ * Gets the exceptions thrown by listeners and subscribers, so they do not reach the receiving thread
+ */
+@FunctionalInterface
+public interface ListenerErrorHandler {
+	
+	/**
+	 * Prints the stack trace to System.err, the default
+	 */
+	public static final ListenerErrorHandler PRINT = (listener, error) -> {
+		System.err.println("Listener " + listener + " failed:");
+		error.printStackTrace();
+	};
+	
+	/**
+	 * Only counts the failures
+	 */
+	public static final ListenerErrorHandler IGNORE = (listener, error) -> {};
+
+	/**
+	 * Called on the thread the listener failed on, so it has to be quick
+	 */
+	public void listenerFailed(Object listener, Throwable error);
+}
@@ -0,0 +1,195 @@
+package serial;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+/**
+ * Thread safe listener list for read mostly dispatch. Adding and removing copies the array,
+ * dispatching iterates the current array without locking or allocating, so listeners can be
+ * added and removed from any thread while the receiving thread dispatches.
+ * A listener throwing an exception gets counted and passed to the {@link ListenerErrorHandler}, it does not stop the others.
+ * Listeners registered with an executor get called on it instead of the dispatching thread.
+ */
+public class ListenerRegistry<L> {
+	
+	/**
+	 * Calls one listener with the dispatched argument
+	 */
+	@FunctionalInterface
+	public interface Call<L, A> {
+		public void call(L listener, A arg);
+	}
+	
+	private static final Entry<?>[] EMPTY = new Entry<?>[0];
+	
+	@SuppressWarnings("unchecked")
+	private volatile Entry<L>[] entries = (Entry<L>[]) EMPTY;
+	private final LongAdder failures = new LongAdder();
+	private static volatile ListenerErrorHandler defaultErrorHandler = ListenerErrorHandler.PRINT;
+	/**
+	 * null for the default
+	 */
+	private volatile ListenerErrorHandler errorHandler = null;
+	
+	public boolean add(L listener) {
+		return add(listener, null);
+	}
+	
+	/**
+	 * @param executor runs the calls of this listener, null to call it on the dispatching thread
+	 */
+	public synchronized boolean add(L listener, Executor executor) {
+		Objects.requireNonNull(listener);
+		Entry<L>[] current = entries;
+		Entry<L>[] next = Arrays.copyOf(current, current.length + 1);
+		next[current.length] = new Entry<>(listener, executor);
+		entries = next;
+		return true;
+	}
+	
+	/**
+	 * Removes the first registration of the listener
+	 */
+	public synchronized boolean remove(L listener) {
+		Entry<L>[] current = entries;
+		for (int i = 0; i < current.length; i++) {
+			if(current[i].listener.equals(listener)) {
+				@SuppressWarnings("unchecked")
+				Entry<L>[] next = (Entry<L>[]) new Entry<?>[current.length - 1];
+				System.arraycopy(current, 0, next, 0, i);
+				System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+				entries = next;
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	@SuppressWarnings("unchecked")
+	public synchronized void clear() {
+		entries = (Entry<L>[]) EMPTY;
+	}
+	
+	public boolean isEmpty() {
+		return entries.length == 0;
+	}
+	
+	public int size() {
+		return entries.length;
+	}
+	
+	/**
+	 * Calls every listener. Listeners with an executor get the same argument, so it has to stay valid after the call
+	 */
+	public <A> void dispatch(Call<? super L, A> call, A arg) {
+		dispatch(entries, call, arg, null);
+	}
+	
+	/**
+	 * Calls every listener. Listeners with an executor get a detached copy of the argument,
+	 * made once per dispatch and only if such a listener exists
+	 * 
+	 * @param detach copies an argument that is only valid during the dispatch, like a reused buffer
+	 */
+	public <A> void dispatch(Call<? super L, A> call, A arg, UnaryOperator<A> detach) {
+		dispatch(entries, call, arg, detach);
+	}
+	
+	/**
+	 * Removes all listeners and calls them once. Listeners added meanwhile wait for the next dispatch
+	 */
+	public <A> void dispatchOnce(Call<? super L, A> call, A arg, UnaryOperator<A> detach) {
+		Entry<L>[] snapshot = takeAll();
+		if(snapshot.length == 0) return;
+		dispatch(snapshot, call, arg, detach);
+	}
+	
+	/**
+	 * Removes all listeners, so the caller can take them together with other state under its own lock
+	 * and call them later with {@link #dispatch(Entry[], Call, Object, UnaryOperator)}
+	 * 
+	 * @return the removed listeners
+	 */
+	@SuppressWarnings("unchecked")
+	synchronized Entry<L>[] takeAll() {
+		Entry<L>[] snapshot = entries;
+		entries = (Entry<L>[]) EMPTY;
+		return snapshot;
+	}
+	
+	/**
+	 * Calls the listeners of snapshot like {@link #dispatch(Call, Object, UnaryOperator)}
+	 */
+	<A> void dispatch(Entry<L>[] snapshot, Call<? super L, A> call, A arg, UnaryOperator<A> detach) {
+		A detached = null;
+		for (Entry<L> entry : snapshot) {
+			if(entry.executor == null) {
+				invoke(entry.listener, call, arg);
+				continue;
+			}
+			if(detached == null) {
+				detached = detach == null ? arg : detach.apply(arg);
+			}
+			A a = detached;
+			try {
+				entry.executor.execute(() -> invoke(entry.listener, call, a));
+			} catch (RuntimeException e) {
+				fail(entry.listener, e);
+			}
+		}
+	}
+	
+	private <A> void invoke(L listener, Call<? super L, A> call, A arg) {
+		try {
+			call.call(listener, arg);
+		} catch (RuntimeException e) {
+			fail(listener, e);
+		}
+	}
+	
+	private void fail(L listener, RuntimeException e) {
+		failures.increment();
+		ListenerErrorHandler handler = errorHandler;
+		(handler == null ? defaultErrorHandler : handler).listenerFailed(listener, e);
+	}
+	
+	/**
+	 * @param errorHandler gets the exceptions of the listeners of this registry, null for the default
+	 */
+	public void setErrorHandler(ListenerErrorHandler errorHandler) {
+		this.errorHandler = errorHandler;
+	}
+	
+	public static ListenerErrorHandler getDefaultErrorHandler() {
+		return defaultErrorHandler;
+	}
+	
+	/**
+	 * Sets the handler of all registries without one of their own, like the ones of {@link ArduinoField}.
+	 * Default is {@link ListenerErrorHandler#PRINT}
+	 */
+	public static void setDefaultErrorHandler(ListenerErrorHandler errorHandler) {
+		defaultErrorHandler = Objects.requireNonNull(errorHandler);
+	}
+	
+	/**
+	 * @return number of listener calls that threw an exception or got rejected by their executor
+	 */
+	public long getFailures() {
+		return failures.sum();
+	}
+	
+	static final class Entry<L> {
+		
+		final L listener;
+		final Executor executor;
+		
+		Entry(L listener, Executor executor) {
+			this.listener = listener;
+			this.executor = executor;
+		}
+	}
+}
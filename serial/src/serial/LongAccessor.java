@@ -0,0 +1,73 @@
+package serial;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongConsumer;
+
+/**
+ * Accessor of Byte, Short, Int and Long fields with qty 1. Holds the codec of the wire type in a final field
+ * and leaves binding the calls to that codec to the JIT
+ */
+public final class LongAccessor extends FieldAccessor {
+
+	private final FieldCodec codec;
+
+	LongAccessor(ArduinoField field) {
+		super(field);
+		codec = field.codec;
+	}
+	
+	/**
+	 * @return the value at b[offset]
+	 */
+	private long get(byte[] b, int offset) {
+		return codec.getLong(b, offset, 0, field.scale);
+	}
+	
+	/**
+	 * Encodes the value at b[0]
+	 */
+	private void put(byte[] b, long value) {
+		codec.putLong(b, 0, 0, value, field.scale);
+	}
+	
+	public void set(long value) {
+		byte[] b = newValue();
+		put(b, value);
+		field.sendSet(b);
+	}
+	
+	/**
+	 * @return latest received value, 0 if nothing has been received yet
+	 */
+	public long getLast() {
+		byte[] last = field.lastValue;
+		synchronized (last) {
+			return get(last, 0);
+		}
+	}
+	
+	/**
+	 * Requests the value once
+	 */
+	public void request(LongConsumer callback) {
+		field.getValue(v -> callback.accept(get(v.buffer(), v.offset())));
+	}
+	
+	/**
+	 * Requests the value once, failing with a {@link java.util.concurrent.TimeoutException} after {@link ArduinoSerialInterface#getRequestTimeout()}
+	 */
+	public CompletableFuture<Long> getAsync() {
+		return field.getAsync(v -> get(v.buffer(), v.offset()));
+	}
+	
+	/**
+	 * Gets called for every received value
+	 * 
+	 * @return the registered listener for {@link ArduinoField#removeValueListener(FieldValueListener)}
+	 */
+	public FieldValueListener addListener(LongConsumer listener) {
+		FieldValueListener l = v -> listener.accept(get(v.buffer(), v.offset()));
+		field.addValueListener(l);
+		return l;
+	}
+}
@@ -0,0 +1,77 @@
+package serial;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Accessor of Byte, Short, Int and Long fields with qty > 1. Holds the codec of the wire type in a final field
+ * and leaves binding the calls to that codec to the JIT
+ */
+public final class LongArrayAccessor extends FieldAccessor {
+
+	private final FieldCodec codec;
+
+	LongArrayAccessor(ArduinoField field) {
+		super(field);
+		codec = field.codec;
+	}
+	
+	/**
+	 * Decodes all elements at b[offset] into dst
+	 */
+	private void decode(byte[] b, int offset, long[] dst) {
+		codec.decode(b, offset, dst, field.qty, field.scale);
+	}
+	
+	/**
+	 * Encodes n elements of src at b[0]
+	 */
+	private void encode(long[] src, int n, byte[] b) {
+		codec.encode(src, n, b, 0, field.scale);
+	}
+	
+	private void encode(int[] src, int n, byte[] b) {
+		codec.encode(src, n, b, 0, field.scale);
+	}
+	
+	/**
+	 * @return number of elements
+	 */
+	public int length() {
+		return field.qty;
+	}
+	
+	/**
+	 * @param values up to {@link #length()} values, missing ones get sent as 0
+	 */
+	public void set(long[] values) {
+		byte[] b = newValue();
+		encode(values, elements(values.length), b);
+		field.sendSet(b);
+	}
+	
+	public void set(int[] values) {
+		byte[] b = newValue();
+		encode(values, elements(values.length), b);
+		field.sendSet(b);
+	}
+	
+	/**
+	 * Copies the latest received value to dst
+	 * 
+	 * @return false if nothing has been received yet
+	 */
+	public boolean getLast(long[] dst) {
+		return field.readLast(v -> decode(v.buffer(), v.offset(), dst));
+	}
+	
+	/**
+	 * Requests the value once, failing with a {@link java.util.concurrent.TimeoutException} after {@link ArduinoSerialInterface#getRequestTimeout()}
+	 */
+	public CompletableFuture<long[]> getAsync() {
+		return field.getAsync(v -> {
+			long[] values = new long[field.qty];
+			decode(v.buffer(), v.offset(), values);
+			return values;
+		});
+	}
+}
@@ -0,0 +1,12 @@
+package serial;
+
+/**
+ * Publishes {@link SerialMetrics} somewhere
+ */
+public interface MetricsExporter {
+
+	/**
+	 * @param name identifies the port, e.g. its system name
+	 */
+	public void export(String name, SerialMetrics metrics);
+}
@@ -0,0 +1,19 @@
+package serial;
+
+/**
+ * What to do when a bounded buffer is full
+ */
+public enum OverflowPolicy {
+	/**
+	 * Discard the oldest buffered bytes or items to make room
+	 */
+	DROP_OLDEST,
+	/**
+	 * Discard the bytes or items that do not fit anymore
+	 */
+	DROP_NEWEST,
+	/**
+	 * Wait until the consumer made room
+	 */
+	BLOCK
+}
@@ -0,0 +1,11 @@
+package serial;
+
+/**
+ * Gets notified by the {@link PortRegistry} when ports appear or disappear
+ */
+public interface PortChangeListener {
+
+	public void portAttached(PortInfo port);
+	
+	public void portDetached(PortInfo port);
+}
@@ -0,0 +1,184 @@
+package serial;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.fazecast.jSerialComm.SerialPort;
+
+/**
+ * Caches the enumeration of ports. Enumerating is slow on hosts with many adapters,
+ * so results are kept for a time to live and names are resolved by hash lookup.
+ * A refresh only replaces ports that changed and reports them to {@link PortChangeListener}s.
+ */
+public class PortRegistry {
+	
+	private static final PortRegistry INSTANCE = new PortRegistry(SerialPort::getCommPorts);
+	private static final long DEFAULT_TTL = 1000;
+	/**
+	 * A name that is not known triggers a refresh at most this often
+	 */
+	private static final long MIN_REFRESH_INTERVAL = 100;
+
+	/**
+	 * Ports by system name in enumeration order
+	 */
+	private volatile Map<String, SerialPort> ports = Collections.emptyMap();
+	/**
+	 * Ports by system, descriptive and description name
+	 */
+	private volatile Map<String, SerialPort> names = Collections.emptyMap();
+	private volatile long lastRefresh = 0;
+	private volatile long ttl = DEFAULT_TTL;
+	private final ListenerRegistry<PortChangeListener> listeners = new ListenerRegistry<>();
+	private ScheduledFuture<?> backgroundRefresh = null;
+	private final Supplier<SerialPort[]> enumerator;
+	
+	/**
+	 * @param enumerator lists the ports of the host
+	 */
+	PortRegistry(Supplier<SerialPort[]> enumerator) {
+		super();
+		this.enumerator = enumerator;
+	}
+	
+	public static PortRegistry getInstance() {
+		return INSTANCE;
+	}
+	
+	/**
+	 * @return all ports, at most ttl milliseconds old
+	 */
+	public List<SerialPort> getPorts() {
+		refreshIfStale();
+		return new ArrayList<>(ports.values());
+	}
+	
+	/**
+	 * @param name system name, descriptive name or port description
+	 * @return the port or null if there is none with that name
+	 */
+	public SerialPort find(String name) {
+		refreshIfStale();
+		SerialPort port = names.get(name);
+		if(port == null && System.currentTimeMillis() - lastRefresh > MIN_REFRESH_INTERVAL) {
+			refresh(MIN_REFRESH_INTERVAL);
+			port = names.get(name);
+		}
+		return port;
+	}
+	
+	private void refreshIfStale() {
+		if(System.currentTimeMillis() - lastRefresh > ttl) {
+			refresh(ttl);
+		}
+	}
+	
+	/**
+	 * Enumerates the ports now
+	 */
+	public void refresh() {
+		refresh(-1);
+	}
+	
+	/**
+	 * Enumerates the ports unless that happened within maxAge milliseconds, so callers that found
+	 * the registry stale at the same time wait for one enumeration instead of running one each
+	 * 
+	 * @param maxAge -1 to enumerate in any case
+	 */
+	private void refresh(long maxAge) {
+		List<PortInfo> attached = new ArrayList<>();
+		List<PortInfo> detached = new ArrayList<>();
+		synchronized (this) {
+			if(maxAge >= 0 && System.currentTimeMillis() - lastRefresh <= maxAge) return;
+			Map<String, SerialPort> old = ports;
+			Map<String, SerialPort> newPorts = new LinkedHashMap<>();
+			for (SerialPort port : enumerator.get()) {
+				String systemName = port.getSystemPortName();
+				if(newPorts.containsKey(systemName)) continue;
+				SerialPort known = old.get(systemName);
+				if(known != null && known.getPortDescription().equals(port.getPortDescription())) {
+					newPorts.put(systemName, known); // keep the instance that might be open
+				} else {
+					newPorts.put(systemName, port);
+					attached.add(new PortInfo(port));
+				}
+			}
+			for (Map.Entry<String, SerialPort> entry : old.entrySet()) {
+				if(newPorts.get(entry.getKey()) != entry.getValue()) {
+					detached.add(new PortInfo(entry.getValue()));
+				}
+			}
+			Map<String, SerialPort> newNames = new HashMap<>();
+			for (SerialPort port : newPorts.values()) {
+				newNames.put(port.getSystemPortName(), port);
+			}
+			for (SerialPort port : newPorts.values()) {
+				newNames.putIfAbsent(port.getDescriptivePortName(), port);
+			}
+			for (SerialPort port : newPorts.values()) {
+				newNames.putIfAbsent(port.getPortDescription(), port);
+			}
+			ports = newPorts;
+			names = newNames;
+			lastRefresh = System.currentTimeMillis();
+		}
+		for (PortInfo port : detached) {
+			listeners.dispatch((l, p) -> l.portDetached(p), port);
+		}
+		for (PortInfo port : attached) {
+			listeners.dispatch((l, p) -> l.portAttached(p), port);
+		}
+	}
+	
+	/**
+	 * Refreshes every periodMillis on the shared scheduler so lookups never have to wait for an enumeration
+	 * and attach and detach events arrive without polling
+	 */
+	public synchronized void startBackgroundRefresh(long periodMillis) {
+		stopBackgroundRefresh();
+		backgroundRefresh = SerialScheduler.get().scheduleWithFixedDelay(this::refresh, 0, periodMillis, TimeUnit.MILLISECONDS);
+	}
+	
+	public synchronized void stopBackgroundRefresh() {
+		if(backgroundRefresh != null) {
+			backgroundRefresh.cancel(false);
+			backgroundRefresh = null;
+		}
+	}
+	
+	/**
+	 * @return milliseconds cached results stay valid
+	 */
+	public long getTtl() {
+		return ttl;
+	}
+
+	public void setTtl(long ttl) {
+		this.ttl = ttl;
+	}
+	
+	public boolean addPortChangeListener(PortChangeListener l) {
+		return listeners.add(l);
+	}
+	
+	public boolean removePortChangeListener(PortChangeListener l) {
+		return listeners.remove(l);
+	}
+	
+	/**
+	 * Gets the exceptions thrown by port change listeners instead of {@link ListenerRegistry#getDefaultErrorHandler()}
+	 * 
+	 * @param errorHandler null for the default
+	 */
+	public void setListenerErrorHandler(ListenerErrorHandler errorHandler) {
+		listeners.setErrorHandler(errorHandler);
+	}
+}
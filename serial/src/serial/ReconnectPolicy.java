@@ -0,0 +1,96 @@
+package serial;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Configures how {@link Serial} detects a lost connection and how fast it retries
+ */
+public class ReconnectPolicy {
+
+	private long initialDelay = 100;
+	private long maxDelay = 10000;
+	private double multiplier = 2;
+	private double jitter = 0.2;
+	private long checkInterval = 500;
+	private long readSilence = 0;
+	
+	public ReconnectPolicy() {
+		super();
+	}
+	
+	/**
+	 * @param initialDelay milliseconds before the first attempt
+	 * @param maxDelay max milliseconds between two attempts
+	 */
+	public ReconnectPolicy(long initialDelay, long maxDelay) {
+		super();
+		this.initialDelay = initialDelay;
+		this.maxDelay = maxDelay;
+	}
+	
+	/**
+	 * @return milliseconds to wait before the given attempt, starting at 0
+	 */
+	long delay(int attempt) {
+		double delay = Math.min(maxDelay, initialDelay * Math.pow(multiplier, attempt));
+		double factor = 1 + jitter * (ThreadLocalRandom.current().nextDouble() * 2 - 1);
+		return Math.max(0, (long) (delay * factor));
+	}
+
+	public long getInitialDelay() {
+		return initialDelay;
+	}
+
+	public void setInitialDelay(long initialDelay) {
+		this.initialDelay = initialDelay;
+	}
+
+	public long getMaxDelay() {
+		return maxDelay;
+	}
+
+	public void setMaxDelay(long maxDelay) {
+		this.maxDelay = maxDelay;
+	}
+
+	public double getMultiplier() {
+		return multiplier;
+	}
+
+	public void setMultiplier(double multiplier) {
+		this.multiplier = multiplier;
+	}
+
+	/**
+	 * @return fraction every delay gets randomly shortened or lengthened by, so ports don't retry in lockstep
+	 */
+	public double getJitter() {
+		return jitter;
+	}
+
+	public void setJitter(double jitter) {
+		this.jitter = jitter;
+	}
+
+	/**
+	 * @return milliseconds between two checks of the connection
+	 */
+	public long getCheckInterval() {
+		return checkInterval;
+	}
+
+	public void setCheckInterval(long checkInterval) {
+		this.checkInterval = checkInterval;
+	}
+
+	/**
+	 * @return milliseconds without received bytes after which the connection counts as lost. 0 to disable
+	 */
+	public long getReadSilence() {
+		return readSilence;
+	}
+
+	public void setReadSilence(long readSilence) {
+		this.readSilence = readSilence;
+	}
+}
@@ -0,0 +1,171 @@
+package serial;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Plays the received chunks of a session recorded by {@link SessionRecorder} back into a {@link Serial},
+ * through the same framing and decoding as the original session. Writes are accepted and dropped.
+ * 
+ * 	ReplayTransport replay = new ReplayTransport(Paths.get("session"), 1);
+ * 	serial.open(replay);
+ * 	replay.awaitEnd();
+ */
+public class ReplayTransport implements SerialTransport {
+
+	private final List<Path> segments;
+	private final double speed;
+	private final String name;
+	private volatile boolean open = false;
+	private volatile int baudRate = 0;
+	private Thread player = null;
+	private CountDownLatch end = new CountDownLatch(1);
+	private volatile long replayedBytes = 0;
+	private volatile long replayedChunks = 0;
+	
+	/**
+	 * @param directory directory holding the segments of the session
+	 * @param speed 1 to replay in real time, 2 for twice as fast and so on. 0 to replay as fast as possible
+	 */
+	public ReplayTransport(Path directory, double speed) {
+		super();
+		try {
+			this.segments = SessionRecorder.segments(directory);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		if(segments.isEmpty()) throw new RuntimeException("No recorded session in " + directory);
+		if(speed < 0) throw new RuntimeException("speed cant be < 0");
+		this.speed = speed;
+		this.name = "Replay of " + directory;
+	}
+
+	@Override
+	public synchronized boolean open(SerialChunkReceiveListener receiver) {
+		if(open) return false;
+		open = true;
+		end = new CountDownLatch(1);
+		player = new Thread(() -> play(receiver), name);
+		player.setDaemon(true);
+		player.start();
+		return true;
+	}
+	
+	private void play(SerialChunkReceiveListener receiver) {
+		byte[] chunk = new byte[4096];
+		long start = System.nanoTime();
+		long first = -1; // timestamps are relative to the session start, older segments may have been rolled away
+		try {
+			for (Path path : segments) {
+				ByteBuffer segment = map(path);
+				while(open && segment.remaining() >= SessionRecorder.RECORD_HEADER_SIZE) {
+					byte direction = segment.get();
+					if(direction == 0) break; // end of segment
+					long nanos = segment.getLong();
+					int length = segment.getInt();
+					if(direction != SessionRecorder.RECEIVED) {
+						segment.position(segment.position() + length);
+						continue;
+					}
+					if(first < 0) first = nanos;
+					if(speed > 0) {
+						long due = start + (long) ((nanos - first) / speed);
+						for (long wait = due - System.nanoTime(); wait > 0 && open; wait = due - System.nanoTime()) {
+							LockSupport.parkNanos(wait);
+						}
+					}
+					if(chunk.length < length) chunk = new byte[length];
+					segment.get(chunk, 0, length);
+					receiver.chunkReceived(chunk, 0, length);
+					replayedBytes += length;
+					replayedChunks++;
+				}
+			}
+		} finally {
+			end.countDown();
+		}
+	}
+	
+	private static ByteBuffer map(Path path) {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if(segment.getInt() != SessionRecorder.MAGIC) throw new RuntimeException(path + " is no recorded session");
+			int version = segment.getInt();
+			if(version != SessionRecorder.VERSION) throw new RuntimeException("Unsupported version " + version + " of " + path);
+			segment.position(SessionRecorder.HEADER_SIZE);
+			return segment;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**
+	 * Blocks until every recorded chunk got passed to the receiver or the transport got closed
+	 */
+	public void awaitEnd() throws InterruptedException {
+		end.await();
+	}
+	
+	/**
+	 * @return false if the replay did not end in time
+	 */
+	public boolean awaitEnd(long timeout, TimeUnit unit) throws InterruptedException {
+		return end.await(timeout, unit);
+	}
+	
+	public long getReplayedBytes() {
+		return replayedBytes;
+	}
+	
+	public long getReplayedChunks() {
+		return replayedChunks;
+	}
+
+	@Override
+	public synchronized void close() {
+		open = false;
+		if(player != null) {
+			LockSupport.unpark(player);
+			player = null;
+		}
+	}
+
+	@Override
+	public boolean isOpen() {
+		return open;
+	}
+
+	@Override
+	public int write(byte[] data, int offset, int length) {
+		return open ? length : -1;
+	}
+
+	@Override
+	public void setBaudRate(int rate) {
+		baudRate = rate;
+	}
+
+	@Override
+	public int getBaudRate() {
+		return baudRate;
+	}
+
+	@Override
+	public int bytesAvailable() {
+		return 0;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+}
@@ -0,0 +1,69 @@
+package serial;
+
+/**
+ * Ends a frame at a multi byte delimiter like \r\n. The delimiter may be split across chunks.
+ * Matching uses the Knuth-Morris-Pratt failure table so every byte gets looked at once
+ */
+public class SequenceDelimiterFramer extends BufferedFramer {
+
+	private final byte[] delimiter;
+	/**
+	 * Length of the longest proper prefix of delimiter[0..i] that is also a suffix of it
+	 */
+	private final int[] failure;
+	private int matched = 0;
+	
+	public SequenceDelimiterFramer(byte... delimiter) {
+		super();
+		if(delimiter.length == 0) throw new RuntimeException("No delimiter");
+		this.delimiter = delimiter.clone();
+		failure = new int[delimiter.length];
+		for (int i = 1, k = 0; i < delimiter.length; i++) {
+			while(k > 0 && delimiter[i] != delimiter[k]) k = failure[k - 1];
+			if(delimiter[i] == delimiter[k]) k++;
+			failure[i] = k;
+		}
+	}
+
+	@Override
+	public void feed(byte[] data, int offset, int length, SerialFrameListener sink) {
+		int end = offset + length;
+		int start = offset;
+		for (int i = offset; i < end; i++) {
+			byte b = data[i];
+			while(matched > 0 && b != delimiter[matched]) matched = failure[matched - 1];
+			if(b == delimiter[matched]) matched++;
+			if(matched == delimiter.length) {
+				matched = 0;
+				if(buffered() == 0 && i + 1 - start >= delimiter.length) { // all of the frame and delimiter in this chunk
+					complete(data, start, i + 1 - start - delimiter.length, sink);
+				} else {
+					append(data, start, i + 1 - start, sink);
+					completeWithoutDelimiter(sink);
+				}
+				start = i + 1;
+			}
+		}
+		if(start < end) {
+			append(data, start, end - start, sink);
+		}
+	}
+	
+	/**
+	 * The start of the delimiter is buffered, so the frame is the buffer minus the delimiter
+	 */
+	private void completeWithoutDelimiter(SerialFrameListener sink) {
+		trim(delimiter.length);
+		complete(sink);
+	}
+	
+	@Override
+	public void reset() {
+		super.reset();
+		matched = 0;
+	}
+	
+	public byte[] getDelimiter() {
+		return delimiter.clone();
+	}
+}
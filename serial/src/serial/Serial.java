@@ -3,13 +3,18 @@ package serial;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-
-import javax.swing.Timer;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 
 import com.fazecast.jSerialComm.SerialPort;
-import com.fazecast.jSerialComm.SerialPortDataListener;
-import com.fazecast.jSerialComm.SerialPortEvent;
 
 /**
  * Libary class for comunication over Serial
@@ -31,30 +36,93 @@ import com.fazecast.jSerialComm.SerialPortEvent;
  */
 public class Serial implements AutoCloseable {
 	
-	private List<SerialReceiveListener> receiveListeners = new ArrayList<>();
-	private List<SerialByteReceiveListener> byteListeners = new ArrayList<>();
-	private SerialPort selectedPort = null;
-	private byte[] buffer;
-	private int bufferSize;
+	private static final int DRAIN_BUDGET = 1 << 16;
+	private static final long DRAIN_WAIT_NANOS = TimeUnit.SECONDS.toNanos(1);
+	
+	private final ListenerRegistry<SerialReceiveListener> receiveListeners = new ListenerRegistry<>();
+	private final ListenerRegistry<SerialChunkReceiveListener> chunkListeners = new ListenerRegistry<>();
+	private final ListenerRegistry<SerialFrameListener> frameListeners = new ListenerRegistry<>();
+	private final ListenerRegistry<SerialTextListener> textListeners = new ListenerRegistry<>();
+	private final ListenerRegistry<SerialOpenListener> openListeners = new ListenerRegistry<>();
+	private final ListenerRegistry<SerialReconnectListener> reconnectListeners = new ListenerRegistry<>();
+	/**
+	 * Reused to dispatch received chunks and frames
+	 */
+	private final Chunk chunk = new Chunk();
+	private final Chunk frame = new Chunk();
+	private volatile SerialTransport transport = null;
+	/**
+	 * Framing
+	 */
+	private volatile SerialFramer framer;
+	private final SerialFrameListener frameDispatcher = this::dispatchFrame;
+	private final ByteCharSequence text = new ByteCharSequence();
+	private final List<SerialPublisher<?>> publishers = new CopyOnWriteArrayList<>();
+	/**
+	 * Pipeline mode
+	 */
+	private volatile ByteRingBuffer ringBuffer = null;
+	private Thread readerThread = null;
+	private Executor pipelineExecutor = null;
+	private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+	private byte[] drainChunk;
+	private volatile Thread drainThread = null;
+	private final Object pipelineLock = new Object();
+	/**
+	 * Write batching
+	 */
+	private byte[] writeBuffer = new byte[256];
+	private int writeBufferSize = 0;
+	private int flushThreshold = 0;
+	private long lingerMillis = 0;
+	private ScheduledFuture<?> lingerFlush = null;
+	private int batchDepth = 0;
 	private Charset charset = StandardCharsets.UTF_8;
 	private byte[] termination = {0, 10, 11, 12, 13};
-	List<SerialOpenListener> openListeners = new ArrayList<>();
+	private int openDelay = 2000;
+	private ScheduledExecutorService scheduler = SerialScheduler.get();
+	protected final SerialMetrics metrics = new SerialMetrics();
+	private int baudRate = 0;
+	/**
+	 * Supervised connection
+	 */
+	private volatile ReconnectPolicy reconnectPolicy = null;
+	private ScheduledFuture<?> supervisor = null;
+	private final AtomicBoolean reconnecting = new AtomicBoolean(false);
+	private volatile long lastReceivedNanos = 0;
+	private volatile long connectionLostNanos = 0;
+	private volatile long lastRecoveryNanos = -1;
+	private volatile int reconnects = 0;
+	/**
+	 * Recording
+	 */
+	private volatile SessionRecorder recorder = null;
 	
 	public void setBaudRate(int rate) {
-		if(selectedPort != null) {
-			selectedPort.setBaudRate(rate);
+		baudRate = rate;
+		if(transport != null) {
+			transport.setBaudRate(rate);
 		}
 	}
 	
 	public Serial() {
-		this(null);
+		this((String) null);
 	}
 	
 	public Serial(String port) {
 		super();
+		framer = new DelimiterFramer(termination);
+		metrics.setDroppedBytesSource(this::getDroppedBytes);
 		selectPort(port);
 	}
 	
+	public Serial(SerialTransport transport) {
+		super();
+		framer = new DelimiterFramer(termination);
+		metrics.setDroppedBytesSource(this::getDroppedBytes);
+		open(transport);
+	}
+	
 	public void printPorts() {
 		System.out.println("Available ports:");
 		for (PortInfo port : getSerialPorts()) {
@@ -63,70 +131,121 @@ public class Serial implements AutoCloseable {
 	}
 	
 	public static List<PortInfo> getSerialPorts() {
-		SerialPort[] ports = getPorts();
 		List<PortInfo> out = new ArrayList<>();
-		for (SerialPort port : ports) {
+		for (SerialPort port : PortRegistry.getInstance().getPorts()) {
 			out.add(new PortInfo(port));
 		}
 		return out;
 	}
 	
-	private static SerialPort[] getPorts() {
-		SerialPort ports[] = SerialPort.getCommPorts();
-		List<SerialPort> cleaned = new ArrayList<>();
-		for (SerialPort serialPort : ports) {
-			boolean found = false;
-			for (SerialPort serialPort2 : cleaned) {
-				if(serialPort2.getSystemPortName().contentEquals(serialPort.getSystemPortName())) {
-					found = true;
-					break;
-				}
-			}
-			if(found) continue;
-			cleaned.add(serialPort);
-		}
-		
-		SerialPort[] arr = new SerialPort[cleaned.size()];
-		for (int i = 0; i < arr.length; i++) {
-			arr[i] = cleaned.get(i);
-		}
-		return arr;
-	}
-	
 	public byte[] getTermination() {
 		return termination;
 	}
 
+	/**
+	 * Frames end at any of the termination bytes. Replaces the current framer with a {@link DelimiterFramer}
+	 */
 	public void setTermination(byte[] termination) {
 		this.termination = termination;
+		setFramer(new DelimiterFramer(termination));
+	}
+	
+	public SerialFramer getFramer() {
+		return framer;
+	}
+	
+	/**
+	 * Sets how received bytes get cut into the frames passed to frame, text and receive listeners.
+	 * Default is a {@link DelimiterFramer} on the termination bytes
+	 */
+	public void setFramer(SerialFramer framer) {
+		this.framer = framer;
+	}
+	
+	/**
+	 * Frame listeners get every frame as a byte view
+	 */
+	public boolean addFrameListener(SerialFrameListener l) {
+		return frameListeners.add(l);
+	}
+	
+	/**
+	 * @param executor runs the listener off the receiving thread. It gets a copy of the frame
+	 */
+	public boolean addFrameListener(SerialFrameListener l, Executor executor) {
+		return frameListeners.add(l, executor);
+	}
+	
+	public boolean removeFrameListener(SerialFrameListener l) {
+		return frameListeners.remove(l);
+	}
+	
+	/**
+	 * Text listeners get every frame as a CharSequence view
+	 */
+	public boolean addTextListener(SerialTextListener l) {
+		return textListeners.add(l);
+	}
+	
+	/**
+	 * @param executor runs the listener off the receiving thread. It gets the line as a String
+	 */
+	public boolean addTextListener(SerialTextListener l, Executor executor) {
+		return textListeners.add(l, executor);
+	}
+	
+	public boolean removeTextListener(SerialTextListener l) {
+		return textListeners.remove(l);
 	}
 
 	public boolean addReceiveListener(SerialReceiveListener l) {
 		return receiveListeners.add(l);
 	}
 	
+	/**
+	 * @param executor runs the listener off the receiving thread
+	 */
+	public boolean addReceiveListener(SerialReceiveListener l, Executor executor) {
+		return receiveListeners.add(l, executor);
+	}
+	
 	public boolean removeReceiveListener(SerialReceiveListener l) {
 		return receiveListeners.remove(l);
 	}
 	
+	/**
+	 * Per byte listeners get called for every byte. Prefer {@link #addChunkReceiveListener(SerialChunkReceiveListener)} for high baud rates
+	 */
 	public boolean addByteReceiveListener(SerialByteReceiveListener l) {
-		return byteListeners.add(l);
+		return chunkListeners.add(new SerialByteListenerAdapter(l));
 	}
 	
 	public boolean removeByteReceiveListener(SerialByteReceiveListener l) {
-		return byteListeners.remove(l);
+		return chunkListeners.remove(new SerialByteListenerAdapter(l));
+	}
+	
+	public boolean addChunkReceiveListener(SerialChunkReceiveListener l) {
+		return chunkListeners.add(l);
+	}
+	
+	/**
+	 * @param executor runs the listener off the receiving thread. It gets a copy of the chunk
+	 */
+	public boolean addChunkReceiveListener(SerialChunkReceiveListener l, Executor executor) {
+		return chunkListeners.add(l, executor);
+	}
+	
+	public boolean removeChunkReceiveListener(SerialChunkReceiveListener l) {
+		return chunkListeners.remove(l);
 	}
 	
 	private SerialPort getPort(String name) {
 		if(name == null) return null;
-		SerialPort[] ports = getPorts();
-		for (SerialPort port : ports) {
-			if(port.getSystemPortName().contentEquals(name) || port.getDescriptivePortName().contentEquals(name) || port.getPortDescription().contentEquals(name)) {
-				return port;
-			}
+		SerialPort port = PortRegistry.getInstance().find(name);
+		if(port == null) {
+			System.err.println("no port");
 		}
-		System.err.println("no port");
-		return null;
+		return port;
 	}
 	public boolean selectPort(String name) {
 		SerialPort port = getPort(name);
@@ -135,96 +254,478 @@ public class Serial implements AutoCloseable {
 		return true;
 	}
 	
-	private void closePort(SerialPort port) {
-		port.removeDataListener();
-		port.closePort();
-	}
-	
 	public boolean isConnected() {
-		return selectedPort != null && selectedPort.isOpen();
+		return transport != null && transport.isOpen();
 	}
 	
 	private void openPort(SerialPort port) {
-		if(selectedPort != null) {
-			closePort(selectedPort);
-		}
-		System.out.println(port.getDescriptivePortName());
-		selectedPort = port;
-		port.openPort();
-		System.out.println("initiating " + port);
-		buffer = new byte[10000];
-		bufferSize = 0;
-		System.out.println("Read buffer size: " + port.getDeviceReadBufferSize());
-		System.out.println("Write buffer size: " + port.getDeviceWriteBufferSize());
-		System.out.println(port.bytesAvailable() + "bytes available");
-		System.out.println("baud rate: " + port.getBaudRate());
-//		port.setBaudRate(115200);
-		port.addDataListener(new SerialPortDataListener() {
-			@Override
-			public void serialEvent(SerialPortEvent arg0) {
-				for (byte b : arg0.getReceivedData()) {
-//					System.out.println(b);
-					for (SerialByteReceiveListener l : byteListeners) {
-						l.byteReceived(b); // conversion from signed to unsigned
-//						l.byteReceived(b & 0xff); // conversion from signed to unsigned
-					}
-					if(isTermination(b)) {
-						processBuffer();
-					} else {
-						buffer[bufferSize] = b;
-						bufferSize++;
-					}
-				}
+		open(new JSerialCommTransport(port));
+	}
+	
+	/**
+	 * Closes the current transport and opens the given one instead
+	 * @return true if the transport could be opened
+	 */
+	public boolean open(SerialTransport transport) {
+		return open(transport, false);
+	}
+	
+	private boolean open(SerialTransport transport, boolean reconnect) {
+		if(this.transport != null) {
+			this.transport.close();
+		}
+		this.transport = transport;
+		framer.reset();
+		lastReceivedNanos = System.nanoTime();
+		boolean opened = transport.open((data, offset, length) -> {
+			metrics.bytesIn.add(length);
+			lastReceivedNanos = System.nanoTime();
+			SessionRecorder r = recorder;
+			if(r != null) {
+				r.record(SessionRecorder.RECEIVED, data, offset, length);
 			}
-			
-			@Override
-			public int getListeningEvents() {
-				return SerialPort.LISTENING_EVENT_DATA_RECEIVED;
+			ByteRingBuffer ring = ringBuffer;
+			if(ring != null) {
+				ring.offer(data, offset, length);
+			} else {
+				received(data, offset, length);
 			}
 		});
-		Timer t = new Timer(2000, e -> {
-			for (SerialOpenListener l : openListeners) {
-				l.deviceOpened();
+		if(!opened) return false;
+		if(baudRate > 0) {
+			transport.setBaudRate(baudRate);
+		}
+		scheduler.schedule(() -> {
+			if(reconnect) {
+				onReconnected();
 			}
-			((Timer) e.getSource()).stop();
+			openListeners.dispatch((l, arg) -> l.deviceOpened(), null);
+		}, openDelay, TimeUnit.MILLISECONDS);
+		return true;
+	}
+	
+	/**
+	 * Supervises the connection. It counts as lost when writing fails, the transport reports the device
+	 * as gone or, if configured, nothing got received for a while. The port then gets reopened with
+	 * exponential backoff, the baud rate gets reapplied and the open listeners get called again
+	 */
+	public synchronized void enableAutoReconnect(ReconnectPolicy policy) {
+		disableAutoReconnect();
+		reconnectPolicy = policy;
+		supervisor = scheduler.scheduleWithFixedDelay(this::checkConnection, policy.getCheckInterval(), policy.getCheckInterval(), TimeUnit.MILLISECONDS);
+	}
+	
+	public synchronized void disableAutoReconnect() {
+		reconnectPolicy = null;
+		if(supervisor != null) {
+			supervisor.cancel(false);
+			supervisor = null;
+		}
+	}
+	
+	private void checkConnection() {
+		SerialTransport transport = this.transport;
+		ReconnectPolicy policy = reconnectPolicy;
+		if(transport == null || policy == null || reconnecting.get()) return;
+		if(!transport.isAlive()) {
+			connectionLost();
+		} else if(policy.getReadSilence() > 0 && System.nanoTime() - lastReceivedNanos > TimeUnit.MILLISECONDS.toNanos(policy.getReadSilence())) {
+			connectionLost();
+		}
+	}
+	
+	private void connectionLost() {
+		if(reconnectPolicy == null || !reconnecting.compareAndSet(false, true)) return;
+		connectionLostNanos = System.nanoTime();
+		String name = transport.getName();
+		transport.close();
+		/*
+		 * Writers get here holding the lock of this Serial, so the listeners run on the scheduler
+		 */
+		scheduler.execute(() -> {
+			onConnectionLost();
+			reconnectListeners.dispatch((l, n) -> l.connectionLost(n), name);
+			scheduleReconnect(0);
 		});
-		t.start();
 	}
 	
-	private boolean isTermination(byte b) {
-		for (byte t : termination) {
-			if(t == b) {
-				return true;
-			}
+	private void scheduleReconnect(int attempt) {
+		ReconnectPolicy policy = reconnectPolicy;
+		if(policy == null) {
+			reconnecting.set(false);
+			return;
 		}
-		return false;
+		scheduler.schedule(() -> reconnect(attempt), policy.delay(attempt), TimeUnit.MILLISECONDS);
 	}
 	
-	private void processBuffer() {
-		if(bufferSize == 0)
+	private void reconnect(int attempt) {
+		if(reconnectPolicy == null) {
+			reconnecting.set(false);
 			return;
-		String msg = new String(buffer, 0, bufferSize, charset);
-//		System.out.println("received: " + msg);
-		bufferSize = 0;
-		for (SerialReceiveListener listener : receiveListeners) {
-			listener.receive(msg);
 		}
+		SerialTransport next = transport.recreate();
+		if(next != null && open(next, true)) {
+			lastRecoveryNanos = System.nanoTime() - connectionLostNanos;
+			reconnects++;
+			reconnecting.set(false);
+			long recovery = lastRecoveryNanos;
+			reconnectListeners.dispatch((l, n) -> l.reconnected(n, recovery), next.getName());
+		} else {
+			scheduleReconnect(attempt + 1);
+		}
+	}
+	
+	/**
+	 * Gets the exceptions thrown by the listeners of this Serial instead of {@link ListenerRegistry#getDefaultErrorHandler()}
+	 * 
+	 * @param errorHandler null for the default
+	 */
+	public void setListenerErrorHandler(ListenerErrorHandler errorHandler) {
+		receiveListeners.setErrorHandler(errorHandler);
+		chunkListeners.setErrorHandler(errorHandler);
+		frameListeners.setErrorHandler(errorHandler);
+		textListeners.setErrorHandler(errorHandler);
+		openListeners.setErrorHandler(errorHandler);
+		reconnectListeners.setErrorHandler(errorHandler);
+	}
+	
+	/**
+	 * Reconnect listeners get called when the supervised connection drops and when it got reopened
+	 */
+	public boolean addReconnectListener(SerialReconnectListener l) {
+		return reconnectListeners.add(l);
+	}
+	
+	public boolean removeReconnectListener(SerialReconnectListener l) {
+		return reconnectListeners.remove(l);
+	}
+	
+	/**
+	 * Called on the scheduler after the connection got lost, before the reconnect listeners
+	 */
+	protected void onConnectionLost() {
+	}
+	
+	/**
+	 * Called after a lost connection has been reopened, before the open listeners
+	 */
+	protected void onReconnected() {
+	}
+	
+	/**
+	 * @return true while the connection is lost and reconnect attempts are running
+	 */
+	public boolean isReconnecting() {
+		return reconnecting.get();
+	}
+	
+	/**
+	 * @return nanoseconds between losing and reopening the connection the last time or -1 if it never got lost
+	 */
+	public long getLastRecoveryNanos() {
+		return lastRecoveryNanos;
+	}
+	
+	/**
+	 * @return number of successful reconnects
+	 */
+	public int getReconnects() {
+		return reconnects;
+	}
+	
+	/**
+	 * @return scheduler for open notifications and timed flushes. Shared by all ports by default
+	 */
+	public ScheduledExecutorService getScheduler() {
+		return scheduler;
+	}
+	
+	public void setScheduler(ScheduledExecutorService scheduler) {
+		this.scheduler = scheduler;
+	}
+	
+	/**
+	 * @return total number of bytes received from all transports
+	 */
+	public long getBytesReceived() {
+		return metrics.getBytesIn();
+	}
+	
+	/**
+	 * @return total number of bytes written to all transports
+	 */
+	public long getBytesSent() {
+		return metrics.getBytesOut();
+	}
+	
+	public SerialMetrics getMetrics() {
+		return metrics;
+	}
+	
+	/**
+	 * Exports the metrics every periodMillis on the scheduler of this port
+	 * @return handle to stop exporting
+	 */
+	public ScheduledFuture<?> exportMetrics(String name, MetricsExporter exporter, long periodMillis) {
+		return scheduler.scheduleAtFixedRate(() -> exporter.export(name, metrics), 0, periodMillis, TimeUnit.MILLISECONDS);
+	}
+	
+	public SerialTransport getTransport() {
+		return transport;
+	}
+	
+	/**
+	 * @return milliseconds between opening and notifying the open listeners
+	 */
+	public int getOpenDelay() {
+		return openDelay;
+	}
+	
+	/**
+	 * Arduinos reboot when the port gets opened, so open listeners get called 2000ms after opening by default
+	 */
+	public void setOpenDelay(int openDelay) {
+		this.openDelay = openDelay;
+	}
+	
+	/**
+	 * Dispatches one chunk of received bytes to all chunk listeners and cuts it into frames.
+	 * Framing is skipped while nobody listens for frames
+	 */
+	void received(byte[] data, int offset, int length) {
+		long start = System.nanoTime();
+		chunkListeners.dispatch((l, c) -> l.chunkReceived(c.data, c.offset, c.length), chunk.set(data, offset, length), Chunk::copy);
+		if(!frameListeners.isEmpty() || !textListeners.isEmpty() || !receiveListeners.isEmpty()) {
+			framer.feed(data, offset, length, frameDispatcher);
+		}
+		metrics.dispatch.record(System.nanoTime() - start);
+	}
+	
+	private void dispatchFrame(byte[] data, int offset, int length) {
+		frameListeners.dispatch((l, f) -> l.frameReceived(f.data, f.offset, f.length), frame.set(data, offset, length), Chunk::copy);
+		if(!textListeners.isEmpty()) {
+			textListeners.dispatch((l, t) -> l.lineReceived(t), text.bind(data, offset, length, charset), CharSequence::toString);
+		}
+		if(!receiveListeners.isEmpty()) {
+			String msg = new String(data, offset, length, charset);
+//			System.out.println("received: " + msg);
+			receiveListeners.dispatch((l, m) -> l.receive(m), msg);
+		}
+	}
+	
+	/**
+	 * Enables pipeline mode. Received bytes get copied into a ring buffer by the port thread
+	 * and a separate reader thread does framing and calls the listeners,
+	 * so slow listeners no longer stall the port.
+	 * 
+	 * @param capacity size of the ring buffer in bytes
+	 * @param policy what to do with incoming bytes if the reader thread falls behind
+	 */
+	public void enablePipeline(int capacity, OverflowPolicy policy) {
+		synchronized (pipelineLock) {
+			disablePipeline();
+			ByteRingBuffer ring = new ByteRingBuffer(capacity, policy);
+			Thread thread = new Thread(() -> {
+				byte[] chunk = new byte[Math.min(ring.capacity(), 4096)];
+				while(!ring.isClosed() || !ring.isEmpty()) {
+					int n = ring.poll(chunk);
+					if(n == 0) {
+						if(ring.isClosed()) break;
+						ring.awaitData();
+						continue;
+					}
+					received(chunk, 0, n);
+				}
+			}, "Serial reader");
+			thread.setDaemon(true);
+			ringBuffer = ring;
+			readerThread = thread;
+			thread.start();
+		}
+	}
+	
+	/**
+	 * Pipeline mode without a thread of its own. Whenever bytes arrive a task draining the ring buffer
+	 * gets submitted to the executor, at most one at a time, so many ports can share a small pool
+	 * 
+	 * @param capacity size of the ring buffer in bytes
+	 * @param policy what to do with incoming bytes if the executor falls behind
+	 * @param executor runs the framing and listeners
+	 */
+	public void enablePipeline(int capacity, OverflowPolicy policy, Executor executor) {
+		synchronized (pipelineLock) {
+			disablePipeline();
+			drainChunk = new byte[Math.min(capacity, 4096)];
+			pipelineExecutor = executor;
+			ringBuffer = new ByteRingBuffer(capacity, policy, this::scheduleDrain);
+		}
+	}
+	
+	private void scheduleDrain() {
+		if(drainScheduled.compareAndSet(false, true)) {
+			Executor executor = pipelineExecutor;
+			try {
+				if(executor == null) throw new RejectedExecutionException();
+				executor.execute(this::drain);
+			} catch (RejectedExecutionException e) {
+				/*
+				 * executor got shut down, bytes stay in the ring until disablePipeline
+				 */
+				drainScheduled.set(false);
+			}
+		}
+	}
+	
+	/**
+	 * Processes up to DRAIN_BUDGET bytes and resubmits itself if there are more, so other ports get their turn.
+	 * If a listener disabled the pipeline meanwhile the rest of the ring gets processed here
+	 */
+	private void drain() {
+		ByteRingBuffer ring = ringBuffer;
+		if(ring != null) {
+			drainThread = Thread.currentThread();
+			try {
+				int budget = DRAIN_BUDGET;
+				while(budget > 0 || ringBuffer != ring) {
+					int n = ring.poll(drainChunk);
+					if(n == 0) break;
+					received(drainChunk, 0, n);
+					budget -= n;
+				}
+			} finally {
+				drainThread = null;
+			}
+		}
+		drainScheduled.set(false);
+		if(ring != null && !ring.isEmpty() && ringBuffer == ring) {
+			scheduleDrain();
+		}
+	}
+	
+	/**
+	 * Stops the reader after it processed all buffered bytes and goes back to
+	 * calling listeners from the port thread
+	 */
+	public void disablePipeline() {
+		synchronized (pipelineLock) {
+			ByteRingBuffer ring = ringBuffer;
+			if(ring == null) return;
+			ringBuffer = null;
+			ring.close();
+			if(readerThread != null) {
+				if(readerThread != Thread.currentThread()) {
+					try {
+						readerThread.join();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				readerThread = null;
+			} else {
+				/*
+				 * called from a listener inside drain, which processes the rest of the ring itself
+				 */
+				if(drainThread != Thread.currentThread() && awaitDrain()) {
+					int n;
+					while((n = ring.poll(drainChunk)) > 0) {
+						received(drainChunk, 0, n);
+					}
+				}
+				pipelineExecutor = null;
+			}
+		}
+	}
+	
+	/**
+	 * Waits for a scheduled drain to finish, at most DRAIN_WAIT_NANOS in case the executor never runs it
+	 * 
+	 * @return true if no drain is pending anymore
+	 */
+	private boolean awaitDrain() {
+		long deadline = System.nanoTime() + DRAIN_WAIT_NANOS;
+		while(drainScheduled.get()) {
+			if(System.nanoTime() - deadline > 0) return false;
+			LockSupport.parkNanos(50_000);
+		}
+		return true;
+	}
+	
+	public boolean isPipelined() {
+		return ringBuffer != null;
+	}
+	
+	/**
+	 * @return bytes discarded by the overflow policy of the current pipeline
+	 */
+	public long getDroppedBytes() {
+		ByteRingBuffer ring = ringBuffer;
+		return ring == null ? 0 : ring.getDroppedBytes();
+	}
+	
+	/**
+	 * Publishes every received line as a String. Subscribers get completed by {@link #close()},
+	 * closing the publisher stops feeding it
+	 * 
+	 * @param bufferSize lines buffered per subscriber
+	 * @param policy what to do with new lines for a subscriber with a full buffer
+	 */
+	public SerialPublisher<String> publishLines(int bufferSize, OverflowPolicy policy) {
+		SerialPublisher<String> publisher = new SerialPublisher<>(bufferSize, policy);
+		SerialReceiveListener listener = line -> {
+			if(publisher.hasSubscribers()) publisher.submit(line);
+		};
+		addReceiveListener(listener);
+		publishers.add(publisher);
+		publisher.onClose(() -> {
+			removeReceiveListener(listener);
+			publishers.remove(publisher);
+		});
+		return publisher;
+	}
+	
+	/**
+	 * Publishes every received chunk as a copy. Subscribers get completed by {@link #close()},
+	 * closing the publisher stops feeding it
+	 * 
+	 * @param bufferSize chunks buffered per subscriber
+	 * @param policy what to do with new chunks for a subscriber with a full buffer
+	 */
+	public SerialPublisher<byte[]> publishChunks(int bufferSize, OverflowPolicy policy) {
+		SerialPublisher<byte[]> publisher = new SerialPublisher<>(bufferSize, policy);
+		SerialChunkReceiveListener listener = (data, offset, length) -> {
+			if(publisher.hasSubscribers()) publisher.submit(Arrays.copyOfRange(data, offset, offset + length));
+		};
+		addChunkReceiveListener(listener);
+		publishers.add(publisher);
+		publisher.onClose(() -> {
+			removeChunkReceiveListener(listener);
+			publishers.remove(publisher);
+		});
+		return publisher;
 	}
 	
 	public void close() {
-		if(selectedPort == null) {
+		disableAutoReconnect();
+		flush();
+		disablePipeline();
+		for (SerialPublisher<?> publisher : publishers) {
+			publisher.close();
+		}
+		if(transport == null) {
 			return;
 		}
-		closePort(selectedPort);
+		transport.close();
 	}
 	
 	public synchronized boolean println(String msg) {
 		msg += '\n';
-		return print(msg.getBytes(charset), msg.length());
+		byte[] bytes = msg.getBytes(charset);
+		return print(bytes, bytes.length);
 	}
 	
 	public synchronized boolean print(String msg) {
-		return print(msg.getBytes(charset), msg.length() + 1);
+		byte[] bytes = msg.getBytes(charset);
+		return print(bytes, bytes.length);
 	}
 	
 	public synchronized boolean print(byte[] msg) {
@@ -232,14 +733,138 @@ public class Serial implements AutoCloseable {
 	}
 	
 	public synchronized boolean print(byte[] msg, int size) {
-		if(selectedPort == null) {
+		if(transport == null) {
 			System.out.println("no port");
 			return false;
 		}
-		selectedPort.writeBytes(msg, size);
+		if(flushThreshold == 0 && batchDepth == 0) {
+			return write(msg, size);
+		}
+		if(writeBufferSize + size > writeBuffer.length) {
+			writeBuffer = Arrays.copyOf(writeBuffer, Math.max(writeBuffer.length * 2, writeBufferSize + size));
+		}
+		System.arraycopy(msg, 0, writeBuffer, writeBufferSize, size);
+		writeBufferSize += size;
+		if(batchDepth > 0) return true;
+		if(writeBufferSize >= flushThreshold) {
+			return flush();
+		}
+		if(lingerMillis > 0 && lingerFlush == null) {
+			lingerFlush = scheduler.schedule(this::flush, lingerMillis, TimeUnit.MILLISECONDS);
+		}
+		return true;
+	}
+	
+	/**
+	 * Writes at once, past bytes waiting in the write batch buffer. Those follow with the next flush
+	 * @return false without a port
+	 */
+	public synchronized boolean printImmediately(byte[] msg, int size) {
+		if(transport == null) return false;
+		return write(msg, size);
+	}
+	
+	private boolean write(byte[] msg, int size) {
+		int written = transport.write(msg, 0, size);
+		if(written < 0) {
+			connectionLost();
+			return false;
+		}
+		metrics.bytesOut.add(written);
+		SessionRecorder r = recorder;
+		if(r != null) {
+			r.record(SessionRecorder.SENT, msg, 0, written);
+		}
 		return true;
 	}
 	
+	/**
+	 * Records every received and sent chunk from now on
+	 * @see ReplayTransport
+	 */
+	public void startRecording(SessionRecorder recorder) {
+		this.recorder = recorder;
+	}
+	
+	/**
+	 * Stops recording. The recorder stays open
+	 * @return the recorder or null if none was recording
+	 */
+	public SessionRecorder stopRecording() {
+		SessionRecorder r = recorder;
+		recorder = null;
+		return r;
+	}
+	
+	public boolean isRecording() {
+		return recorder != null;
+	}
+	
+	/**
+	 * Collects written frames and sends them in one write once flushThreshold bytes are buffered,
+	 * lingerMillis passed since the first buffered write or {@link #flush()} gets called
+	 * 
+	 * @param flushThreshold number of buffered bytes that trigger a write
+	 * @param lingerMillis max time bytes stay buffered. 0 to only flush on size or explicitly
+	 */
+	public synchronized void enableWriteBatching(int flushThreshold, long lingerMillis) {
+		if(flushThreshold < 1) throw new RuntimeException("flushThreshold cant be < 1");
+		this.flushThreshold = flushThreshold;
+		this.lingerMillis = lingerMillis;
+		if(writeBuffer.length < flushThreshold) {
+			writeBuffer = Arrays.copyOf(writeBuffer, flushThreshold);
+		}
+	}
+	
+	public synchronized void disableWriteBatching() {
+		flushThreshold = 0;
+		lingerMillis = 0;
+		flush();
+	}
+	
+	/**
+	 * Writes all buffered bytes
+	 * @return false if writing failed
+	 */
+	public synchronized boolean flush() {
+		if(lingerFlush != null) {
+			lingerFlush.cancel(false);
+			lingerFlush = null;
+		}
+		if(writeBufferSize == 0 || transport == null) {
+			return true;
+		}
+		boolean success = write(writeBuffer, writeBufferSize);
+		writeBufferSize = 0;
+		return success;
+	}
+	
+	/**
+	 * Buffers all following writes until the matching {@link #commit()} so they go out in one write.
+	 * Batches can be nested, the outermost commit writes
+	 */
+	public synchronized void beginBatch() {
+		batchDepth++;
+	}
+	
+	/**
+	 * @return number of open batches
+	 */
+	protected synchronized int getBatchDepth() {
+		return batchDepth;
+	}
+	
+	/**
+	 * Ends a batch started by {@link #beginBatch()}
+	 * @return false if writing failed
+	 */
+	public synchronized boolean commit() {
+		if(batchDepth == 0) throw new RuntimeException("commit without beginBatch");
+		batchDepth--;
+		if(batchDepth > 0) return true;
+		return flush();
+	}
+	
 //	public synchronized void write(int b) {
 //		if(b > 127) b = b - 127;
 //		byte[] bytes = {b};
@@ -247,14 +872,42 @@ public class Serial implements AutoCloseable {
 //	}
 	
 	public int available() {
-		return selectedPort.bytesAvailable();
+		return transport.bytesAvailable();
 	}
 	
 	public boolean addOpenListeners(SerialOpenListener l) {
 		return openListeners.add(l);
 	}
 	
+	/**
+	 * @param executor runs the listener instead of the scheduler thread
+	 */
+	public boolean addOpenListeners(SerialOpenListener l, Executor executor) {
+		return openListeners.add(l, executor);
+	}
+	
 	public boolean removeOpenListeners(SerialOpenListener l) {
 		return openListeners.remove(l);
 	}
+	
+	/**
+	 * Byte range passed to chunk and frame listeners
+	 */
+	private static class Chunk {
+		
+		byte[] data;
+		int offset;
+		int length;
+		
+		Chunk set(byte[] data, int offset, int length) {
+			this.data = data;
+			this.offset = offset;
+			this.length = length;
+			return this;
+		}
+		
+		Chunk copy() {
+			return new Chunk().set(Arrays.copyOfRange(data, offset, offset + length), 0, length);
+		}
+	}
 }
@@ -0,0 +1,35 @@
+package serial;
+
+/**
+ * Feeds received chunks byte by byte into a {@link SerialByteReceiveListener}
+ */
+class SerialByteListenerAdapter implements SerialChunkReceiveListener {
+
+	final SerialByteReceiveListener listener;
+	
+	SerialByteListenerAdapter(SerialByteReceiveListener listener) {
+		super();
+		this.listener = listener;
+	}
+
+	@Override
+	public void chunkReceived(byte[] data, int offset, int length) {
+		int end = offset + length;
+		for (int i = offset; i < end; i++) {
+			listener.byteReceived(data[i]);
+		}
+	}
+	
+	/**
+	 * Adapters of the same listener are equal so the listener can be removed
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof SerialByteListenerAdapter && ((SerialByteListenerAdapter) obj).listener == listener;
+	}
+	
+	@Override
+	public int hashCode() {
+		return System.identityHashCode(listener);
+	}
+}
@@ -0,0 +1,13 @@
+package serial;
+
+/**
+ * Receives every chunk of bytes read from the port in one call.
+ * The array is reused by the caller and only valid for the duration of the call.
+ */
+public interface SerialChunkReceiveListener {
+
+	/**
+	 * Called with the bytes data[offset] to data[offset + length - 1]
+	 */
+	public void chunkReceived(byte[] data, int offset, int length);
+}
@@ -0,0 +1,31 @@
+package serial;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import serial.ArduinoField.ArduinoType;
+
+/**
+ * Declares a field on a method of a schema interface for {@link FieldSchema#bind(Class, ArduinoSerialInterface)}.
+ * The method name is the name of the field and its return type the {@link FieldAccessor} matching type and qty
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface SerialField {
+
+	/**
+	 * ID in arduino
+	 */
+	int id();
+	
+	ArduinoType type();
+	
+	int qty() default 1;
+	
+	/**
+	 * Value of one step of Fixed16 and Fixed32 fields
+	 */
+	double scale() default 1;
+}
@@ -0,0 +1,13 @@
+package serial;
+
+/**
+ * Receives every complete frame cut by the {@link SerialFramer} of a {@link Serial}.
+ * The array is reused by the caller and only valid for the duration of the call.
+ */
+public interface SerialFrameListener {
+
+	/**
+	 * Called with the frame data[offset] to data[offset + length - 1], without delimiters or escaping
+	 */
+	public void frameReceived(byte[] data, int offset, int length);
+}
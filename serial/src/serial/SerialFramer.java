@@ -0,0 +1,24 @@
+package serial;
+
+/**
+ * Cuts the received byte stream of a {@link Serial} into frames.
+ * Implementations keep partial frames between calls and are only fed by one thread at a time.
+ * 
+ * @see DelimiterFramer
+ * @see SequenceDelimiterFramer
+ * @see LengthPrefixFramer
+ * @see CobsFramer
+ * @see SlipFramer
+ */
+public interface SerialFramer {
+
+	/**
+	 * Scans the bytes data[offset] to data[offset + length - 1] and passes every frame completed by them to the sink
+	 */
+	public void feed(byte[] data, int offset, int length, SerialFrameListener sink);
+	
+	/**
+	 * Drops a partially received frame
+	 */
+	public void reset();
+}
@@ -0,0 +1,210 @@
+package serial;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drives many ports from one small thread pool. Every added port runs in pipeline mode on the pool
+ * instead of a reader thread of its own, and open notifications and timed flushes of all ports run
+ * on the same pool instead of a timer per port:
+ * 
+ * 	SerialHub hub = new SerialHub(4);
+ * 	for (String name : names) {
+ * 		ArduinoSerialInterface board = hub.open(new ArduinoSerialInterface(), name);
+ * 	}
+ * 	hub.printThroughput(System.out);
+ */
+public class SerialHub implements AutoCloseable {
+	
+	private static final int DEFAULT_CAPACITY = 1 << 16;
+
+	private final ScheduledThreadPoolExecutor executor;
+	private final List<PortStats> ports = new CopyOnWriteArrayList<>();
+	private int capacity = DEFAULT_CAPACITY;
+	private OverflowPolicy policy = OverflowPolicy.DROP_OLDEST;
+	
+	/**
+	 * @param threads number of threads shared by all ports
+	 */
+	public SerialHub(int threads) {
+		super();
+		AtomicInteger count = new AtomicInteger();
+		executor = new ScheduledThreadPoolExecutor(threads, r -> {
+			Thread t = new Thread(r, "SerialHub-" + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+		executor.setRemoveOnCancelPolicy(true);
+		executor.scheduleAtFixedRate(this::sample, 1, 1, TimeUnit.SECONDS);
+	}
+	
+	/**
+	 * Sets the ring buffer size and overflow policy used for ports added from now on
+	 */
+	public void setPipeline(int capacity, OverflowPolicy policy) {
+		this.capacity = capacity;
+		this.policy = policy;
+	}
+	
+	/**
+	 * Moves an existing port onto the hub
+	 */
+	public <T extends Serial> T add(T serial) {
+		serial.setScheduler(executor);
+		serial.enablePipeline(capacity, policy, executor);
+		ports.add(new PortStats(serial));
+		return serial;
+	}
+	
+	/**
+	 * Adds the port and opens the transport
+	 */
+	public <T extends Serial> T open(T serial, SerialTransport transport) {
+		add(serial);
+		serial.open(transport);
+		return serial;
+	}
+	
+	/**
+	 * Adds the port and selects the port by name
+	 * @see Serial#selectPort(String)
+	 */
+	public <T extends Serial> T open(T serial, String portName) {
+		add(serial);
+		serial.selectPort(portName);
+		return serial;
+	}
+	
+	/**
+	 * Removes the port from the hub and closes it
+	 */
+	public boolean remove(Serial serial) {
+		for (PortStats stats : ports) {
+			if(stats.serial == serial) {
+				ports.remove(stats);
+				serial.close();
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	public List<Serial> getPorts() {
+		List<Serial> out = new ArrayList<>();
+		for (PortStats stats : ports) {
+			out.add(stats.serial);
+		}
+		return out;
+	}
+	
+	/**
+	 * @return throughput of every port, updated once per second
+	 */
+	public List<PortStats> getThroughput() {
+		return new ArrayList<>(ports);
+	}
+	
+	public long getTotalBytesPerSecondIn() {
+		long sum = 0;
+		for (PortStats stats : ports) {
+			sum += stats.bytesPerSecondIn;
+		}
+		return sum;
+	}
+	
+	public long getTotalBytesPerSecondOut() {
+		long sum = 0;
+		for (PortStats stats : ports) {
+			sum += stats.bytesPerSecondOut;
+		}
+		return sum;
+	}
+	
+	/**
+	 * Prints the throughput of every port and the total to out
+	 */
+	public void printThroughput(PrintStream out) {
+		out.println("Throughput (in / out bytes per second):");
+		for (PortStats stats : ports) {
+			out.println("\t" + stats);
+		}
+		out.println("\ttotal: " + getTotalBytesPerSecondIn() + " / " + getTotalBytesPerSecondOut());
+	}
+	
+	public ScheduledThreadPoolExecutor getExecutor() {
+		return executor;
+	}
+	
+	private void sample() {
+		long now = System.nanoTime();
+		for (PortStats stats : ports) {
+			stats.sample(now);
+		}
+	}
+
+	/**
+	 * Closes all ports and stops the threads
+	 */
+	@Override
+	public void close() {
+		for (PortStats stats : ports) {
+			stats.serial.close();
+		}
+		ports.clear();
+		executor.shutdown();
+	}
+	
+	/**
+	 * Throughput of one port
+	 */
+	public static class PortStats {
+		
+		private final Serial serial;
+		private long lastSample = System.nanoTime();
+		private long lastBytesIn;
+		private long lastBytesOut;
+		private volatile long bytesPerSecondIn = 0;
+		private volatile long bytesPerSecondOut = 0;
+		
+		private PortStats(Serial serial) {
+			super();
+			this.serial = serial;
+			this.lastBytesIn = serial.getBytesReceived();
+			this.lastBytesOut = serial.getBytesSent();
+		}
+		
+		private void sample(long now) {
+			long in = serial.getBytesReceived();
+			long out = serial.getBytesSent();
+			long elapsed = Math.max(1, now - lastSample);
+			bytesPerSecondIn = (in - lastBytesIn) * TimeUnit.SECONDS.toNanos(1) / elapsed;
+			bytesPerSecondOut = (out - lastBytesOut) * TimeUnit.SECONDS.toNanos(1) / elapsed;
+			lastSample = now;
+			lastBytesIn = in;
+			lastBytesOut = out;
+		}
+		
+		public Serial getSerial() {
+			return serial;
+		}
+		
+		public long getBytesPerSecondIn() {
+			return bytesPerSecondIn;
+		}
+		
+		public long getBytesPerSecondOut() {
+			return bytesPerSecondOut;
+		}
+		
+		@Override
+		public String toString() {
+			SerialTransport transport = serial.getTransport();
+			return (transport == null ? "not connected" : transport.getName()) + ": " + bytesPerSecondIn + " / " + bytesPerSecondOut;
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package serial;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Counters and histograms of one {@link Serial}. All counters are striped so updating them
+ * from the port thread costs next to nothing. Export them with a {@link MetricsExporter}
+ */
+public class SerialMetrics implements SerialMetricsMXBean {
+
+	final LongAdder bytesIn = new LongAdder();
+	final LongAdder bytesOut = new LongAdder();
+	final LongAdder getFrames = new LongAdder();
+	final LongAdder setFrames = new LongAdder();
+	final LongAdder groupFrames = new LongAdder();
+	final LongAdder droppedGroups = new LongAdder();
+	final LongAdder executeFrames = new LongAdder();
+	final LongAdder checksumFailures = new LongAdder();
+	final LongAdder frameTimeouts = new LongAdder();
+	final LongAdder overflowResets = new LongAdder();
+	final LatencyHistogram dispatch = new LatencyHistogram();
+	final LatencyHistogram getRoundTrip = new LatencyHistogram();
+	private final AtomicReferenceArray<LatencyHistogram> getRoundTripById = new AtomicReferenceArray<>(256);
+	private volatile LongSupplier droppedBytes = () -> 0;
+	
+	void setDroppedBytesSource(LongSupplier droppedBytes) {
+		this.droppedBytes = droppedBytes;
+	}
+	
+	void recordGetRoundTrip(int id, long nanos) {
+		getRoundTrip.record(nanos);
+		LatencyHistogram histogram = getRoundTripById.get(id);
+		if(histogram == null) {
+			getRoundTripById.compareAndSet(id, null, new LatencyHistogram());
+			histogram = getRoundTripById.get(id);
+		}
+		histogram.record(nanos);
+	}
+	
+	/**
+	 * @return round trip times of GET requests for the field id or null if none got answered yet
+	 */
+	public LatencyHistogram getGetRoundTrip(int id) {
+		return getRoundTripById.get(id);
+	}
+	
+	/**
+	 * @return round trip times of GET requests of all fields
+	 */
+	public LatencyHistogram getGetRoundTrip() {
+		return getRoundTrip;
+	}
+	
+	/**
+	 * @return time the listeners took per received chunk
+	 */
+	public LatencyHistogram getDispatch() {
+		return dispatch;
+	}
+
+	@Override
+	public long getBytesIn() {
+		return bytesIn.sum();
+	}
+
+	@Override
+	public long getBytesOut() {
+		return bytesOut.sum();
+	}
+	
+	@Override
+	public long getDroppedBytes() {
+		return droppedBytes.getAsLong();
+	}
+
+	@Override
+	public long getGetFrames() {
+		return getFrames.sum();
+	}
+
+	@Override
+	public long getSetFrames() {
+		return setFrames.sum();
+	}
+
+	@Override
+	public long getGroupFrames() {
+		return groupFrames.sum();
+	}
+
+	/**
+	 * @return GROUP frames dropped because a frame before them was lost or they were malformed
+	 */
+	@Override
+	public long getDroppedGroups() {
+		return droppedGroups.sum();
+	}
+
+	@Override
+	public long getExecuteFrames() {
+		return executeFrames.sum();
+	}
+
+	@Override
+	public long getChecksumFailures() {
+		return checksumFailures.sum();
+	}
+
+	/**
+	 * @return partial frames dropped because the next byte came too late
+	 */
+	@Override
+	public long getFrameTimeouts() {
+		return frameTimeouts.sum();
+	}
+
+	/**
+	 * @return partial SET frames dropped because they announced a value longer than any field
+	 */
+	@Override
+	public long getOverflowResets() {
+		return overflowResets.sum();
+	}
+
+	@Override
+	public long getDispatchCount() {
+		return dispatch.getCount();
+	}
+
+	@Override
+	public long getDispatchMeanNanos() {
+		return dispatch.getMean();
+	}
+
+	@Override
+	public long getDispatchMaxNanos() {
+		return dispatch.getMax();
+	}
+
+	@Override
+	public long getGetRoundTripMeanNanos() {
+		return getRoundTrip.getMean();
+	}
+
+	@Override
+	public long getGetRoundTripMaxNanos() {
+		return getRoundTrip.getMax();
+	}
+}
@@ -0,0 +1,39 @@
+package serial;
+
+/**
+ * JMX view of {@link SerialMetrics}
+ */
+public interface SerialMetricsMXBean {
+
+	public long getBytesIn();
+	
+	public long getBytesOut();
+	
+	public long getDroppedBytes();
+	
+	public long getGetFrames();
+	
+	public long getSetFrames();
+	
+	public long getGroupFrames();
+	
+	public long getDroppedGroups();
+	
+	public long getExecuteFrames();
+	
+	public long getChecksumFailures();
+	
+	public long getFrameTimeouts();
+	
+	public long getOverflowResets();
+	
+	public long getDispatchCount();
+	
+	public long getDispatchMeanNanos();
+	
+	public long getDispatchMaxNanos();
+	
+	public long getGetRoundTripMeanNanos();
+	
+	public long getGetRoundTripMaxNanos();
+}
@@ -0,0 +1,236 @@
+package serial;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link Flow.Publisher} of received lines, chunks or field values with request(n) backpressure.
+ * Every subscriber has a bounded buffer of its own. Items get delivered on the receiving thread while the
+ * subscriber has demand and from the thread calling request(n) otherwise, there are no threads of its own.
+ * What happens once a buffer is full is decided by the {@link OverflowPolicy}:
+ * DROP_OLDEST and DROP_NEWEST drop items of this subscriber only, BLOCK stalls the receiving thread until the subscriber requests more.
+ * 
+ * @see Serial#publishLines(int, OverflowPolicy)
+ * @see Serial#publishChunks(int, OverflowPolicy)
+ * @see ArduinoField#publishValues(int, OverflowPolicy)
+ */
+public class SerialPublisher<T> implements Flow.Publisher<T>, AutoCloseable {
+	
+	private final int bufferSize;
+	private final OverflowPolicy policy;
+	private final List<BufferedSubscription<T>> subscriptions = new CopyOnWriteArrayList<>();
+	private volatile boolean closed = false;
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong failures = new AtomicLong();
+	private volatile ListenerErrorHandler errorHandler = ListenerErrorHandler.PRINT;
+	private final List<Runnable> closeHandlers = new CopyOnWriteArrayList<>();
+	
+	/**
+	 * @param bufferSize items buffered per subscriber
+	 * @param policy what to do with new items for a subscriber with a full buffer
+	 */
+	public SerialPublisher(int bufferSize, OverflowPolicy policy) {
+		super();
+		if(bufferSize < 1) throw new RuntimeException("bufferSize cant be < 1");
+		this.bufferSize = bufferSize;
+		this.policy = policy;
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super T> subscriber) {
+		Objects.requireNonNull(subscriber);
+		BufferedSubscription<T> subscription = new BufferedSubscription<>(this, subscriber);
+		subscriptions.add(subscription);
+		subscriber.onSubscribe(subscription);
+		if(closed) {
+			subscription.complete();
+		}
+	}
+	
+	/**
+	 * @return true if anyone would receive a submitted item. Lets producers skip copying
+	 */
+	public boolean hasSubscribers() {
+		return !subscriptions.isEmpty();
+	}
+	
+	/**
+	 * Passes the item to every subscriber
+	 */
+	public void submit(T item) {
+		for (BufferedSubscription<T> subscription : subscriptions) {
+			subscription.offer(item);
+		}
+	}
+	
+	/**
+	 * Completes all subscribers after they received their buffered items
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		for (BufferedSubscription<T> subscription : subscriptions) {
+			subscription.complete();
+		}
+		for (Runnable handler : closeHandlers) {
+			handler.run();
+		}
+		closeHandlers.clear();
+	}
+	
+	/**
+	 * Runs the handler once this publisher gets closed, used by the producer to stop feeding it
+	 */
+	void onClose(Runnable handler) {
+		closeHandlers.add(handler);
+		if(closed && closeHandlers.remove(handler)) {
+			handler.run();
+		}
+	}
+	
+	public boolean isClosed() {
+		return closed;
+	}
+	
+	public int getBufferSize() {
+		return bufferSize;
+	}
+	
+	public OverflowPolicy getPolicy() {
+		return policy;
+	}
+	
+	/**
+	 * @return items dropped because a subscriber buffer was full, over all subscribers
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+	
+	/**
+	 * @return number of subscribers cancelled because their onNext threw
+	 */
+	public long getFailures() {
+		return failures.get();
+	}
+	
+	public ListenerErrorHandler getErrorHandler() {
+		return errorHandler;
+	}
+	
+	/**
+	 * Gets what a subscriber throws from onNext before it gets cancelled. Default is {@link ListenerErrorHandler#PRINT}
+	 */
+	public void setErrorHandler(ListenerErrorHandler errorHandler) {
+		this.errorHandler = Objects.requireNonNull(errorHandler);
+	}
+	
+	private static class BufferedSubscription<T> implements Flow.Subscription {
+		
+		private final SerialPublisher<T> publisher;
+		private final Flow.Subscriber<? super T> subscriber;
+		private final ArrayDeque<T> buffer = new ArrayDeque<>();
+		private final AtomicLong demand = new AtomicLong();
+		/**
+		 * Makes sure only one thread at a time signals the subscriber
+		 */
+		private final AtomicInteger wip = new AtomicInteger();
+		private volatile boolean cancelled = false;
+		private volatile boolean completed = false;
+		
+		BufferedSubscription(SerialPublisher<T> publisher, Flow.Subscriber<? super T> subscriber) {
+			this.publisher = publisher;
+			this.subscriber = subscriber;
+		}
+		
+		void offer(T item) {
+			synchronized (this) {
+				if(cancelled) return;
+				while(buffer.size() >= publisher.bufferSize) {
+					if(publisher.policy == OverflowPolicy.DROP_NEWEST) {
+						publisher.dropped.incrementAndGet();
+						return;
+					} else if(publisher.policy == OverflowPolicy.DROP_OLDEST) {
+						buffer.poll();
+						publisher.dropped.incrementAndGet();
+					} else {
+						try {
+							wait();
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							return;
+						}
+						if(cancelled) return;
+					}
+				}
+				buffer.add(item);
+			}
+			drain();
+		}
+		
+		void complete() {
+			completed = true;
+			drain();
+		}
+
+		@Override
+		public void request(long n) {
+			if(n <= 0) {
+				cancel();
+				subscriber.onError(new IllegalArgumentException("request(" + n + "), n must be > 0"));
+				return;
+			}
+			long current, next;
+			do {
+				current = demand.get();
+				next = current + n < 0 ? Long.MAX_VALUE : current + n;
+			} while(!demand.compareAndSet(current, next));
+			drain();
+		}
+
+		@Override
+		public void cancel() {
+			synchronized (this) {
+				cancelled = true;
+				buffer.clear();
+				notifyAll();
+			}
+			publisher.subscriptions.remove(this);
+		}
+		
+		private void drain() {
+			if(wip.getAndIncrement() != 0) return;
+			do {
+				while(!cancelled && demand.get() > 0) {
+					T item;
+					synchronized (this) {
+						item = buffer.poll();
+						if(item != null) notifyAll();
+					}
+					if(item == null) break;
+					if(demand.get() != Long.MAX_VALUE) demand.decrementAndGet();
+					try {
+						subscriber.onNext(item);
+					} catch (Throwable t) {
+						cancel();
+						publisher.failures.incrementAndGet();
+						publisher.errorHandler.listenerFailed(subscriber, t);
+					}
+				}
+				if(completed && !cancelled && isEmpty()) {
+					cancel();
+					subscriber.onComplete();
+				}
+			} while(wip.decrementAndGet() != 0);
+		}
+		
+		private synchronized boolean isEmpty() {
+			return buffer.isEmpty();
+		}
+	}
+}
@@ -0,0 +1,14 @@
+package serial;
+
+/**
+ * Gets notified by a {@link Serial} with auto reconnect when its connection drops and comes back
+ */
+public interface SerialReconnectListener {
+
+	public void connectionLost(String name);
+	
+	/**
+	 * @param recoveryNanos nanoseconds between losing and reopening the connection
+	 */
+	public void reconnected(String name, long recoveryNanos);
+}
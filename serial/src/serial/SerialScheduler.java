@@ -0,0 +1,33 @@
+package serial;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared daemon thread for delayed tasks like timed flushes, so no port needs a thread of its own
+ */
+class SerialScheduler {
+
+	private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "Serial scheduler");
+		t.setDaemon(true);
+		return t;
+	});
+	
+	private static final TimerWheel TIMEOUTS = new TimerWheel(10, TimeUnit.MILLISECONDS, 512);
+	
+	private SerialScheduler() {
+	}
+	
+	static ScheduledExecutorService get() {
+		return EXECUTOR;
+	}
+	
+	/**
+	 * Shared wheel for request deadlines
+	 */
+	static TimerWheel timeouts() {
+		return TIMEOUTS;
+	}
+}
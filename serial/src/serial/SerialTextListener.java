@@ -0,0 +1,14 @@
+package serial;
+
+/**
+ * Receives every frame as text without creating a String.
+ */
+public interface SerialTextListener {
+
+	/**
+	 * Called when a line has been received, decoded with the charset of the {@link Serial} like for a
+	 * {@link SerialReceiveListener}. Lines of plain ASCII come as a view on the received bytes, others as a String.
+	 * The sequence may be reused and is only valid for the duration of the call, toString() it to keep it
+	 */
+	public void lineReceived(CharSequence line);
+}
@@ -0,0 +1,53 @@
+package serial;
+
+/**
+ * Byte transport under {@link Serial}. Implemented for real ports by {@link JSerialCommTransport}
+ * and for tests without hardware by {@link SimulatedArduinoTransport} and {@link ReplayTransport}
+ */
+public interface SerialTransport {
+
+	/**
+	 * Opens the transport. Received bytes get passed to the receiver from then on
+	 * @return true on success
+	 */
+	public boolean open(SerialChunkReceiveListener receiver);
+	
+	public void close();
+	
+	public boolean isOpen();
+	
+	/**
+	 * Writes data[offset] to data[offset + length - 1]
+	 * @return number of bytes written or -1 on error
+	 */
+	public int write(byte[] data, int offset, int length);
+	
+	public void setBaudRate(int rate);
+	
+	public int getBaudRate();
+	
+	/**
+	 * @return number of received bytes that have not been passed to the receiver yet
+	 */
+	public int bytesAvailable();
+	
+	/**
+	 * @return human readable name of the connected device
+	 */
+	public String getName();
+	
+	/**
+	 * @return false if the device is gone, even if the transport has not noticed yet
+	 */
+	public default boolean isAlive() {
+		return isOpen();
+	}
+	
+	/**
+	 * Creates a transport to the same device for reconnecting after the connection got lost
+	 * @return the new transport or null if the device is not available right now
+	 */
+	public default SerialTransport recreate() {
+		return this;
+	}
+}
@@ -0,0 +1,178 @@
+package serial;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Records every chunk received and sent by a {@link Serial} into memory mapped segment files
+ * session-00000.rec, session-00001.rec, ... in a directory. Recording is a copy into the mapping
+ * so it can stay enabled in the field. Once a segment is full the next one gets started and
+ * the oldest segments get deleted so at most maxSegments stay on disk.
+ * 
+ * Segment layout: magic, version, wall clock time of the session start in milliseconds, then records of
+ * <Direction(1)> <Nanos since session start(8)> <Length(4)> <Bytes>. Direction 0 marks the end of the segment.
+ * 
+ * 	SessionRecorder recorder = new SessionRecorder(Paths.get("session"), 16 << 20, 8);
+ * 	serial.startRecording(recorder);
+ * 
+ * @see ReplayTransport
+ */
+public class SessionRecorder implements AutoCloseable {
+	
+	public static final byte RECEIVED = 1;
+	public static final byte SENT = 2;
+	
+	static final int MAGIC = 0x4a53524c; // JSRL
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 16;
+	static final int RECORD_HEADER_SIZE = 13;
+	private static final String PREFIX = "session-";
+	private static final String SUFFIX = ".rec";
+	
+	private final Path directory;
+	private final int segmentSize;
+	private final int maxSegments;
+	private final long startNanos = System.nanoTime();
+	private final long startMillis = System.currentTimeMillis();
+	private final List<Path> segments = new ArrayList<>();
+	/**
+	 * Old segments that could not be deleted yet, for example because they are still mapped on Windows
+	 */
+	private final List<Path> undeleted = new ArrayList<>();
+	private MappedByteBuffer segment = null;
+	private int segmentIndex = 0;
+	private long records = 0;
+	private long failures = 0;
+	private boolean closed = false;
+	
+	/**
+	 * @param directory directory for the segments. Existing segments in it get deleted
+	 * @param segmentSize size of one segment file in bytes
+	 * @param maxSegments number of segments kept on disk. 0 for unbounded
+	 */
+	public SessionRecorder(Path directory, int segmentSize, int maxSegments) {
+		super();
+		if(segmentSize < HEADER_SIZE + RECORD_HEADER_SIZE + 1) throw new RuntimeException("segmentSize too small: " + segmentSize);
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.maxSegments = maxSegments;
+		try {
+			Files.createDirectories(directory);
+			for (Path old : segments(directory)) {
+				Files.delete(old);
+			}
+			roll();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**
+	 * Appends one chunk. Chunks larger than a segment get split into several records.
+	 * Never throws as it runs on the receive path, if no new segment can be started the chunk gets dropped
+	 * and counted in {@link #getFailures()}
+	 * 
+	 * @param direction {@link #RECEIVED} or {@link #SENT}
+	 */
+	public synchronized void record(byte direction, byte[] data, int offset, int length) {
+		if(closed) return;
+		long nanos = System.nanoTime() - startNanos;
+		do {
+			if(segment.remaining() < RECORD_HEADER_SIZE + 1) {
+				try {
+					roll();
+				} catch (IOException | RuntimeException e) {
+					failures++;
+					return;
+				}
+			}
+			int n = Math.min(length, segment.remaining() - RECORD_HEADER_SIZE);
+			segment.put(direction);
+			segment.putLong(nanos);
+			segment.putInt(n);
+			segment.put(data, offset, n);
+			records++;
+			offset += n;
+			length -= n;
+		} while(length > 0);
+	}
+	
+	private void roll() throws IOException {
+		Path path = directory.resolve(String.format("%s%05d%s", PREFIX, segmentIndex++, SUFFIX));
+		MappedByteBuffer next;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			next = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize); // zero filled, so unwritten space reads as end
+		}
+		segment = next; // the old mapping is dropped, it gets unmapped once collected
+		segment.putInt(MAGIC);
+		segment.putInt(VERSION);
+		segment.putLong(startMillis);
+		segments.add(path);
+		while(maxSegments > 0 && segments.size() > maxSegments) {
+			undeleted.add(segments.remove(0));
+		}
+		/*
+		 * Windows refuses to delete files that are still mapped, those get retried on the next roll
+		 */
+		for (int i = 0; i < undeleted.size(); i++) {
+			try {
+				Files.deleteIfExists(undeleted.get(i));
+				undeleted.remove(i--);
+			} catch (IOException e) {
+				failures++;
+			}
+		}
+	}
+	
+	/**
+	 * Writes the mapped segment to disk. The operating system does this on its own too,
+	 * only needed to survive a crash of the machine
+	 */
+	public synchronized void force() {
+		if(!closed) segment.force();
+	}
+	
+	@Override
+	public synchronized void close() {
+		if(closed) return;
+		segment.force();
+		closed = true;
+		segment = null;
+	}
+	
+	public Path getDirectory() {
+		return directory;
+	}
+	
+	public synchronized long getRecords() {
+		return records;
+	}
+	
+	/**
+	 * @return number of chunks dropped and old segments not deleted because of IO errors
+	 */
+	public synchronized long getFailures() {
+		return failures;
+	}
+	
+	/**
+	 * @return the segment files in a directory in recording order
+	 */
+	public static List<Path> segments(Path directory) throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(p -> {
+				String name = p.getFileName().toString();
+				return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+			}).sorted().collect(Collectors.toList());
+		}
+	}
+}
@@ -0,0 +1,472 @@
+package serial;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In process Arduino speaking the protocol of {@link ArduinoSerialInterface}.
+ * Bytes in both directions take as long as they would on a 8N1 line of the configured baud rate
+ * plus a fixed latency, and frames sent by the device can be corrupted at a configurable rate.
+ * Used to load test and benchmark without hardware:
+ * 
+ * 	SimulatedArduinoTransport device = new SimulatedArduinoTransport();
+ * 	device.define(3, 4);
+ * 	ArduinoSerialInterface serial = new ArduinoSerialInterface(device);
+ * 
+ * The device thread survives {@link #close()} so the transport can be reopened, {@link #dispose()} stops it.
+ */
+public class SimulatedArduinoTransport implements SerialTransport {
+	
+	private static final int BITS_PER_BYTE = 10; // start + 8 data + stop
+	private static final int MAX_FRAME = 255 + FieldGroupEncoder.HEADER + 2;
+
+	private final ScheduledExecutorService device = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "Simulated Arduino");
+		t.setDaemon(true);
+		return t;
+	});
+	private volatile SerialChunkReceiveListener receiver = null;
+	private volatile boolean open = false;
+	private volatile long unavailableUntil = 0;
+	private volatile int baudRate = 115200;
+	private volatile long latencyMicros = 0;
+	private volatile double errorRate = 0;
+	private final Random random = new Random();
+	/**
+	 * Field values by id, null if the field does not exist
+	 */
+	private final byte[][] values = new byte[256][];
+	private final byte[][] eeprom = new byte[256][];
+	private final ScheduledFuture<?>[] streams = new ScheduledFuture<?>[256];
+	/**
+	 * Time at which the line in each direction is free again
+	 */
+	private long hostLineFree = 0;
+	private long deviceLineFree = 0;
+	/**
+	 * Transfers in each direction in the order they were written. The scheduler orders the delayed tasks by a clock
+	 * read after the delay got computed, so tasks of back to back transfers may run swapped, each task takes the oldest transfer
+	 */
+	private final Queue<Runnable> toDevice = new ConcurrentLinkedQueue<>();
+	private final Queue<Runnable> toHost = new ConcurrentLinkedQueue<>();
+	/**
+	 * Device side parser
+	 */
+	private final byte[] frame = new byte[MAX_FRAME];
+	private int framePos = 0;
+	private volatile FrameIntegrity integrity = FrameIntegrity.SUM;
+	private volatile boolean crcSupported = true;
+	private volatile FrameGrouping grouping = FrameGrouping.NONE;
+	private volatile FrameGrouping groupingSupported = FrameGrouping.COMPRESSED;
+	private final FieldGroupEncoder groupEncoder = new FieldGroupEncoder();
+	private final FieldGroupDecoder groupDecoder = new FieldGroupDecoder();
+	private ScheduledFuture<?> groupStream = null;
+	/**
+	 * Statistics
+	 */
+	private volatile long writes = 0;
+	private volatile long framesReceived = 0;
+	private volatile long framesSent = 0;
+	private volatile long corruptedFrames = 0;
+	private volatile long invalidChecksums = 0;
+	private volatile long droppedGroups = 0;
+	
+	public SimulatedArduinoTransport() {
+		super();
+	}
+	
+	public SimulatedArduinoTransport(int baudRate, long latencyMicros, double errorRate) {
+		super();
+		this.baudRate = baudRate;
+		this.latencyMicros = latencyMicros;
+		this.errorRate = errorRate;
+	}
+
+	@Override
+	public boolean open(SerialChunkReceiveListener receiver) {
+		if(device.isShutdown() || System.currentTimeMillis() < unavailableUntil) return false;
+		this.receiver = receiver;
+		open = true;
+		return true;
+	}
+
+	/**
+	 * Closes the connection and stops all streams, like resetting the board would
+	 */
+	@Override
+	public synchronized void close() {
+		open = false;
+		for (int id = 0; id < streams.length; id++) {
+			stopStream(id);
+		}
+		stopGroupStream();
+	}
+	
+	/**
+	 * Closes the transport for good and stops the device thread
+	 */
+	public void dispose() {
+		close();
+		device.shutdownNow();
+	}
+
+	@Override
+	public boolean isOpen() {
+		return open;
+	}
+
+	@Override
+	public synchronized int write(byte[] data, int offset, int length) {
+		if(!open) return -1;
+		writes++;
+		byte[] copy = Arrays.copyOfRange(data, offset, offset + length);
+		long now = System.nanoTime();
+		hostLineFree = Math.max(now, hostLineFree) + transferNanos(length);
+		transfer(toDevice, () -> deviceReceived(copy), hostLineFree + latencyMicros * 1000 - now);
+		return length;
+	}
+
+	@Override
+	public void setBaudRate(int rate) {
+		baudRate = rate;
+	}
+
+	@Override
+	public int getBaudRate() {
+		return baudRate;
+	}
+
+	@Override
+	public int bytesAvailable() {
+		return 0;
+	}
+
+	@Override
+	public String getName() {
+		return "Simulated Arduino";
+	}
+	
+	/**
+	 * Simulates unplugging the device. The connection drops and opening fails for downMillis milliseconds
+	 */
+	public void simulateDisconnect(long downMillis) {
+		unavailableUntil = System.currentTimeMillis() + downMillis;
+		open = false;
+	}
+	
+	/**
+	 * @param latencyMicros delay in microseconds added to every transfer in both directions
+	 */
+	public void setLatency(long latencyMicros) {
+		this.latencyMicros = latencyMicros;
+	}
+	
+	/**
+	 * @param errorRate probability between 0 and 1 that a frame sent by the device gets a flipped bit
+	 */
+	public void setErrorRate(double errorRate) {
+		this.errorRate = errorRate;
+	}
+	
+	public synchronized void setSeed(long seed) {
+		random.setSeed(seed);
+	}
+	
+	/**
+	 * Creates a field of size bytes initialized with zeros
+	 */
+	public synchronized void define(int id, int size) {
+		values[id] = new byte[size];
+	}
+	
+	public synchronized void setValue(int id, byte[] value) {
+		values[id] = value.clone();
+	}
+	
+	/**
+	 * @return copy of the current value or null if the field does not exist
+	 */
+	public synchronized byte[] getValue(int id) {
+		return values[id] == null ? null : values[id].clone();
+	}
+	
+	/**
+	 * Sends the value of the field every periodMillis without being asked, like a board streaming telemetry
+	 */
+	public synchronized void stream(int id, long periodMillis) {
+		stopStream(id);
+		streams[id] = device.scheduleAtFixedRate(() -> sendValue(id), periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * Sends the values of the fields every periodMillis, in one GROUP frame if the link groups
+	 */
+	public synchronized void streamGroup(long periodMillis, int... ids) {
+		stopGroupStream();
+		int[] copy = ids.clone();
+		groupStream = device.scheduleAtFixedRate(() -> sendValues(copy), periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+	}
+	
+	public synchronized void stopGroupStream() {
+		if(groupStream != null) {
+			groupStream.cancel(false);
+			groupStream = null;
+		}
+	}
+	
+	public synchronized void stopStream(int id) {
+		if(streams[id] != null) {
+			streams[id].cancel(false);
+			streams[id] = null;
+		}
+	}
+	
+	private long transferNanos(int bytes) {
+		return TimeUnit.SECONDS.toNanos(bytes * BITS_PER_BYTE) / baudRate;
+	}
+	
+	private synchronized void deviceReceived(byte[] data) {
+		for (byte b : data) {
+			parse(b);
+		}
+	}
+	
+	private void parse(byte c) {
+		if(framePos == 0) {
+			switch(c) {
+			case 'G': case 'S': case 'E': case 'I': case 'C': case 'M': case 'W': case 'R': case 'F': case 'B':
+				frame[framePos++] = c;
+				break;
+			default: // resync
+			}
+			return;
+		}
+		frame[framePos++] = c;
+		switch(frame[0]) {
+		case 'G':
+		case 'E':
+			if(framePos == 2 + integrity.length()) {
+				if(validChecksum(2, integrity)) {
+					framesReceived++;
+					if(frame[0] == 'G') sendValue(frame[1] & 0xff);
+				}
+				framePos = 0;
+			}
+			break;
+		case 'S':
+			if(framePos > 3 && framePos == (frame[2] & 0xff) + 3 + integrity.length()) {
+				int body = framePos - integrity.length();
+				if(validChecksum(body, integrity)) {
+					framesReceived++;
+					values[frame[1] & 0xff] = Arrays.copyOfRange(frame, 3, body);
+				}
+				framePos = 0;
+			}
+			break;
+		case 'M': // <GROUP> ::= M <Flags> <Seq> <Size> <Entry>* <Checksum>
+			if(framePos > 4 && framePos == (frame[3] & 0xff) + FieldGroupEncoder.HEADER + integrity.length()) {
+				int body = framePos - integrity.length();
+				if(validChecksum(body, integrity)) {
+					framesReceived++;
+					if(!groupDecoder.decode(frame[1], frame[2] & 0xff, Arrays.copyOfRange(frame, FieldGroupEncoder.HEADER, body),
+							body - FieldGroupEncoder.HEADER, (id, value, length) -> values[id] = Arrays.copyOf(value, length))) {
+						droppedGroups++;
+					}
+				}
+				framePos = 0;
+			}
+			break;
+		case 'C': // <C> ::= C <Mode> <Checksum>, always the legacy sum
+			if(framePos == 3) {
+				if(validChecksum(2, FrameIntegrity.SUM)) {
+					framesReceived++;
+					FrameGrouping requested = FrameGrouping.fromCode(frame[1]);
+					if(requested != null && requested.ordinal() <= groupingSupported.ordinal()) {
+						send(Arrays.copyOf(frame, 3));
+						grouping = requested;
+						groupEncoder.reset();
+						groupDecoder.reset();
+					}
+				}
+				framePos = 0;
+			}
+			break;
+		case 'I': // <I> ::= I <Mode> <Checksum>, always the legacy sum
+			if(framePos == 3) {
+				if(validChecksum(2, FrameIntegrity.SUM)) {
+					framesReceived++;
+					FrameIntegrity requested = FrameIntegrity.fromCode(frame[1]);
+					if(requested != null && (crcSupported || requested == FrameIntegrity.SUM)) {
+						send(Arrays.copyOf(frame, 3));
+						integrity = requested;
+					}
+				}
+				framePos = 0;
+			}
+			break;
+		default: // two byte commands
+			if(frame[1] == frame[0]) {
+				framesReceived++;
+				command(frame[0]);
+			}
+			framePos = 0;
+		}
+	}
+	
+	private boolean validChecksum(int length, FrameIntegrity integrity) {
+		int checksum = 0;
+		for (int i = 0; i < integrity.length(); i++) {
+			checksum = (checksum << 8) | (frame[length + i] & 0xff);
+		}
+		if(integrity.compute(frame, 0, length) == checksum) {
+			return true;
+		}
+		invalidChecksums++;
+		return false;
+	}
+	
+	private void command(byte command) {
+		switch(command) {
+		case 'W':
+			for (int i = 0; i < values.length; i++) {
+				eeprom[i] = values[i] == null ? null : values[i].clone();
+			}
+			break;
+		case 'R':
+			for (int i = 0; i < values.length; i++) {
+				if(eeprom[i] != null) values[i] = eeprom[i].clone();
+			}
+			break;
+		case 'F':
+			for (int i = 0; i < values.length; i++) {
+				if(values[i] != null) values[i] = new byte[values[i].length];
+			}
+			break;
+		case 'B':
+			framePos = 0;
+			integrity = FrameIntegrity.SUM;
+			grouping = FrameGrouping.NONE;
+			break;
+		}
+	}
+	
+	/**
+	 * <SET>       ::= S <ID> <Size> <Value> <Checksum>
+	 */
+	private synchronized void sendValue(int id) {
+		byte[] value = values[id];
+		if(value == null || !open) return;
+		FrameIntegrity integrity = this.integrity;
+		int body = value.length + 3;
+		byte[] b = new byte[body + integrity.length()];
+		b[0] = 'S';
+		b[1] = (byte) id;
+		b[2] = (byte) value.length;
+		System.arraycopy(value, 0, b, 3, value.length);
+		integrity.write(integrity.compute(b, 0, body), b, body);
+		send(b);
+	}
+	
+	private synchronized void sendValues(int[] ids) {
+		if(!open) return;
+		if(grouping == FrameGrouping.NONE) {
+			for (int id : ids) {
+				sendValue(id);
+			}
+			return;
+		}
+		for (int id : ids) {
+			if(values[id] != null) groupEncoder.add(id, values[id].clone());
+		}
+		groupEncoder.flush(grouping == FrameGrouping.COMPRESSED, integrity, (b, length) -> send(Arrays.copyOf(b, length)));
+	}
+	
+	private void send(byte[] b) {
+		if(errorRate > 0 && random.nextDouble() < errorRate) {
+			b[random.nextInt(b.length)] ^= 1 << random.nextInt(8);
+			corruptedFrames++;
+		}
+		long now = System.nanoTime();
+		deviceLineFree = Math.max(now, deviceLineFree) + transferNanos(b.length);
+		framesSent++;
+		transfer(toHost, () -> {
+			SerialChunkReceiveListener r = receiver;
+			if(r != null && open) r.chunkReceived(b, 0, b.length);
+		}, deviceLineFree + latencyMicros * 1000 - now);
+	}
+	
+	private void transfer(Queue<Runnable> line, Runnable arrival, long delayNanos) {
+		line.add(arrival);
+		device.schedule(() -> line.poll().run(), delayNanos, TimeUnit.NANOSECONDS);
+	}
+	
+	/**
+	 * @return integrity check the device currently expects and sends
+	 */
+	public FrameIntegrity getFrameIntegrity() {
+		return integrity;
+	}
+	
+	/**
+	 * Devices without CRC support ignore requests to switch away from the legacy sum, like old firmware would
+	 */
+	public void setCrcSupported(boolean crcSupported) {
+		this.crcSupported = crcSupported;
+	}
+	
+	/**
+	 * @return grouping of SET frames the device currently uses
+	 */
+	public FrameGrouping getFrameGrouping() {
+		return grouping;
+	}
+	
+	/**
+	 * Devices only accept groupings up to this one, NONE like old firmware. Default COMPRESSED
+	 */
+	public void setGroupingSupported(FrameGrouping groupingSupported) {
+		this.groupingSupported = groupingSupported;
+	}
+	
+	/**
+	 * @return GROUP frames from the host the device dropped because a frame before them was lost
+	 */
+	public long getDroppedGroups() {
+		return droppedGroups;
+	}
+	
+	/**
+	 * @return number of writes of the host, a batch of frames counts once
+	 */
+	public long getWrites() {
+		return writes;
+	}
+	
+	public long getFramesReceived() {
+		return framesReceived;
+	}
+	
+	public long getFramesSent() {
+		return framesSent;
+	}
+	
+	/**
+	 * @return frames sent by the device that got a bit flipped on purpose
+	 */
+	public long getCorruptedFrames() {
+		return corruptedFrames;
+	}
+	
+	/**
+	 * @return frames from the host the device dropped because of a wrong checksum
+	 */
+	public long getInvalidChecksums() {
+		return invalidChecksums;
+	}
+}
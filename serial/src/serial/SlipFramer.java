@@ -0,0 +1,69 @@
+package serial;
+
+import java.util.Arrays;
+
+/**
+ * Serial Line Internet Protocol framing (RFC 1055). Frames end with END, END and ESC
+ * inside the payload are escaped. Unescaped while scanning
+ */
+public class SlipFramer extends BufferedFramer {
+	
+	public static final byte END = (byte) 0xc0;
+	public static final byte ESC = (byte) 0xdb;
+	public static final byte ESC_END = (byte) 0xdc;
+	public static final byte ESC_ESC = (byte) 0xdd;
+	
+	private boolean escaped = false;
+
+	@Override
+	public void feed(byte[] data, int offset, int length, SerialFrameListener sink) {
+		int end = offset + length;
+		int start = offset;
+		for (int i = offset; i < end; i++) {
+			byte b = data[i];
+			if(escaped) {
+				append(b == ESC_END ? END : b == ESC_ESC ? ESC : b, sink);
+				escaped = false;
+				start = i + 1;
+			} else if(b == END) {
+				complete(data, start, i - start, sink);
+				start = i + 1;
+			} else if(b == ESC) {
+				append(data, start, i - start, sink);
+				escaped = true;
+				start = i + 1;
+			}
+		}
+		if(start < end) {
+			append(data, start, end - start, sink);
+		}
+	}
+	
+	/**
+	 * @return the escaped payload including the terminating END
+	 */
+	public static byte[] encode(byte[] data, int offset, int length) {
+		byte[] out = new byte[length * 2 + 1];
+		int o = 0;
+		for (int i = offset; i < offset + length; i++) {
+			byte b = data[i];
+			if(b == END) {
+				out[o++] = ESC;
+				out[o++] = ESC_END;
+			} else if(b == ESC) {
+				out[o++] = ESC;
+				out[o++] = ESC_ESC;
+			} else {
+				out[o++] = b;
+			}
+		}
+		out[o++] = END;
+		return Arrays.copyOf(out, o);
+	}
+	
+	@Override
+	public void reset() {
+		super.reset();
+		escaped = false;
+	}
+}
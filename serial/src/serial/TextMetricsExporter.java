@@ -0,0 +1,48 @@
+package serial;
+
+import java.io.PrintStream;
+
+/**
+ * Prints metrics as plain text
+ */
+public class TextMetricsExporter implements MetricsExporter {
+
+	private final PrintStream out;
+	
+	public TextMetricsExporter() {
+		this(System.out);
+	}
+	
+	public TextMetricsExporter(PrintStream out) {
+		super();
+		this.out = out;
+	}
+	
+	@Override
+	public void export(String name, SerialMetrics metrics) {
+		out.print(dump(name, metrics));
+	}
+	
+	public static String dump(String name, SerialMetrics metrics) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("Metrics of ").append(name).append(":\n");
+		sb.append("\tbytes in: ").append(metrics.getBytesIn()).append('\n');
+		sb.append("\tbytes out: ").append(metrics.getBytesOut()).append('\n');
+		sb.append("\tdropped bytes: ").append(metrics.getDroppedBytes()).append('\n');
+		sb.append("\tframes G/S/M/E: ").append(metrics.getGetFrames()).append('/').append(metrics.getSetFrames()).append('/').append(metrics.getGroupFrames())
+				.append('/').append(metrics.getExecuteFrames()).append('\n');
+		sb.append("\tdropped groups: ").append(metrics.getDroppedGroups()).append('\n');
+		sb.append("\tchecksum failures: ").append(metrics.getChecksumFailures()).append('\n');
+		sb.append("\tframe timeouts: ").append(metrics.getFrameTimeouts()).append('\n');
+		sb.append("\toverflow resets: ").append(metrics.getOverflowResets()).append('\n');
+		sb.append("\tlistener dispatch: ").append(metrics.getDispatch()).append('\n');
+		sb.append("\tGET round trip: ").append(metrics.getGetRoundTrip()).append('\n');
+		for (int id = 0; id < 256; id++) {
+			LatencyHistogram histogram = metrics.getGetRoundTrip(id);
+			if(histogram != null) {
+				sb.append("\t\tid ").append(id).append(": ").append(histogram).append('\n');
+			}
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,117 @@
+package serial;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hashed timer wheel for request deadlines. Scheduling and cancelling are O(1),
+ * one periodic task on the {@link SerialScheduler} expires all due timeouts.
+ * Timeouts fire up to one tick late. A failing task gets counted and passed to the {@link ListenerErrorHandler}.
+ */
+class TimerWheel {
+
+	private final long tickNanos;
+	private final List<Timeout>[] wheel;
+	private final int mask;
+	private final long startNanos = System.nanoTime();
+	/**
+	 * Last tick that has been processed
+	 */
+	private long currentTick = 0;
+	private boolean started = false;
+	private final LongAdder failures = new LongAdder();
+	/**
+	 * null for {@link ListenerRegistry#getDefaultErrorHandler()}
+	 */
+	private volatile ListenerErrorHandler errorHandler = null;
+	
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	TimerWheel(long tickDuration, TimeUnit unit, int slots) {
+		super();
+		if(Integer.bitCount(slots) != 1) throw new RuntimeException("slots must be a power of two");
+		this.tickNanos = unit.toNanos(tickDuration);
+		this.wheel = new List[slots];
+		for (int i = 0; i < slots; i++) {
+			wheel[i] = new LinkedList<>();
+		}
+		this.mask = slots - 1;
+	}
+	
+	synchronized Timeout schedule(long delay, TimeUnit unit, Runnable task) {
+		long deadline = System.nanoTime() - startNanos + unit.toNanos(delay);
+		long tick = Math.max((deadline + tickNanos - 1) / tickNanos, currentTick + 1);
+		Timeout timeout = new Timeout(tick, task);
+		wheel[(int) (tick & mask)].add(timeout);
+		if(!started) {
+			started = true;
+			SerialScheduler.get().scheduleAtFixedRate(this::advance, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+		}
+		return timeout;
+	}
+	
+	private void advance() {
+		List<Timeout> expired = null;
+		synchronized (this) {
+			long targetTick = (System.nanoTime() - startNanos) / tickNanos;
+			while(currentTick < targetTick) {
+				currentTick++;
+				Iterator<Timeout> it = wheel[(int) (currentTick & mask)].iterator();
+				while(it.hasNext()) {
+					Timeout timeout = it.next();
+					if(timeout.cancelled) {
+						it.remove();
+					} else if(timeout.tick <= currentTick) {
+						it.remove();
+						if(expired == null) expired = new ArrayList<>();
+						expired.add(timeout);
+					}
+				}
+			}
+		}
+		if(expired == null) return;
+		for (Timeout timeout : expired) {
+			try {
+				timeout.task.run();
+			} catch (RuntimeException e) {
+				failures.increment();
+				ListenerErrorHandler handler = errorHandler;
+				(handler == null ? ListenerRegistry.getDefaultErrorHandler() : handler).listenerFailed(timeout.task, e);
+			}
+		}
+	}
+	
+	/**
+	 * @param errorHandler gets the exceptions of failing tasks, null for the default of the listener registries
+	 */
+	void setErrorHandler(ListenerErrorHandler errorHandler) {
+		this.errorHandler = errorHandler;
+	}
+	
+	/**
+	 * @return number of tasks that threw an exception
+	 */
+	long getFailures() {
+		return failures.sum();
+	}
+	
+	static class Timeout {
+		
+		private final long tick;
+		private final Runnable task;
+		private volatile boolean cancelled = false;
+		
+		private Timeout(long tick, Runnable task) {
+			super();
+			this.tick = tick;
+			this.task = task;
+		}
+		
+		void cancel() {
+			cancelled = true;
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package serial;
+
+/**
+ * Decides which values set on an {@link ArduinoField} are worth a SET frame.
+ * Checked in the send path so link bandwidth goes to changes that matter:
+ * unchanged values and changes within the deadband get skipped, and with a max rate values
+ * set faster get coalesced so only the latest one gets sent once the interval passed.
+ * 
+ * 	field.setWritePolicy(new WritePolicy(0.01, 50));
+ */
+public class WritePolicy {
+
+	private boolean skipUnchanged = true;
+	private double deadband = 0;
+	private double maxRate = 0;
+	private WritePriority priority = WritePriority.NORMAL;
+	
+	/**
+	 * Skips unchanged values only
+	 */
+	public WritePolicy() {
+		super();
+	}
+	
+	/**
+	 * @param deadband changes of numeric values up to this get skipped
+	 * @param maxRate max SET frames per second, 0 for no limit
+	 */
+	public WritePolicy(double deadband, double maxRate) {
+		super();
+		this.deadband = deadband;
+		this.maxRate = maxRate;
+	}
+	
+	/**
+	 * @return nanoseconds between two SET frames, 0 for no limit
+	 */
+	long minIntervalNanos() {
+		return maxRate > 0 ? (long) (1_000_000_000 / maxRate) : 0;
+	}
+	
+	/**
+	 * @return true if the change from the last sent value to the new one is too small to send
+	 */
+	boolean skip(ArduinoField field, byte[] lastSent, byte[] value) {
+		if(lastSent == null || !skipUnchanged && deadband <= 0) return false;
+		int n = field.length;
+		if(value.length < n) return false;
+		if(deadband <= 0 || !field.type.isInteger() && !field.type.isReal()) {
+			if(!skipUnchanged) return false; // a deadband does not apply to Byte and Bits fields
+			for (int i = 0; i < n; i++) {
+				if(lastSent[i] != value[i]) return false;
+			}
+			return true;
+		}
+		for (int i = 0; i < field.qty; i++) {
+			double last = field.codec.getDouble(lastSent, 0, i, field.scale);
+			double next = field.codec.getDouble(value, 0, i, field.scale);
+			if(Math.abs(next - last) > deadband || Double.isNaN(next) != Double.isNaN(last)) return false;
+		}
+		return true;
+	}
+
+	public boolean isSkipUnchanged() {
+		return skipUnchanged;
+	}
+
+	/**
+	 * Values equal to the last sent or received one get skipped. Default true
+	 */
+	public void setSkipUnchanged(boolean skipUnchanged) {
+		this.skipUnchanged = skipUnchanged;
+	}
+
+	public double getDeadband() {
+		return deadband;
+	}
+
+	/**
+	 * Numeric values that differ from the last sent or received one by at most the deadband
+	 * in every element get skipped. 0 to only skip unchanged values
+	 */
+	public void setDeadband(double deadband) {
+		this.deadband = deadband;
+	}
+
+	public double getMaxRate() {
+		return maxRate;
+	}
+
+	/**
+	 * @param maxRate max SET frames per second. Values set faster replace each other and the latest gets sent. 0 for no limit
+	 */
+	public void setMaxRate(double maxRate) {
+		this.maxRate = maxRate;
+	}
+
+	public WritePriority getPriority() {
+		return priority;
+	}
+
+	public void setPriority(WritePriority priority) {
+		this.priority = priority;
+	}
+}
@@ -0,0 +1,17 @@
+package serial;
+
+/**
+ * How urgent the SET frames of a field are
+ * 
+ * @see WritePolicy
+ */
+public enum WritePriority {
+	/**
+	 * Written at once, past the write batch buffer and the rate limit. For setpoints that must not wait
+	 */
+	CRITICAL,
+	/**
+	 * Written like any other frame
+	 */
+	NORMAL
+}
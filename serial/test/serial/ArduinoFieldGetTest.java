@@ -0,0 +1,120 @@
+package serial;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import serial.ArduinoField.ArduinoType;
+
+/**
+ * GET requests against a simulated board, answered and unanswered
+ */
+class ArduinoFieldGetTest {
+
+	private SimulatedBoard board;
+	private SimulatedArduinoTransport device;
+	private ArduinoSerialInterface serial;
+	private ArduinoField field;
+
+	@BeforeEach
+	void open() {
+		board = new SimulatedBoard();
+		device = board.device;
+		serial = board.serial;
+		field = board.field(3, ArduinoType.Int); // not defined on the board, so GETs stay unanswered until setValue
+	}
+
+	@AfterEach
+	void close() {
+		board.close();
+	}
+
+	@Test
+	void answeredGetCompletes() throws Exception {
+		device.setValue(3, SimulatedBoard.intValue(42));
+		assertEquals(42, field.getAsync().get(1, TimeUnit.SECONDS));
+		assertFalse(field.isPending());
+		assertTrue(field.getLastRoundTripNanos() > 0);
+	}
+
+	@Test
+	void unansweredGetTimesOut() {
+		CompletableFuture<Object> future = field.getAsync(); // the device does not know the field
+		ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS));
+		assertInstanceOf(TimeoutException.class, e.getCause());
+		assertFalse(field.isPending());
+	}
+
+	@Test
+	void typedGetTimesOut() {
+		CompletableFuture<Integer> future = field.getAsync(v -> v.getInt(0));
+		ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS));
+		assertInstanceOf(TimeoutException.class, e.getCause());
+	}
+
+	@Test
+	void concurrentGetsShareOneFrame() throws Exception {
+		device.setValue(3, SimulatedBoard.intValue(7));
+		long before = device.getFramesReceived();
+		AtomicInteger c = new AtomicInteger();
+		serial.beginBatch(); // holds the GET back until all requests are registered
+		CompletableFuture<Object> a = field.getAsync();
+		CompletableFuture<Integer> b = field.getAsync(v -> v.getInt(0));
+		field.getIntValue(c::set);
+		serial.commit();
+		assertEquals(7, a.get(1, TimeUnit.SECONDS));
+		assertEquals(7, b.get(1, TimeUnit.SECONDS));
+		assertEquals(7, c.get());
+		assertEquals(1, device.getFramesReceived() - before);
+	}
+
+	@Test
+	void timedOutCallbacksGetDropped() throws Exception {
+		AtomicInteger stale = new AtomicInteger();
+		field.getIntValue(v -> stale.incrementAndGet());
+		field.getValue(v -> stale.incrementAndGet());
+		ExecutionException e = assertThrows(ExecutionException.class, () -> field.getAsync().get(1, TimeUnit.SECONDS));
+		assertInstanceOf(TimeoutException.class, e.getCause());
+
+		device.setValue(3, SimulatedBoard.intValue(5));
+		assertEquals(5, field.getAsync().get(1, TimeUnit.SECONDS));
+		assertEquals(0, stale.get());
+	}
+
+	@Test
+	void callbackRegisteredWhileAnswerArrivesGetsItsOwnGet() throws Exception {
+		device.setValue(3, SimulatedBoard.intValue(8));
+		CompletableFuture<Integer> second = new CompletableFuture<>();
+		// runs while the answer to the first GET gets dispatched
+		field.getIntValue(v -> field.getIntValue(second::complete));
+		assertEquals(8, second.get(1, TimeUnit.SECONDS));
+		assertFalse(field.isPending());
+	}
+
+	@Test
+	void callbacksRacingAnswersNeverHang() throws Exception {
+		device.setValue(3, SimulatedBoard.intValue(1));
+		device.stream(3, 1); // answers arrive all the time
+		try {
+			for (int i = 0; i < 200; i++) {
+				CompletableFuture<Integer> callback = new CompletableFuture<>();
+				field.getIntValue(callback::complete);
+				assertEquals(1, callback.get(1, TimeUnit.SECONDS));
+			}
+		} finally {
+			device.stopStream(3);
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package serial;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Wraparound and the overflow policies of the reader thread ring buffer
+ */
+class ByteRingBufferTest {
+
+	private static byte[] bytes(int from, int to) {
+		byte[] b = new byte[to - from];
+		for (int i = 0; i < b.length; i++) {
+			b[i] = (byte) (from + i);
+		}
+		return b;
+	}
+
+	private static byte[] poll(ByteRingBuffer ring, int max) {
+		byte[] out = new byte[max];
+		return Arrays.copyOf(out, ring.poll(out));
+	}
+
+	@Test
+	void capacityGetsRoundedUp() {
+		assertEquals(8, new ByteRingBuffer(5, OverflowPolicy.DROP_NEWEST).capacity());
+		assertEquals(8, new ByteRingBuffer(8, OverflowPolicy.DROP_NEWEST).capacity());
+	}
+
+	@Test
+	void wrapsAround() {
+		ByteRingBuffer ring = new ByteRingBuffer(8, OverflowPolicy.DROP_NEWEST);
+		for (int round = 0; round < 10; round++) { // positions run far past the array length
+			byte[] data = bytes(round * 5, round * 5 + 5);
+			ring.offer(data, 0, data.length);
+			assertArrayEquals(data, poll(ring, 8));
+			assertTrue(ring.isEmpty());
+		}
+		assertEquals(0, ring.getDroppedBytes());
+	}
+
+	@Test
+	void dropNewestKeepsBufferedBytes() {
+		ByteRingBuffer ring = new ByteRingBuffer(8, OverflowPolicy.DROP_NEWEST);
+		byte[] data = bytes(0, 12);
+		ring.offer(data, 0, data.length);
+		assertEquals(4, ring.getDroppedBytes());
+		assertArrayEquals(bytes(0, 8), poll(ring, 16));
+	}
+
+	@Test
+	void dropOldestKeepsNewBytes() {
+		ByteRingBuffer ring = new ByteRingBuffer(8, OverflowPolicy.DROP_OLDEST);
+		byte[] data = bytes(0, 6);
+		ring.offer(data, 0, data.length);
+		data = bytes(6, 12);
+		ring.offer(data, 0, data.length);
+		assertEquals(4, ring.getDroppedBytes());
+		assertArrayEquals(bytes(4, 12), poll(ring, 16));
+	}
+
+	@Test
+	void blockWaitsForConsumer() throws Exception {
+		ByteRingBuffer ring = new ByteRingBuffer(8, OverflowPolicy.BLOCK);
+		byte[] data = bytes(0, 100);
+		Thread producer = new Thread(() -> ring.offer(data, 0, data.length));
+		producer.start();
+		byte[] received = new byte[data.length];
+		int n = 0;
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while(n < data.length && System.nanoTime() < deadline) {
+			byte[] chunk = poll(ring, 3);
+			System.arraycopy(chunk, 0, received, n, chunk.length);
+			n += chunk.length;
+			if(chunk.length == 0) ring.awaitData();
+		}
+		producer.join(1000);
+		assertArrayEquals(data, received);
+		assertEquals(0, ring.getDroppedBytes());
+	}
+
+	@Test
+	void closeReleasesBlockedProducer() throws Exception {
+		ByteRingBuffer ring = new ByteRingBuffer(4, OverflowPolicy.BLOCK);
+		byte[] data = bytes(0, 8);
+		Thread producer = new Thread(() -> ring.offer(data, 0, data.length));
+		producer.start();
+		Thread.sleep(50);
+		ring.close();
+		producer.join(1000);
+		assertFalse(producer.isAlive());
+	}
+}
@@ -0,0 +1,63 @@
+package serial;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Received chunks reach chunk listeners whole and per byte listeners byte by byte
+ */
+class ChunkListenerTest {
+
+	@Test
+	void chunksGetDispatchedWhole() {
+		try (Serial serial = new Serial()) {
+			List<byte[]> chunks = new ArrayList<>();
+			serial.addChunkReceiveListener((data, offset, length) -> chunks.add(Arrays.copyOfRange(data, offset, offset + length)));
+			byte[] buffer = {9, 1, 2, 3, 9};
+			serial.received(buffer, 1, 3);
+			serial.received(buffer, 0, 1);
+			assertEquals(2, chunks.size());
+			assertArrayEquals(new byte[] {1, 2, 3}, chunks.get(0));
+			assertArrayEquals(new byte[] {9}, chunks.get(1));
+		}
+	}
+
+	@Test
+	void byteListenersSeeEveryByteInOrder() {
+		try (Serial serial = new Serial()) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			SerialByteReceiveListener listener = bytes::write;
+			serial.addByteReceiveListener(listener);
+			byte[] buffer = {0, 1, 2, 3, 4, 5};
+			serial.received(buffer, 1, 2);
+			serial.received(buffer, 3, 3);
+			assertArrayEquals(new byte[] {1, 2, 3, 4, 5}, bytes.toByteArray());
+		}
+	}
+
+	@Test
+	void byteListenersCanBeRemoved() {
+		try (Serial serial = new Serial()) {
+			ByteArrayOutputStream removed = new ByteArrayOutputStream();
+			ByteArrayOutputStream kept = new ByteArrayOutputStream();
+			SerialByteReceiveListener listener = removed::write;
+			SerialByteReceiveListener other = kept::write;
+			serial.addByteReceiveListener(listener);
+			serial.addByteReceiveListener(other);
+			assertTrue(serial.removeByteReceiveListener(listener));
+			assertFalse(serial.removeByteReceiveListener(listener));
+			serial.received(new byte[] {7, 8}, 0, 2);
+			assertEquals(0, removed.size());
+			assertArrayEquals(new byte[] {7, 8}, kept.toByteArray());
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package serial;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import serial.ArduinoField.ArduinoType;
+
+/**
+ * Round trips through the wire format of the extended field types
+ */
+class FieldCodecTest {
+
+	private static float half(float f) {
+		return FieldCodec.halfToFloat(FieldCodec.floatToHalf(f));
+	}
+
+	@Test
+	void halfKeepsRepresentableValues() {
+		for (float f : new float[] {0, -0f, 1, -2, 0.5f, 0.099975586f, 65504, -65504, 0x1p-14f, 0x1p-24f, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY}) {
+			assertEquals(Float.floatToIntBits(f), Float.floatToIntBits(half(f)), Float.toString(f));
+		}
+		assertTrue(Float.isNaN(half(Float.NaN)));
+	}
+
+	@Test
+	void everyHalfSurvivesAFloat() {
+		for (int bits = 0; bits <= 0xffff; bits++) {
+			float f = FieldCodec.halfToFloat((short) bits);
+			if(Float.isNaN(f)) {
+				assertTrue(Float.isNaN(FieldCodec.halfToFloat(FieldCodec.floatToHalf(f))));
+			} else {
+				assertEquals(bits, FieldCodec.floatToHalf(f) & 0xffff, Integer.toHexString(bits));
+			}
+		}
+	}
+
+	@Test
+	void halfRoundsToNearestEven() {
+		assertEquals(1f, half(1 + 0x1p-11f)); // tie, 1 is even
+		assertEquals(1 + 0x1p-9f, half(1 + 0x1p-10f + 0x1p-11f)); // tie, rounds up to even
+		assertEquals(1 + 0x1p-10f, half(1 + 0x1p-10f + 0x1p-12f));
+		assertEquals(Float.POSITIVE_INFINITY, half(70000));
+		assertEquals(0x1p-24f, half(0x1p-24f * 1.4f)); // subnormal
+	}
+
+	@Test
+	void fixedScalesAndClamps() {
+		FieldCodec fixed16 = FieldCodec.of(ArduinoType.Fixed16);
+		byte[] b = new byte[4];
+		fixed16.putDouble(b, 0, 1, 12.34, 0.01);
+		assertEquals(1234, ((b[2] & 0xff) << 8) | (b[3] & 0xff));
+		assertEquals(12.34, fixed16.getDouble(b, 0, 1, 0.01), 1e-9);
+		assertEquals(12, fixed16.getLong(b, 0, 1, 0.01));
+		fixed16.putDouble(b, 0, 0, 1e6, 0.01);
+		assertEquals(Short.MAX_VALUE * 0.01, fixed16.getDouble(b, 0, 0, 0.01), 1e-9);
+		fixed16.putDouble(b, 0, 0, -1e6, 0.01);
+		assertEquals(Short.MIN_VALUE * 0.01, fixed16.getDouble(b, 0, 0, 0.01), 1e-9);
+
+		FieldCodec fixed32 = FieldCodec.of(ArduinoType.Fixed32);
+		double[] values = {-21474.83648, 0, 0.001, 3.14159, 21474.83647};
+		byte[] wire = new byte[fixed32.length(values.length)];
+		fixed32.encode(values, values.length, wire, 0, 1e-5);
+		double[] decoded = new double[values.length];
+		fixed32.decode(wire, 0, decoded, values.length, 1e-5);
+		assertArrayEquals(values, decoded, 1e-9);
+		fixed32.putDouble(wire, 0, 0, 1e9, 1e-5);
+		assertEquals(Integer.MAX_VALUE * 1e-5, fixed32.getDouble(wire, 0, 0, 1e-5), 1e-9);
+	}
+
+	@Test
+	void bitsPackEightPerByte() {
+		FieldCodec bits = FieldCodec.of(ArduinoType.Bits);
+		assertEquals(2, bits.length(13));
+		boolean[] values = new boolean[13];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = i % 3 == 0;
+		}
+		byte[] wire = new byte[2];
+		bits.encode(values, values.length, wire, 0, 1);
+		assertEquals(0b01001001, wire[0] & 0xff); // bits 0, 3 and 6
+		assertEquals(0b00010010, wire[1] & 0xff); // bits 9 and 12
+		boolean[] decoded = new boolean[values.length];
+		bits.decode(wire, 0, decoded, values.length, 1);
+		assertArrayEquals(values, decoded);
+
+		bits.putBoolean(wire, 0, 12, false, 1);
+		bits.putBoolean(wire, 0, 1, true, 1);
+		assertEquals(0b01001011, wire[0] & 0xff);
+		assertEquals(0b00000010, wire[1] & 0xff);
+		assertEquals(Boolean.TRUE, bits.box(wire, 0, 1, 1));
+	}
+
+	@Test
+	void integerArraysRoundTrip() {
+		long[] values = {Long.MIN_VALUE, -1, 0, 1, Long.MAX_VALUE};
+		FieldCodec longs = FieldCodec.of(ArduinoType.Long);
+		byte[] wire = new byte[longs.length(values.length)];
+		longs.encode(values, values.length, wire, 0, 1);
+		long[] decoded = new long[values.length];
+		longs.decode(wire, 0, decoded, values.length, 1);
+		assertArrayEquals(values, decoded);
+
+		int[] shorts = {Short.MIN_VALUE, -1, 0, 1, Short.MAX_VALUE};
+		FieldCodec shortCodec = FieldCodec.of(ArduinoType.Short);
+		wire = new byte[shortCodec.length(shorts.length)];
+		shortCodec.encode(shorts, shorts.length, wire, 0, 1);
+		int[] decodedShorts = new int[shorts.length];
+		shortCodec.decode(wire, 0, decodedShorts, shorts.length, 1);
+		assertArrayEquals(shorts, decodedShorts);
+		assertEquals((short) -1, shortCodec.box(wire, 0, 1, 1));
+	}
+
+	@Test
+	void doublesKeepEveryBit() {
+		double[] values = {Math.PI, -0.0, Double.MIN_VALUE, Double.MAX_VALUE, Double.NEGATIVE_INFINITY};
+		FieldCodec doubles = FieldCodec.of(ArduinoType.Double);
+		byte[] wire = new byte[doubles.length(values.length)];
+		doubles.encode(values, values.length, wire, 0, 1);
+		double[] decoded = new double[values.length];
+		doubles.decode(wire, 0, decoded, values.length, 1);
+		assertArrayEquals(values, decoded);
+	}
+}
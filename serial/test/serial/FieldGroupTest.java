@@ -0,0 +1,160 @@
+package serial;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Grouped and delta compressed SET frames, including what happens after a lost frame
+ */
+class FieldGroupTest {
+
+	/**
+	 * Encodes one frame per round with ids 1 to 3 changing a little every round
+	 */
+	private static List<byte[]> encode(FieldGroupEncoder encoder, int rounds, byte[][] values) {
+		List<byte[]> frames = new ArrayList<>();
+		for (int round = 0; round < rounds; round++) {
+			for (int id = 1; id <= 3; id++) {
+				byte[] value = ByteBuffer.allocate(8).putInt(id).putInt(round * id).array();
+				values[round * 4 + id] = value;
+				encoder.add(id, value);
+			}
+			encoder.flush(true, FrameIntegrity.CRC8, (frame, length) -> frames.add(Arrays.copyOf(frame, length)));
+		}
+		return frames;
+	}
+
+	private static boolean decode(FieldGroupDecoder decoder, byte[] frame, byte[][] received) {
+		int size = frame[3] & 0xff;
+		byte[] payload = Arrays.copyOfRange(frame, FieldGroupEncoder.HEADER, FieldGroupEncoder.HEADER + size);
+		return decoder.decode(frame[1], frame[2] & 0xff, payload, size, (id, value, length) -> received[id] = Arrays.copyOf(value, length));
+	}
+
+	@Test
+	void deltaFramesRoundTrip() {
+		FieldGroupEncoder encoder = new FieldGroupEncoder();
+		FieldGroupDecoder decoder = new FieldGroupDecoder();
+		byte[][] values = new byte[4 * 40][];
+		List<byte[]> frames = encode(encoder, 40, values);
+		assertEquals(40, frames.size());
+		byte[][] received = new byte[256][];
+		for (int round = 0; round < frames.size(); round++) {
+			assertTrue(decode(decoder, frames.get(round), received));
+			for (int id = 1; id <= 3; id++) {
+				assertArrayEquals(values[round * 4 + id], received[id]);
+			}
+		}
+		assertEquals(0, frames.get(0)[1] & FieldGroupEncoder.FLAG_DELTA);
+		assertEquals(FieldGroupEncoder.FLAG_DELTA, frames.get(1)[1] & FieldGroupEncoder.FLAG_DELTA);
+		assertTrue(frames.get(1).length < frames.get(0).length);
+	}
+
+	@Test
+	void lostFrameDropsDeltasUntilKeyFrame() {
+		FieldGroupEncoder encoder = new FieldGroupEncoder();
+		encoder.setKeyInterval(4);
+		FieldGroupDecoder decoder = new FieldGroupDecoder();
+		byte[][] values = new byte[4 * 12][];
+		List<byte[]> frames = encode(encoder, 12, values);
+		byte[][] received = new byte[256][];
+		int lost = 2;
+		boolean chained = true;
+		int dropped = 0;
+		for (int round = 0; round < frames.size(); round++) {
+			byte[] frame = frames.get(round);
+			if(round == lost) {
+				chained = false;
+				continue;
+			}
+			if((frame[1] & FieldGroupEncoder.FLAG_DELTA) == 0) chained = true;
+			assertEquals(chained, decode(decoder, frame, received), "frame " + round);
+			if(chained) {
+				assertArrayEquals(values[round * 4 + 1], received[1]);
+			} else {
+				dropped++;
+				assertArrayEquals(values[(lost - 1) * 4 + 1], received[1]); // stale but never corrupted
+			}
+		}
+		assertTrue(dropped > 0);
+		assertTrue(chained);
+	}
+
+	@Test
+	void groupStreamRecoversFromCorruption() throws Exception {
+		try (SimulatedBoard board = new SimulatedBoard()) {
+			SimulatedArduinoTransport device = board.device;
+			ArduinoField[] fields = new ArduinoField[3];
+			for (int i = 0; i < fields.length; i++) {
+				fields[i] = board.intField(i + 1);
+			}
+			assertTrue(board.serial.negotiateFrameGrouping(FrameGrouping.COMPRESSED).get(1, TimeUnit.SECONDS));
+			assertEquals(FrameGrouping.COMPRESSED, device.getFrameGrouping());
+
+			device.setSeed(2);
+			device.setErrorRate(0.3);
+			device.streamGroup(5, 1, 2, 3);
+			Thread.sleep(300);
+			assertTrue(device.getCorruptedFrames() > 0);
+			assertTrue(board.serial.getMetrics().getDroppedGroups() > 0);
+
+			device.setErrorRate(0);
+			for (int i = 0; i < fields.length; i++) {
+				device.setValue(i + 1, SimulatedBoard.intValue(100 + i));
+			}
+			Thread.sleep(300); // a key frame comes at least every 16 frames
+			for (int i = 0; i < fields.length; i++) {
+				assertEquals(100 + i, fields[i].getLastValue());
+			}
+		}
+	}
+
+	@Test
+	void hostGroupsSetsInBatches() throws Exception {
+		try (SimulatedBoard board = new SimulatedBoard()) {
+			ArduinoField a = board.intField(1);
+			ArduinoField b = board.intField(2);
+			assertTrue(board.serial.negotiateFrameGrouping(FrameGrouping.COMPRESSED).get(1, TimeUnit.SECONDS));
+			long before = board.device.getFramesReceived();
+			for (int round = 0; round < 20; round++) {
+				board.serial.beginBatch();
+				a.set(round);
+				b.set(-round);
+				board.serial.commit();
+			}
+			Thread.sleep(100);
+			assertArrayEquals(SimulatedBoard.intValue(19), board.device.getValue(1));
+			assertArrayEquals(SimulatedBoard.intValue(-19), board.device.getValue(2));
+			assertTrue(board.device.getFramesReceived() - before <= 20, "one frame per batch at most");
+			assertEquals(0, board.device.getDroppedGroups());
+		}
+	}
+
+	@Test
+	void framesAfterGroupedSetsKeepTheirOrder() throws Exception {
+		try (SimulatedBoard board = new SimulatedBoard()) {
+			ArduinoField a = board.intField(1);
+			ArduinoField b = board.intField(2);
+			assertTrue(board.serial.negotiateFrameGrouping(FrameGrouping.COMPRESSED).get(1, TimeUnit.SECONDS));
+			board.serial.beginBatch();
+			a.set(7);
+			b.set(1);
+			CompletableFuture<Object> first = a.getAsync();
+			a.set(8);
+			board.serial.commit();
+			assertEquals(7, first.get(1, TimeUnit.SECONDS));
+			assertEquals(8, a.getAsync().get(1, TimeUnit.SECONDS));
+			assertEquals(1, b.getAsync().get(1, TimeUnit.SECONDS));
+			assertEquals(0, board.device.getDroppedGroups());
+		}
+	}
+}
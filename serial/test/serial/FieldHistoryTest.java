@@ -0,0 +1,97 @@
+package serial;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import serial.ArduinoField.ArduinoType;
+
+/**
+ * History ring after wrapping around and the queries over it
+ */
+class FieldHistoryTest {
+
+	/**
+	 * Records samples at t = 10 * i holding i and -i, for i from first to last
+	 */
+	private static void record(FieldHistory history, int first, int last) {
+		FieldValue value = new FieldValue(new ArduinoField(1, ArduinoType.Int, 2));
+		for (int i = first; i <= last; i++) {
+			value.bind(ByteBuffer.allocate(8).putInt(i).putInt(-i).array(), 0);
+			history.record(10L * i, value);
+		}
+	}
+
+	@Test
+	void wrapsAroundKeepingTheLatest() {
+		FieldHistory history = new FieldHistory(5, 2);
+		record(history, 0, 11);
+		assertEquals(5, history.size());
+		assertEquals(12, history.getRecorded());
+		for (int i = 0; i < 5; i++) {
+			assertEquals(70 + 10 * i, history.getTimestamp(i));
+			assertEquals(7 + i, history.getValue(i, 0));
+			assertEquals(-7 - i, history.getValue(i, 1));
+		}
+		assertThrows(IndexOutOfBoundsException.class, () -> history.getTimestamp(5));
+		assertThrows(IndexOutOfBoundsException.class, () -> history.getValue(0, 2));
+
+		long[] nanos = new long[3];
+		double[] values = new double[3];
+		assertEquals(3, history.last(1, nanos, values));
+		assertArrayEquals(new long[] {90, 100, 110}, nanos);
+		assertArrayEquals(new double[] {-9, -10, -11}, values);
+
+		history.clear();
+		assertEquals(0, history.size());
+		record(history, 20, 21);
+		assertEquals(200, history.getTimestamp(0));
+		assertEquals(2, history.last(10, 0, (t, v) -> {}));
+	}
+
+	@Test
+	void rangeSpansTheWrap() {
+		FieldHistory history = new FieldHistory(8, 2);
+		record(history, 0, 12); // holds 5 to 12, slot 0 is 8
+		List<Double> seen = new ArrayList<>();
+		assertEquals(4, history.range(65, 105, 0, (t, v) -> seen.add(v)));
+		assertEquals(List.of(7.0, 8.0, 9.0, 10.0), seen);
+		assertEquals(0, history.range(0, 50, 0, (t, v) -> {}));
+		assertEquals(8, history.range(0, 1000, 0, (t, v) -> {}));
+	}
+
+	@Test
+	void downsamplesIntoBuckets() {
+		FieldHistory history = new FieldHistory(16, 2);
+		record(history, 0, 19); // holds 4 to 19
+		double[] min = new double[4];
+		double[] max = new double[4];
+		double[] mean = new double[4];
+		assertEquals(16, history.downsample(40, 200, 0, min, max, mean));
+		assertArrayEquals(new double[] {4, 8, 12, 16}, min);
+		assertArrayEquals(new double[] {7, 11, 15, 19}, max);
+		assertArrayEquals(new double[] {5.5, 9.5, 13.5, 17.5}, mean);
+
+		history.downsample(40, 200, 1, min, null, null);
+		assertArrayEquals(new double[] {-7, -11, -15, -19}, min);
+	}
+
+	@Test
+	void emptyBucketsAreNaN() {
+		FieldHistory history = new FieldHistory(4, 2);
+		record(history, 0, 1);
+		double[] min = new double[4];
+		double[] mean = new double[4];
+		assertEquals(2, history.downsample(0, 40, 0, min, null, mean));
+		assertArrayEquals(new double[] {0, 1, Double.NaN, Double.NaN}, min);
+		assertArrayEquals(new double[] {0, 1, Double.NaN, Double.NaN}, mean);
+		assertThrows(RuntimeException.class, () -> history.downsample(40, 40, 0, min, null, null));
+		assertThrows(RuntimeException.class, () -> history.downsample(0, 40, 0, min, new double[2], null));
+	}
+}
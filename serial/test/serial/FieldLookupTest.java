@@ -0,0 +1,59 @@
+package serial;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import serial.ArduinoField.ArduinoType;
+
+/**
+ * Fields are looked up by their one byte wire id, which has to be unique
+ */
+class FieldLookupTest {
+
+	@Test
+	void idsHaveToFitInOneByte() {
+		try (SimulatedBoard board = new SimulatedBoard()) {
+			assertThrows(RuntimeException.class, () -> board.serial.put("big", new ArduinoField(256, ArduinoType.Int)));
+			assertThrows(RuntimeException.class, () -> board.serial.put("negative", new ArduinoField(-1, ArduinoType.Int)));
+			assertEquals(0, board.serial.setup.size());
+		}
+	}
+
+	@Test
+	void duplicateIdsGetRejected() {
+		try (SimulatedBoard board = new SimulatedBoard()) {
+			ArduinoField field = board.field(7, ArduinoType.Int);
+			assertThrows(RuntimeException.class, () -> board.serial.put("other", new ArduinoField(7, ArduinoType.Float)));
+			assertSame(field, board.serial.setup.get("f7"));
+			board.serial.put("again", field); // the same field under a second name is fine
+		}
+	}
+
+	@Test
+	void replacingANameFreesItsId() {
+		try (SimulatedBoard board = new SimulatedBoard()) {
+			board.field(7, ArduinoType.Int);
+			ArduinoField replacement = new ArduinoField(8, ArduinoType.Int);
+			board.serial.put("f7", replacement);
+			board.serial.put("free", new ArduinoField(7, ArduinoType.Int));
+			assertSame(replacement, board.serial.setup.get("f7"));
+		}
+	}
+
+	@Test
+	void answersReachTheFieldOfTheirId() throws Exception {
+		try (SimulatedBoard board = new SimulatedBoard()) {
+			ArduinoField low = board.intField(0);
+			ArduinoField high = board.intField(255);
+			board.device.setValue(0, SimulatedBoard.intValue(1));
+			board.device.setValue(255, SimulatedBoard.intValue(2));
+			assertEquals(1, low.getAsync().get(1, TimeUnit.SECONDS));
+			assertEquals(2, high.getAsync().get(1, TimeUnit.SECONDS));
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package serial;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringReader;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Accessors created from a descriptor, one per Java type
+ */
+class FieldSchemaTest {
+
+	private static final String DESCRIPTOR = String.join("\n",
+			"# name id type [qty] [scale]",
+			"f   1 Float",
+			"h   2 Half",
+			"x   3 Fixed16 1 0.01",
+			"s   4 Short",
+			"l   5 Long",
+			"b   6 Bits",
+			"fs  7 Float 3",
+			"is  8 Int 3",
+			"bs  9 Bits 10");
+
+	private static Map<String, FieldAccessor> register(SimulatedBoard board) throws Exception {
+		Map<String, FieldAccessor> accessors = FieldSchema.load(new StringReader(DESCRIPTOR)).register(board.serial);
+		for (FieldAccessor accessor : accessors.values()) {
+			board.device.define(accessor.getField().getId(), accessor.getField().length);
+		}
+		return accessors;
+	}
+
+	@Test
+	void accessorsArePerJavaType() throws Exception {
+		try (SimulatedBoard board = new SimulatedBoard()) {
+			Map<String, FieldAccessor> accessors = register(board);
+			assertInstanceOf(DoubleAccessor.class, accessors.get("f"));
+			assertInstanceOf(DoubleAccessor.class, accessors.get("h"));
+			assertInstanceOf(LongAccessor.class, accessors.get("s"));
+			assertInstanceOf(LongAccessor.class, accessors.get("l"));
+			assertInstanceOf(DoubleArrayAccessor.class, accessors.get("fs"));
+			assertInstanceOf(LongArrayAccessor.class, accessors.get("is"));
+			assertInstanceOf(BooleanAccessor.class, accessors.get("b"));
+			assertInstanceOf(BooleanArrayAccessor.class, accessors.get("bs"));
+		}
+	}
+
+	@Test
+	void scalarsRoundTrip() throws Exception {
+		try (SimulatedBoard board = new SimulatedBoard()) {
+			Map<String, FieldAccessor> accessors = register(board);
+			DoubleAccessor f = (DoubleAccessor) accessors.get("f");
+			DoubleAccessor h = (DoubleAccessor) accessors.get("h");
+			DoubleAccessor x = (DoubleAccessor) accessors.get("x");
+			LongAccessor s = (LongAccessor) accessors.get("s");
+			LongAccessor l = (LongAccessor) accessors.get("l");
+			BooleanAccessor b = (BooleanAccessor) accessors.get("b");
+			f.set(1.25);
+			h.set(0.5);
+			x.set(12.34);
+			s.set(-7);
+			l.set(Long.MAX_VALUE);
+			b.set(true);
+			Thread.sleep(50);
+			assertEquals(1.25, f.getAsync().get(1, TimeUnit.SECONDS));
+			assertEquals(0.5, h.getAsync().get(1, TimeUnit.SECONDS));
+			assertEquals(12.34, x.getAsync().get(1, TimeUnit.SECONDS), 1e-9);
+			assertEquals(-7, s.getAsync().get(1, TimeUnit.SECONDS));
+			assertEquals(Long.MAX_VALUE, l.getAsync().get(1, TimeUnit.SECONDS));
+			assertTrue(b.getAsync().get(1, TimeUnit.SECONDS));
+			assertEquals(1.25, f.getLast());
+			assertEquals(12.34, x.getLast(), 1e-9);
+			assertEquals(-7, s.getLast());
+			assertTrue(b.getLast());
+		}
+	}
+
+	@Test
+	void arraysRoundTrip() throws Exception {
+		try (SimulatedBoard board = new SimulatedBoard()) {
+			Map<String, FieldAccessor> accessors = register(board);
+			DoubleArrayAccessor fs = (DoubleArrayAccessor) accessors.get("fs");
+			LongArrayAccessor is = (LongArrayAccessor) accessors.get("is");
+			BooleanArrayAccessor bs = (BooleanArrayAccessor) accessors.get("bs");
+			fs.set(new float[] {1, 2.5f});
+			is.set(new int[] {-1, 0, 1});
+			boolean[] bits = {true, false, true, true, false, false, false, false, false, true};
+			bs.set(bits);
+			Thread.sleep(50);
+			assertArrayEquals(new double[] {1, 2.5, 0}, fs.getAsync().get(1, TimeUnit.SECONDS));
+			assertArrayEquals(new long[] {-1, 0, 1}, is.getAsync().get(1, TimeUnit.SECONDS));
+			assertArrayEquals(bits, bs.getAsync().get(1, TimeUnit.SECONDS));
+			long[] last = new long[3];
+			assertTrue(is.getLast(last));
+			assertArrayEquals(new long[] {-1, 0, 1}, last);
+		}
+	}
+}
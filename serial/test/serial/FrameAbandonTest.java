@@ -0,0 +1,105 @@
+package serial;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import serial.ArduinoField.ArduinoType;
+
+/**
+ * Partial frames the parser drops because they are too long or too slow, fed straight into an interface without a port
+ */
+class FrameAbandonTest {
+
+	private ArduinoSerialInterface serial;
+	private ArduinoField field;
+	private final List<FrameAbandonListener.Reason> abandoned = new ArrayList<>();
+
+	@BeforeEach
+	void open() {
+		serial = new ArduinoSerialInterface();
+		field = new ArduinoField(3, ArduinoType.Int);
+		serial.put("i", field);
+		serial.addFrameAbandonListener((type, bytes, reason) -> abandoned.add(reason));
+	}
+
+	@AfterEach
+	void close() {
+		serial.close();
+	}
+
+	static byte[] set(int id, byte... value) {
+		int body = value.length + 3;
+		byte[] b = new byte[body + 1];
+		b[0] = 'S';
+		b[1] = (byte) id;
+		b[2] = (byte) value.length;
+		System.arraycopy(value, 0, b, 3, value.length);
+		FrameIntegrity.SUM.write(FrameIntegrity.SUM.compute(b, 0, body), b, body);
+		return b;
+	}
+
+	private void feed(byte[] b) {
+		serial.chunkReceived(b, 0, b.length);
+	}
+
+	@Test
+	void oversizedSetGetsDroppedAtOnce() {
+		feed(new byte[] {'S', 3, (byte) 200}); // noise, no field is 200 bytes long
+		assertEquals(List.of(FrameAbandonListener.Reason.OVERFLOW), abandoned);
+		assertEquals(1, serial.getMetrics().getOverflowResets());
+
+		feed(set(3, (byte) 0, (byte) 0, (byte) 1, (byte) 2)); // the next frame is not swallowed
+		assertEquals(258, field.getLastValue());
+	}
+
+	@Test
+	void fittingSetIsNoOverflow() {
+		feed(set(3, (byte) 0, (byte) 0, (byte) 0, (byte) 9));
+		assertEquals(9, field.getLastValue());
+		assertEquals(0, serial.getMetrics().getOverflowResets());
+		assertEquals(List.of(), abandoned);
+	}
+
+	@Test
+	void lateByteAbandonsFrame() throws Exception {
+		serial.setInterByteTimeoutMicros(5000);
+		byte[] frame = set(3, (byte) 0, (byte) 0, (byte) 0, (byte) 5);
+		serial.chunkReceived(frame, 0, 4);
+		Thread.sleep(50);
+		serial.chunkReceived(frame, 4, frame.length - 4); // the rest of the frame is no frame on its own
+		assertEquals(List.of(FrameAbandonListener.Reason.TIMEOUT), abandoned);
+		assertEquals(1, serial.getMetrics().getFrameTimeouts());
+		assertNull(field.getLastValue());
+
+		feed(frame);
+		assertEquals(5, field.getLastValue());
+	}
+
+	@Test
+	void splitFrameWithinTimeoutCompletes() {
+		serial.setInterByteTimeoutMicros(1_000_000);
+		byte[] frame = set(3, (byte) 0, (byte) 0, (byte) 0, (byte) 6);
+		for (int i = 0; i < frame.length; i++) {
+			serial.chunkReceived(frame, i, 1);
+		}
+		assertEquals(6, field.getLastValue());
+		assertEquals(0, serial.getMetrics().getFrameTimeouts());
+		assertEquals(List.of(), abandoned);
+	}
+
+	@Test
+	void timeoutFollowsBaudRate() {
+		serial.setInterByteTimeoutCharacters(10);
+		serial.setBaudRate(115200);
+		assertEquals(868, serial.getInterByteTimeoutMicros()); // 10 characters of 10 bits
+		serial.setBaudRate(9600);
+		assertEquals(10416, serial.getInterByteTimeoutMicros());
+	}
+}
@@ -0,0 +1,79 @@
+package serial;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Negotiating the integrity check with boards with and without CRC support
+ */
+class FrameIntegrityTest {
+
+	private SimulatedBoard board;
+	private SimulatedArduinoTransport device;
+	private ArduinoSerialInterface serial;
+	private ArduinoField field;
+
+	@BeforeEach
+	void open() {
+		board = new SimulatedBoard();
+		device = board.device;
+		serial = board.serial;
+		field = board.intField(4);
+	}
+
+	@AfterEach
+	void close() {
+		board.close();
+	}
+
+	@Test
+	void crcGetsNegotiated() throws Exception {
+		for (FrameIntegrity mode : new FrameIntegrity[] {FrameIntegrity.CRC8, FrameIntegrity.CRC16}) {
+			assertTrue(serial.negotiateFrameIntegrity(mode).get(1, TimeUnit.SECONDS));
+			assertEquals(mode, serial.getFrameIntegrity());
+			assertEquals(mode, device.getFrameIntegrity());
+
+			device.setValue(4, SimulatedBoard.intValue(mode.ordinal()));
+			assertEquals(mode.ordinal(), field.getAsync().get(1, TimeUnit.SECONDS));
+			field.set(1000 + mode.ordinal());
+			Thread.sleep(50);
+			assertArrayEquals(SimulatedBoard.intValue(1000 + mode.ordinal()), device.getValue(4));
+		}
+		assertEquals(0, device.getInvalidChecksums());
+		assertEquals(0, serial.getMetrics().getChecksumFailures());
+	}
+
+	@Test
+	void legacyBoardStaysOnSum() throws Exception {
+		device.setCrcSupported(false);
+		assertFalse(serial.negotiateFrameIntegrity(FrameIntegrity.CRC16).get(1, TimeUnit.SECONDS));
+		assertEquals(FrameIntegrity.SUM, serial.getFrameIntegrity());
+		assertEquals(FrameIntegrity.SUM, device.getFrameIntegrity());
+
+		device.setValue(4, SimulatedBoard.intValue(9));
+		assertEquals(9, field.getAsync().get(1, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void corruptedFramesGetRejected() throws Exception {
+		assertTrue(serial.negotiateFrameIntegrity(FrameIntegrity.CRC16).get(1, TimeUnit.SECONDS));
+		device.setSeed(1);
+		device.setErrorRate(1);
+		device.setValue(4, SimulatedBoard.intValue(3));
+		device.stream(4, 5);
+		Thread.sleep(200);
+		device.stopStream(4);
+		assertTrue(device.getCorruptedFrames() > 0);
+		assertTrue(serial.getMetrics().getChecksumFailures() > 0);
+		assertNull(field.getLastValue());
+	}
+}
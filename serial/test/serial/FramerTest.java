@@ -0,0 +1,156 @@
+package serial;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Framers fed with every possible chunking of the same stream, and text mode decoding
+ */
+class FramerTest {
+
+	private static final byte[][] PAYLOADS = {
+			"hello".getBytes(StandardCharsets.US_ASCII),
+			{1, 0, 2, 0, 0, 3},
+			{SlipFramer.END, SlipFramer.ESC, 7, SlipFramer.ESC_END},
+			"a longer frame with more than eight bytes".getBytes(StandardCharsets.US_ASCII),
+	};
+
+	private static List<byte[]> feed(SerialFramer framer, byte[] stream, int chunkSize) {
+		List<byte[]> frames = new ArrayList<>();
+		for (int i = 0; i < stream.length; i += chunkSize) {
+			framer.feed(stream, i, Math.min(chunkSize, stream.length - i), (data, offset, length) -> frames.add(Arrays.copyOfRange(data, offset, offset + length)));
+		}
+		return frames;
+	}
+
+	/**
+	 * Checks that the stream gets cut into the expected frames no matter how it is split into chunks
+	 */
+	private static void assertFrames(Supplier<SerialFramer> framers, byte[] stream, byte[]... expected) {
+		for (int chunkSize = 1; chunkSize <= stream.length; chunkSize++) {
+			List<byte[]> frames = feed(framers.get(), stream, chunkSize);
+			assertEquals(expected.length, frames.size(), "chunk size " + chunkSize);
+			for (int i = 0; i < expected.length; i++) {
+				assertArrayEquals(expected[i], frames.get(i), "chunk size " + chunkSize + ", frame " + i);
+			}
+		}
+	}
+
+	private static byte[] ascii(String s) {
+		return s.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	@Test
+	void singleDelimiter() {
+		assertFrames(() -> new DelimiterFramer((byte) '\n'), ascii("first line\nsecond\n\nunterminated"), ascii("first line"), ascii("second"));
+	}
+
+	@Test
+	void anyOfSeveralDelimiters() {
+		assertFrames(() -> new DelimiterFramer((byte) '\r', (byte) '\n'), ascii("a\r\nbb\ncc\r"), ascii("a"), ascii("bb"), ascii("cc"));
+	}
+
+	@Test
+	void emptyFramesCanBeKept() {
+		assertFrames(() -> {
+			DelimiterFramer framer = new DelimiterFramer((byte) '\r', (byte) '\n');
+			framer.setSkipEmpty(false);
+			return framer;
+		}, ascii("a\r\n"), ascii("a"), new byte[0]);
+	}
+
+	@Test
+	void sequenceDelimiter() {
+		assertFrames(() -> new SequenceDelimiterFramer((byte) '\r', (byte) '\n'), ascii("one\r\ntwo\rthree\r\n\r\r\n"), ascii("one"), ascii("two\rthree"), ascii("\r"));
+	}
+
+	@Test
+	void sequenceDelimiterWithRepeatedPrefix() {
+		assertFrames(() -> new SequenceDelimiterFramer(ascii("aab")), ascii("xaaabyaab"), ascii("xa"), ascii("y"));
+	}
+
+	@Test
+	void lengthPrefix() throws Exception {
+		for (int prefixSize : new int[] {1, 2, 4}) {
+			LengthPrefixFramer encoder = new LengthPrefixFramer(prefixSize);
+			ByteArrayOutputStream stream = new ByteArrayOutputStream();
+			for (byte[] payload : PAYLOADS) {
+				stream.write(encoder.encode(payload, 0, payload.length));
+			}
+			assertFrames(() -> new LengthPrefixFramer(prefixSize), stream.toByteArray(), PAYLOADS);
+		}
+	}
+
+	@Test
+	void cobs() throws Exception {
+		byte[] longRun = new byte[600]; // code bytes of 0xff
+		Arrays.fill(longRun, (byte) 5);
+		longRun[300] = 0;
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		for (byte[] payload : PAYLOADS) {
+			stream.write(CobsFramer.encode(payload, 0, payload.length));
+		}
+		stream.write(CobsFramer.encode(longRun, 0, longRun.length));
+		byte[][] expected = Arrays.copyOf(PAYLOADS, PAYLOADS.length + 1);
+		expected[PAYLOADS.length] = longRun;
+		assertFrames(CobsFramer::new, stream.toByteArray(), expected);
+	}
+
+	@Test
+	void slip() throws Exception {
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		for (byte[] payload : PAYLOADS) {
+			stream.write(SlipFramer.encode(payload, 0, payload.length));
+		}
+		assertFrames(SlipFramer::new, stream.toByteArray(), PAYLOADS);
+	}
+
+	@Test
+	void overflowSplits() {
+		assertFrames(() -> {
+			DelimiterFramer framer = new DelimiterFramer((byte) '\n');
+			framer.setMaxFrameSize(4, FrameOverflowPolicy.SPLIT);
+			return framer;
+		}, ascii("abcdefghij\nxy\n"), ascii("abcd"), ascii("efgh"), ascii("ij"), ascii("xy"));
+	}
+
+	@Test
+	void overflowDiscards() {
+		DelimiterFramer framer = new DelimiterFramer((byte) '\n');
+		framer.setMaxFrameSize(4, FrameOverflowPolicy.DISCARD);
+		byte[] stream = ascii("abcdefghij\nxy\n");
+		List<byte[]> frames = feed(framer, stream, 3);
+		assertEquals(1, frames.size());
+		assertArrayEquals(ascii("xy"), frames.get(0));
+		assertEquals(1, framer.getOverflows());
+	}
+
+	@Test
+	void textListenersDecodeLikeReceiveListeners() {
+		try (Serial serial = new Serial()) {
+			List<String> texts = new ArrayList<>();
+			List<String> messages = new ArrayList<>();
+			List<Class<?>> types = new ArrayList<>();
+			serial.addTextListener(line -> {
+				types.add(line.getClass());
+				texts.add(line.toString());
+			});
+			serial.addReceiveListener(messages::add);
+			byte[] stream = "plain\nGrüße\n".getBytes(StandardCharsets.UTF_8);
+			serial.received(stream, 0, stream.length);
+			assertEquals(List.of("plain", "Grüße"), messages);
+			assertEquals(messages, texts);
+			assertEquals(ByteCharSequence.class, types.get(0)); // ASCII stays a view
+			assertEquals(String.class, types.get(1));
+		}
+	}
+}
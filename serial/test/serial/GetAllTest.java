@@ -0,0 +1,57 @@
+package serial;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import serial.ArduinoField.ArduinoType;
+
+/**
+ * Reading many fields with one write
+ */
+class GetAllTest {
+
+	@Test
+	void allFieldsInOneWrite() throws Exception {
+		try (SimulatedBoard board = new SimulatedBoard()) {
+			ArduinoField[] fields = new ArduinoField[5];
+			for (int i = 0; i < fields.length; i++) {
+				fields[i] = board.intField(i + 1);
+				board.device.setValue(i + 1, SimulatedBoard.intValue(10 * i));
+			}
+			Map<ArduinoField, Object> values = board.serial.getAll().get(1, TimeUnit.SECONDS);
+			assertEquals(1, board.device.getWrites());
+			assertEquals(fields.length, values.size());
+			for (int i = 0; i < fields.length; i++) {
+				assertEquals(10 * i, values.get(fields[i]));
+			}
+		}
+	}
+
+	@Test
+	void fieldsThatTimeOutAreLeftOut() throws Exception {
+		try (SimulatedBoard board = new SimulatedBoard()) {
+			ArduinoField answering = board.intField(1);
+			board.device.setValue(1, SimulatedBoard.intValue(5));
+			ArduinoField silent = board.field(2, ArduinoType.Int); // unknown to the board
+			Map<ArduinoField, Object> values = board.serial.getAll(List.of(answering, silent)).get(2, TimeUnit.SECONDS);
+			assertEquals(Map.of(answering, 5), values);
+			assertFalse(silent.isPending());
+		}
+	}
+
+	@Test
+	void foreignFieldsGetRejected() {
+		try (SimulatedBoard board = new SimulatedBoard(); SimulatedBoard other = new SimulatedBoard()) {
+			ArduinoField foreign = other.intField(1);
+			assertThrows(RuntimeException.class, () -> board.serial.getAll(List.of(foreign)));
+			assertEquals(0, board.device.getWrites());
+		}
+	}
+}
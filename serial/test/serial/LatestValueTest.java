@@ -0,0 +1,67 @@
+package serial;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Cached latest value and subscriptions to every received value
+ */
+class LatestValueTest {
+
+	@Test
+	void peekAnswersFromTheCache() throws Exception {
+		try (SimulatedBoard board = new SimulatedBoard()) {
+			ArduinoField field = board.intField(1);
+			board.device.setValue(1, SimulatedBoard.intValue(4));
+			assertNull(field.getLastValue());
+			assertEquals(-1, field.getLastReceivedNanos());
+			assertEquals(4, field.peek(1000).get(1, TimeUnit.SECONDS)); // nothing cached yet
+			long writes = board.device.getWrites();
+			board.device.setValue(1, SimulatedBoard.intValue(5));
+			assertEquals(4, field.peek(1000).get());
+			assertEquals(writes, board.device.getWrites());
+			assertEquals(4, field.getLastValue());
+		}
+	}
+
+	@Test
+	void stalePeekAsksTheBoard() throws Exception {
+		try (SimulatedBoard board = new SimulatedBoard()) {
+			ArduinoField field = board.intField(1);
+			board.device.setValue(1, SimulatedBoard.intValue(4));
+			assertEquals(4, field.getAsync().get(1, TimeUnit.SECONDS));
+			board.device.setValue(1, SimulatedBoard.intValue(5));
+			Thread.sleep(20);
+			assertEquals(5, field.peek(10).get(1, TimeUnit.SECONDS));
+		}
+	}
+
+	@Test
+	void subscribersGetStreamedValuesUntilUnsubscribed() throws Exception {
+		try (SimulatedBoard board = new SimulatedBoard()) {
+			ArduinoField field = board.intField(1);
+			board.device.setValue(1, SimulatedBoard.intValue(8));
+			List<Object> received = new CopyOnWriteArrayList<>();
+			Consumer<Object> subscriber = received::add;
+			assertTrue(field.subscribe(subscriber));
+			board.device.stream(1, 5);
+			Thread.sleep(100);
+			assertTrue(received.size() >= 3, received.size() + " values");
+			assertEquals(8, received.get(0));
+			assertTrue(field.unsubscribe(subscriber));
+			Thread.sleep(20); // values already on the way
+			int size = received.size();
+			Thread.sleep(100);
+			assertEquals(size, received.size());
+			assertEquals(8, field.getLastValue());
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package serial;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Failing listeners get isolated and reported to the error handler
+ */
+class ListenerRegistryTest {
+
+	@AfterEach
+	void restoreDefault() {
+		ListenerRegistry.setDefaultErrorHandler(ListenerErrorHandler.PRINT);
+	}
+
+	@Test
+	void failingListenerDoesNotStopOthers() {
+		ListenerRegistry<IntConsumer> registry = new ListenerRegistry<>();
+		List<Object> failed = new ArrayList<>();
+		registry.setErrorHandler((listener, error) -> failed.add(listener));
+		List<Integer> received = new ArrayList<>();
+		IntConsumer failing = v -> {
+			throw new IllegalStateException();
+		};
+		registry.add(failing);
+		registry.add(received::add);
+		for (int i = 0; i < 3; i++) {
+			registry.dispatch((l, v) -> l.accept(v), i);
+		}
+		assertEquals(List.of(0, 1, 2), received);
+		assertEquals(3, registry.getFailures());
+		assertEquals(3, failed.size());
+		assertSame(failing, failed.get(0));
+	}
+
+	@Test
+	void defaultHandlerAppliesWithoutOwnHandler() {
+		List<Throwable> errors = new ArrayList<>();
+		ListenerRegistry.setDefaultErrorHandler((listener, error) -> errors.add(error));
+		ListenerRegistry<Runnable> registry = new ListenerRegistry<>();
+		registry.add(() -> {
+			throw new IllegalStateException("failed");
+		});
+		registry.dispatch((l, v) -> l.run(), null);
+		assertEquals(1, errors.size());
+		assertEquals("failed", errors.get(0).getMessage());
+
+		registry.setErrorHandler(ListenerErrorHandler.IGNORE);
+		registry.dispatch((l, v) -> l.run(), null);
+		assertEquals(1, errors.size());
+		assertEquals(2, registry.getFailures());
+	}
+}
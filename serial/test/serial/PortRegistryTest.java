@@ -0,0 +1,175 @@
+package serial;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fazecast.jSerialComm.SerialPort;
+
+/**
+ * Cached enumeration, lookups by name and attach and detach events
+ */
+class PortRegistryTest {
+
+	@TempDir
+	Path dir;
+
+	/**
+	 * Port objects for device files in the temp dir, jSerialComm names them by file name
+	 */
+	private SerialPort port(String name) throws Exception {
+		Path file = dir.resolve(name);
+		if(!Files.exists(file)) Files.createFile(file);
+		return SerialPort.getCommPort(file.toString());
+	}
+
+	/**
+	 * Hands out the ports currently plugged in and counts the enumerations
+	 */
+	private static class Host {
+
+		volatile SerialPort[] ports = new SerialPort[0];
+		final AtomicInteger enumerations = new AtomicInteger();
+		volatile long delayMillis = 0;
+
+		SerialPort[] enumerate() {
+			enumerations.incrementAndGet();
+			try {
+				Thread.sleep(delayMillis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return ports.clone();
+		}
+	}
+
+	@Test
+	void resultsGetCachedForTheTtl() throws Exception {
+		Host host = new Host();
+		host.ports = new SerialPort[] {port("ttyA")};
+		PortRegistry registry = new PortRegistry(host::enumerate);
+		registry.setTtl(100);
+		assertEquals(1, registry.getPorts().size());
+		assertEquals(1, registry.getPorts().size());
+		assertEquals(1, host.enumerations.get());
+		Thread.sleep(150);
+		registry.getPorts();
+		assertEquals(2, host.enumerations.get());
+	}
+
+	@Test
+	void unknownNamesRefreshAtMostEveryMinInterval() throws Exception {
+		Host host = new Host();
+		PortRegistry registry = new PortRegistry(host::enumerate);
+		registry.setTtl(60_000);
+		assertNull(registry.find("ttyB"));
+		assertNull(registry.find("ttyB"));
+		assertEquals(1, host.enumerations.get());
+		SerialPort port = port("ttyB");
+		host.ports = new SerialPort[] {port};
+		Thread.sleep(150);
+		assertSame(port, registry.find("ttyB"));
+		assertEquals(2, host.enumerations.get());
+	}
+
+	@Test
+	void namesMatchSystemNameBeforeDescription() throws Exception {
+		Host host = new Host();
+		SerialPort first = port("ttyC");
+		SerialPort second = port("ttyD");
+		host.ports = new SerialPort[] {first, second};
+		PortRegistry registry = new PortRegistry(host::enumerate);
+		assertSame(second, registry.find("ttyD"));
+		assertSame(first, registry.find(second.getPortDescription())); // shared description, first one wins
+		assertSame(first, registry.find(first.getDescriptivePortName()));
+	}
+
+	@Test
+	void staleCallersShareOneEnumeration() throws Exception {
+		Host host = new Host();
+		host.ports = new SerialPort[] {port("ttyE")};
+		host.delayMillis = 50;
+		PortRegistry registry = new PortRegistry(host::enumerate);
+		List<PortInfo> attached = new CopyOnWriteArrayList<>();
+		registry.addPortChangeListener(new PortChangeListener() {
+			@Override
+			public void portAttached(PortInfo port) {
+				attached.add(port);
+			}
+
+			@Override
+			public void portDetached(PortInfo port) {
+			}
+		});
+		CountDownLatch start = new CountDownLatch(1);
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			Thread t = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				registry.getPorts();
+			});
+			t.start();
+			threads.add(t);
+		}
+		start.countDown();
+		for (Thread t : threads) {
+			t.join();
+		}
+		assertEquals(1, host.enumerations.get());
+		assertEquals(1, attached.size());
+	}
+
+	@Test
+	void failingListenerDoesNotStopOthers() throws Exception {
+		Host host = new Host();
+		PortRegistry registry = new PortRegistry(host::enumerate);
+		List<Object> failed = new ArrayList<>();
+		registry.setListenerErrorHandler((listener, error) -> failed.add(listener));
+		List<String> events = new ArrayList<>();
+		PortChangeListener failing = new PortChangeListener() {
+			@Override
+			public void portAttached(PortInfo port) {
+				throw new IllegalStateException();
+			}
+
+			@Override
+			public void portDetached(PortInfo port) {
+				throw new IllegalStateException();
+			}
+		};
+		registry.addPortChangeListener(failing);
+		registry.addPortChangeListener(new PortChangeListener() {
+			@Override
+			public void portAttached(PortInfo port) {
+				events.add("+" + port.getSystemPortName());
+			}
+
+			@Override
+			public void portDetached(PortInfo port) {
+				events.add("-" + port.getSystemPortName());
+			}
+		});
+		host.ports = new SerialPort[] {port("ttyF"), port("ttyG")};
+		registry.refresh();
+		host.ports = new SerialPort[] {host.ports[1]};
+		registry.refresh();
+		assertEquals(List.of("+ttyF", "+ttyG", "-ttyF"), events);
+		assertEquals(3, failed.size());
+		assertSame(failing, failed.get(0));
+	}
+}
@@ -0,0 +1,151 @@
+package serial;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Requests that were pending when the connection dropped get repeated after the reconnect
+ */
+class ReconnectTest {
+
+	private SimulatedBoard board;
+	private SimulatedArduinoTransport device;
+	private ArduinoSerialInterface serial;
+	private ArduinoField field;
+
+	@BeforeEach
+	void open() {
+		board = new SimulatedBoard();
+		device = board.device;
+		serial = board.serial;
+		serial.setOpenDelay(20);
+		serial.enableAutoReconnect(new ReconnectPolicy(50, 500));
+		field = board.intField(3);
+		device.setValue(3, SimulatedBoard.intValue(11));
+	}
+
+	@AfterEach
+	void close() {
+		board.close();
+	}
+
+	@Test
+	void pendingGetGetsResent() throws Exception {
+		assertEquals(11, field.getAsync().get(1, TimeUnit.SECONDS));
+		device.simulateDisconnect(300);
+		CompletableFuture<Object> future = field.getAsync();
+		assertEquals(11, future.get(3, TimeUnit.SECONDS));
+		assertTrue(serial.getReconnects() >= 1);
+		assertTrue(device.isOpen());
+	}
+
+	@Test
+	void pendingGetSurvivesDefaultOpenDelay() throws Exception {
+		SimulatedArduinoTransport device = new SimulatedArduinoTransport(1_000_000, 0, 0);
+		ArduinoSerialInterface serial = new ArduinoSerialInterface(device); // default request timeout and open delay
+		try {
+			serial.enableAutoReconnect(new ReconnectPolicy(50, 500));
+			ArduinoField field = new ArduinoField(4, ArduinoField.ArduinoType.Int);
+			device.define(4, 4);
+			device.setValue(4, SimulatedBoard.intValue(12));
+			serial.put("f", field);
+			assertEquals(12, field.getAsync().get(1, TimeUnit.SECONDS));
+			device.simulateDisconnect(100);
+			CompletableFuture<Object> future = field.getAsync();
+			assertEquals(12, future.get(5, TimeUnit.SECONDS)); // open delay plus request timeout
+			assertTrue(serial.getReconnects() >= 1);
+		} finally {
+			serial.close();
+			device.dispose();
+		}
+	}
+
+	@Test
+	void closeFailsPendingGets() throws Exception {
+		device.simulateDisconnect(60_000);
+		CompletableFuture<Object> future = field.getAsync();
+		Thread.sleep(100);
+		assertTrue(serial.isReconnecting());
+		assertFalse(future.isDone()); // no deadline while reconnecting
+		serial.close();
+		ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS));
+		assertInstanceOf(IOException.class, e.getCause());
+	}
+
+	@Test
+	void reconnectListenersRunOffTheWritingThread() throws Exception {
+		CompletableFuture<Thread> listenerThread = new CompletableFuture<>();
+		serial.addReconnectListener(new SerialReconnectListener() {
+			@Override
+			public void connectionLost(String name) {
+				listenerThread.complete(Thread.currentThread());
+			}
+
+			@Override
+			public void reconnected(String name, long recoveryNanos) {
+			}
+		});
+		device.simulateDisconnect(200);
+		assertFalse(serial.println("lost")); // the write notices the lost connection
+		assertNotSame(Thread.currentThread(), listenerThread.get(1, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void integrityGetsRenegotiated() throws Exception {
+		assertTrue(serial.negotiateFrameIntegrity(FrameIntegrity.CRC16).get(1, TimeUnit.SECONDS));
+		device.simulateDisconnect(200);
+		CompletableFuture<Object> future = field.getAsync();
+		assertEquals(11, future.get(3, TimeUnit.SECONDS));
+		assertEquals(FrameIntegrity.CRC16, serial.getFrameIntegrity());
+		assertEquals(FrameIntegrity.CRC16, device.getFrameIntegrity());
+		assertEquals(0, device.getInvalidChecksums());
+	}
+
+	@Test
+	void subscribedFieldsGetRequestedAgain() throws Exception {
+		CompletableFuture<Object> update = new CompletableFuture<>();
+		device.simulateDisconnect(200);
+		Thread.sleep(100); // let the supervisor notice
+		field.subscribe(update::complete);
+		assertEquals(11, update.get(3, TimeUnit.SECONDS));
+		assertTrue(serial.getReconnects() >= 1);
+	}
+
+	@Test
+	void reconnectListenersGetNotified() throws Exception {
+		CountDownLatch lost = new CountDownLatch(1);
+		CountDownLatch back = new CountDownLatch(1);
+		AtomicLong recovery = new AtomicLong();
+		serial.addReconnectListener(new SerialReconnectListener() {
+			@Override
+			public void connectionLost(String name) {
+				lost.countDown();
+			}
+
+			@Override
+			public void reconnected(String name, long recoveryNanos) {
+				recovery.set(recoveryNanos);
+				back.countDown();
+			}
+		});
+		device.simulateDisconnect(200);
+		assertTrue(lost.await(3, TimeUnit.SECONDS));
+		assertTrue(back.await(3, TimeUnit.SECONDS));
+		assertEquals(serial.getLastRecoveryNanos(), recovery.get());
+	}
+}
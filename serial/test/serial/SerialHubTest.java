@@ -0,0 +1,92 @@
+package serial;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Many simulated ports driven by the small pool of one hub
+ */
+class SerialHubTest {
+
+	private static final int SET_SIZE = 8; // S, id, size, 4 value bytes and the legacy sum
+
+	@Test
+	void portsShareThePool() throws Exception {
+		SimulatedBoard[] boards = new SimulatedBoard[4];
+		try (SerialHub hub = new SerialHub(2)) {
+			ArduinoField[] fields = new ArduinoField[boards.length];
+			for (int i = 0; i < boards.length; i++) {
+				boards[i] = new SimulatedBoard();
+				hub.add(boards[i].serial);
+				assertTrue(boards[i].serial.isPipelined());
+				fields[i] = boards[i].intField(1);
+				boards[i].device.setValue(1, SimulatedBoard.intValue(i));
+			}
+			for (int round = 0; round < 10; round++) {
+				for (int i = 0; i < boards.length; i++) {
+					assertEquals(i, fields[i].getAsync().get(1, TimeUnit.SECONDS));
+				}
+			}
+			assertEquals(boards.length, hub.getPorts().size());
+			assertTrue(hub.remove(boards[0].serial));
+			assertFalse(hub.remove(boards[0].serial));
+			assertEquals(boards.length - 1, hub.getPorts().size());
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			hub.printThroughput(new PrintStream(out, true, StandardCharsets.UTF_8));
+			String text = out.toString(StandardCharsets.UTF_8);
+			assertTrue(text.contains("Simulated Arduino"), text);
+			assertTrue(text.contains("total: "), text);
+		} finally {
+			for (SimulatedBoard board : boards) {
+				if(board != null) board.close();
+			}
+		}
+	}
+
+	@Test
+	void disablingThePipelineDrainsTheRing() throws Exception {
+		try (SerialHub hub = new SerialHub(1); SimulatedBoard board = new SimulatedBoard()) {
+			hub.add(board.serial);
+			ArduinoField field = board.intField(1);
+			board.device.setValue(1, SimulatedBoard.intValue(6));
+			CountDownLatch release = new CountDownLatch(1);
+			hub.getExecutor().execute(() -> { // keeps the drain waiting in the queue
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+			CompletableFuture<Object> future = field.getAsync();
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+			while(board.serial.getBytesReceived() < SET_SIZE && System.nanoTime() < deadline) {
+				Thread.sleep(1);
+			}
+			assertEquals(SET_SIZE, board.serial.getBytesReceived());
+			assertFalse(future.isDone()); // the answer waits in the ring
+			new Thread(() -> {
+				try {
+					Thread.sleep(50);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				release.countDown();
+			}).start();
+			board.serial.disablePipeline();
+			assertFalse(board.serial.isPipelined());
+			assertTrue(future.isDone());
+			assertEquals(6, future.get());
+		}
+	}
+}
@@ -0,0 +1,204 @@
+package serial;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Backpressure, overflow policies, completion and failing subscribers of publishers
+ */
+class SerialPublisherTest {
+
+	/**
+	 * Requests initial items and collects them, onNext throws for the item fail
+	 */
+	private static class Collector<T> implements Flow.Subscriber<T> {
+
+		final List<T> items = new CopyOnWriteArrayList<>();
+		final long initial;
+		final T fail;
+		volatile Flow.Subscription subscription;
+		volatile boolean completed = false;
+		volatile Throwable error = null;
+
+		Collector(long initial, T fail) {
+			this.initial = initial;
+			this.fail = fail;
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+			if(initial > 0) subscription.request(initial);
+		}
+
+		@Override
+		public void onNext(T item) {
+			if(item.equals(fail)) throw new IllegalStateException("fails on " + item);
+			items.add(item);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			error = throwable;
+		}
+
+		@Override
+		public void onComplete() {
+			completed = true;
+		}
+	}
+
+	@Test
+	void dropNewestKeepsBufferedItems() {
+		SerialPublisher<Integer> publisher = new SerialPublisher<>(2, OverflowPolicy.DROP_NEWEST);
+		Collector<Integer> collector = new Collector<>(0, null);
+		publisher.subscribe(collector);
+		for (int i = 0; i < 5; i++) {
+			publisher.submit(i);
+		}
+		assertEquals(3, publisher.getDropped());
+		collector.subscription.request(10);
+		publisher.close();
+		assertEquals(List.of(0, 1), collector.items);
+		assertTrue(collector.completed);
+	}
+
+	@Test
+	void failingSubscriberGoesToErrorHandler() {
+		SerialPublisher<Integer> publisher = new SerialPublisher<>(4, OverflowPolicy.DROP_OLDEST);
+		List<Object> failed = new ArrayList<>();
+		publisher.setErrorHandler((subscriber, error) -> failed.add(subscriber));
+		Collector<Integer> collector = new Collector<>(Long.MAX_VALUE, 1);
+		publisher.subscribe(collector);
+		for (int i = 0; i < 5; i++) {
+			publisher.submit(i);
+		}
+		assertEquals(List.of(0), collector.items);
+		assertEquals(1, failed.size());
+		assertSame(collector, failed.get(0));
+		assertEquals(1, publisher.getFailures());
+		assertFalse(publisher.hasSubscribers()); // cancelled
+	}
+
+	@Test
+	void dropOldestKeepsNewestItems() {
+		SerialPublisher<Integer> publisher = new SerialPublisher<>(2, OverflowPolicy.DROP_OLDEST);
+		Collector<Integer> collector = new Collector<>(0, null);
+		publisher.subscribe(collector);
+		for (int i = 0; i < 5; i++) {
+			publisher.submit(i);
+		}
+		assertEquals(3, publisher.getDropped());
+		collector.subscription.request(10);
+		assertEquals(List.of(3, 4), collector.items);
+	}
+
+	@Test
+	void blockStallsTheProducerUntilRequested() throws Exception {
+		SerialPublisher<Integer> publisher = new SerialPublisher<>(2, OverflowPolicy.BLOCK);
+		Collector<Integer> collector = new Collector<>(0, null);
+		publisher.subscribe(collector);
+		Thread producer = new Thread(() -> {
+			for (int i = 0; i < 5; i++) {
+				publisher.submit(i);
+			}
+		});
+		producer.start();
+		producer.join(100);
+		assertTrue(producer.isAlive()); // waits for room in the buffer
+		assertTrue(collector.items.isEmpty());
+		collector.subscription.request(1);
+		assertEquals(List.of(0), collector.items);
+		collector.subscription.request(10);
+		producer.join(1000);
+		assertFalse(producer.isAlive());
+		collector.subscription.request(10);
+		assertEquals(List.of(0, 1, 2, 3, 4), collector.items);
+		assertEquals(0, publisher.getDropped());
+	}
+
+	@Test
+	void cancelReleasesABlockedProducer() throws Exception {
+		SerialPublisher<Integer> publisher = new SerialPublisher<>(1, OverflowPolicy.BLOCK);
+		Collector<Integer> collector = new Collector<>(0, null);
+		publisher.subscribe(collector);
+		Thread producer = new Thread(() -> {
+			for (int i = 0; i < 3; i++) {
+				publisher.submit(i);
+			}
+		});
+		producer.start();
+		producer.join(100);
+		assertTrue(producer.isAlive());
+		collector.subscription.cancel();
+		producer.join(1000);
+		assertFalse(producer.isAlive());
+		assertFalse(publisher.hasSubscribers());
+	}
+
+	@Test
+	void nonPositiveRequestSignalsError() {
+		SerialPublisher<Integer> publisher = new SerialPublisher<>(2, OverflowPolicy.DROP_OLDEST);
+		Collector<Integer> collector = new Collector<>(0, null);
+		publisher.subscribe(collector);
+		collector.subscription.request(0);
+		assertInstanceOf(IllegalArgumentException.class, collector.error);
+		assertFalse(publisher.hasSubscribers());
+		publisher.submit(1);
+		assertTrue(collector.items.isEmpty());
+	}
+
+	@Test
+	void lateSubscribersOfAClosedPublisherComplete() {
+		SerialPublisher<Integer> publisher = new SerialPublisher<>(2, OverflowPolicy.DROP_OLDEST);
+		publisher.close();
+		Collector<Integer> collector = new Collector<>(1, null);
+		publisher.subscribe(collector);
+		assertTrue(collector.completed);
+	}
+
+	@Test
+	void closingSerialCompletesLinePublishers() {
+		Serial serial = new Serial();
+		SerialPublisher<String> publisher = serial.publishLines(4, OverflowPolicy.DROP_OLDEST);
+		Collector<String> collector = new Collector<>(Long.MAX_VALUE, null);
+		publisher.subscribe(collector);
+		byte[] lines = "a\nb\n".getBytes(StandardCharsets.UTF_8);
+		serial.received(lines, 0, lines.length);
+		assertEquals(List.of("a", "b"), collector.items);
+		serial.close();
+		assertTrue(collector.completed);
+		assertTrue(publisher.isClosed());
+		serial.received(lines, 0, lines.length); // no longer fed
+		assertEquals(2, collector.items.size());
+	}
+
+	@Test
+	void closingTheInterfaceCompletesValuePublishers() throws Exception {
+		SimulatedBoard board = new SimulatedBoard();
+		Collector<Object> collector = new Collector<>(Long.MAX_VALUE, null);
+		try {
+			ArduinoField field = board.intField(1);
+			board.device.setValue(1, SimulatedBoard.intValue(7));
+			field.publishValues(4, OverflowPolicy.DROP_OLDEST).subscribe(collector);
+			field.getAsync().get(1, TimeUnit.SECONDS);
+			assertEquals(List.of(7), collector.items);
+			assertFalse(collector.completed);
+		} finally {
+			board.close();
+		}
+		assertTrue(collector.completed);
+	}
+}
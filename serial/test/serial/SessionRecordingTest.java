@@ -0,0 +1,109 @@
+package serial;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import serial.ArduinoField.ArduinoType;
+
+/**
+ * Recording sessions into mapped segments and replaying them
+ */
+class SessionRecordingTest {
+
+	@TempDir
+	Path directory;
+
+	private static byte[] bytes(int from, int length) {
+		byte[] b = new byte[length];
+		for (int i = 0; i < length; i++) {
+			b[i] = (byte) (from + i);
+		}
+		return b;
+	}
+
+	/**
+	 * Replays as fast as possible into a buffer
+	 */
+	private static byte[] replay(ReplayTransport replay) throws Exception {
+		ByteArrayOutputStream received = new ByteArrayOutputStream();
+		assertTrue(replay.open((data, offset, length) -> received.write(data, offset, length)));
+		assertTrue(replay.awaitEnd(5, TimeUnit.SECONDS));
+		replay.close();
+		return received.toByteArray();
+	}
+
+	@Test
+	void receivedChunksGetReplayed() throws Exception {
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		try (SessionRecorder recorder = new SessionRecorder(directory, 4096, 0)) {
+			for (int i = 0; i < 20; i++) {
+				byte[] in = bytes(i, 10 + i);
+				recorder.record(SessionRecorder.RECEIVED, in, 0, in.length);
+				expected.write(in);
+				byte[] out = bytes(100, 5);
+				recorder.record(SessionRecorder.SENT, out, 0, out.length); // not replayed
+			}
+			assertEquals(40, recorder.getRecords());
+		}
+		ReplayTransport replay = new ReplayTransport(directory, 0);
+		assertArrayEquals(expected.toByteArray(), replay(replay));
+		assertEquals(20, replay.getReplayedChunks());
+	}
+
+	@Test
+	void segmentsRollAndSplitLargeChunks() throws Exception {
+		byte[] large = bytes(0, 1000);
+		try (SessionRecorder recorder = new SessionRecorder(directory, 256, 0)) {
+			recorder.record(SessionRecorder.RECEIVED, large, 0, large.length);
+			assertTrue(recorder.getRecords() > 1);
+			assertEquals(0, recorder.getFailures());
+		}
+		assertTrue(SessionRecorder.segments(directory).size() >= 4);
+		assertArrayEquals(large, replay(new ReplayTransport(directory, 0)));
+	}
+
+	@Test
+	void oldSegmentsGetDeleted() throws Exception {
+		byte[] chunk = bytes(0, 100);
+		try (SessionRecorder recorder = new SessionRecorder(directory, 256, 2)) {
+			for (int i = 0; i < 20; i++) {
+				recorder.record(SessionRecorder.RECEIVED, chunk, 0, chunk.length);
+			}
+		}
+		assertTrue(SessionRecorder.segments(directory).size() <= 2);
+		byte[] replayed = replay(new ReplayTransport(directory, 0));
+		assertTrue(replayed.length > 0 && replayed.length < 20 * chunk.length);
+	}
+
+	@Test
+	void replayDrivesFieldDecoding() throws Exception {
+		try (SimulatedBoard board = new SimulatedBoard()) {
+			ArduinoField field = board.intField(3);
+			board.device.setValue(3, SimulatedBoard.intValue(21));
+			SessionRecorder recorder = new SessionRecorder(directory, 1 << 16, 0);
+			board.serial.startRecording(recorder);
+			assertEquals(21, field.getAsync().get(1, TimeUnit.SECONDS));
+			board.serial.stopRecording().close();
+		}
+
+		ArduinoSerialInterface serial = new ArduinoSerialInterface();
+		try {
+			ArduinoField field = new ArduinoField(3, ArduinoType.Int);
+			serial.put("i", field);
+			ReplayTransport replay = new ReplayTransport(directory, 0);
+			assertTrue(serial.open(replay));
+			assertTrue(replay.awaitEnd(5, TimeUnit.SECONDS));
+			assertEquals(21, field.getLastValue());
+		} finally {
+			serial.close();
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package serial;
+
+import java.nio.ByteBuffer;
+
+import serial.ArduinoField.ArduinoType;
+
+/**
+ * Fixture shared by the tests: a simulated board on a fast link without latency or errors
+ * and the interface talking to it
+ */
+class SimulatedBoard implements AutoCloseable {
+
+	final SimulatedArduinoTransport device;
+	final ArduinoSerialInterface serial;
+
+	SimulatedBoard() {
+		device = new SimulatedArduinoTransport(1_000_000, 0, 0);
+		serial = new ArduinoSerialInterface(device);
+		serial.setRequestTimeout(200);
+	}
+
+	/**
+	 * Puts a field into the interface without defining it on the board
+	 */
+	ArduinoField field(int id, ArduinoType type) {
+		ArduinoField field = new ArduinoField(id, type);
+		serial.put("f" + id, field);
+		return field;
+	}
+
+	/**
+	 * Defines a 4 byte field on the board and puts it into the interface
+	 */
+	ArduinoField intField(int id) {
+		device.define(id, 4);
+		return field(id, ArduinoType.Int);
+	}
+
+	static byte[] intValue(int value) {
+		return ByteBuffer.allocate(4).putInt(value).array();
+	}
+
+	@Override
+	public void close() {
+		serial.close();
+		device.dispose();
+	}
+}
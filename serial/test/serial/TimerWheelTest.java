@@ -0,0 +1,49 @@
+package serial;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Deadlines of the timer wheel, cancelling them and failing tasks
+ */
+class TimerWheelTest {
+
+	@Test
+	void timeoutsFireUnlessCancelled() throws Exception {
+		TimerWheel wheel = new TimerWheel(1, TimeUnit.MILLISECONDS, 8);
+		CountDownLatch fired = new CountDownLatch(1);
+		AtomicBoolean cancelledFired = new AtomicBoolean(false);
+		long start = System.nanoTime();
+		wheel.schedule(20, TimeUnit.MILLISECONDS, fired::countDown); // more than one turn of the wheel
+		wheel.schedule(5, TimeUnit.MILLISECONDS, () -> cancelledFired.set(true)).cancel();
+		assertTrue(fired.await(1, TimeUnit.SECONDS));
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+		assertFalse(cancelledFired.get());
+	}
+
+	@Test
+	void failingTasksGoToErrorHandler() throws Exception {
+		TimerWheel wheel = new TimerWheel(1, TimeUnit.MILLISECONDS, 8);
+		List<Object> failed = new ArrayList<>();
+		wheel.setErrorHandler((task, error) -> failed.add(task));
+		CountDownLatch after = new CountDownLatch(1);
+		Runnable failing = () -> {
+			throw new IllegalStateException();
+		};
+		wheel.schedule(5, TimeUnit.MILLISECONDS, failing);
+		wheel.schedule(5, TimeUnit.MILLISECONDS, after::countDown);
+		assertTrue(after.await(1, TimeUnit.SECONDS));
+		Thread.sleep(20);
+		assertEquals(1, wheel.getFailures());
+		assertEquals(List.of(failing), failed);
+	}
+}
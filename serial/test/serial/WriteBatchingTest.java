@@ -0,0 +1,109 @@
+package serial;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Frames written while batching go out together on size, on linger time or on the outermost commit
+ */
+class WriteBatchingTest {
+
+	private static final int GET_SIZE = 3; // G, id and the legacy sum
+
+	@Test
+	void thresholdFlushes() throws Exception {
+		try (SimulatedBoard board = new SimulatedBoard()) {
+			ArduinoField field = board.intField(1);
+			board.serial.enableWriteBatching(3 * GET_SIZE, 0);
+			field.sendGet();
+			field.sendGet();
+			assertEquals(0, board.device.getWrites());
+			assertEquals(0, board.serial.getBytesSent());
+			field.sendGet();
+			assertEquals(1, board.device.getWrites());
+			assertEquals(3 * GET_SIZE, board.serial.getBytesSent());
+			Thread.sleep(50);
+			assertEquals(3, board.device.getFramesReceived()); // one write, still three frames
+		}
+	}
+
+	@Test
+	void lingerFlushesWhatStaysBelowTheThreshold() throws Exception {
+		try (SimulatedBoard board = new SimulatedBoard()) {
+			ArduinoField field = board.intField(1);
+			board.serial.enableWriteBatching(1000, 20);
+			field.sendGet();
+			field.sendGet();
+			assertEquals(0, board.device.getWrites());
+			Thread.sleep(200);
+			assertEquals(1, board.device.getWrites());
+			assertEquals(2 * GET_SIZE, board.serial.getBytesSent());
+		}
+	}
+
+	@Test
+	void disablingFlushes() {
+		try (SimulatedBoard board = new SimulatedBoard()) {
+			ArduinoField field = board.intField(1);
+			board.serial.enableWriteBatching(1000, 0);
+			field.sendGet();
+			assertEquals(0, board.device.getWrites());
+			board.serial.disableWriteBatching();
+			assertEquals(1, board.device.getWrites());
+			field.sendGet();
+			assertEquals(2, board.device.getWrites()); // unbatched again
+		}
+	}
+
+	@Test
+	void outermostCommitWrites() {
+		try (SimulatedBoard board = new SimulatedBoard()) {
+			ArduinoField field = board.intField(1);
+			board.serial.beginBatch();
+			field.sendGet();
+			board.serial.beginBatch();
+			field.sendGet();
+			assertTrue(board.serial.commit());
+			assertEquals(0, board.device.getWrites());
+			field.sendGet();
+			assertTrue(board.serial.commit());
+			assertEquals(1, board.device.getWrites());
+			assertEquals(3 * GET_SIZE, board.serial.getBytesSent());
+			assertThrows(RuntimeException.class, board.serial::commit);
+		}
+	}
+
+	@Test
+	void batchesIgnoreTheThreshold() {
+		try (SimulatedBoard board = new SimulatedBoard()) {
+			ArduinoField field = board.intField(1);
+			board.serial.enableWriteBatching(GET_SIZE, 0);
+			board.serial.beginBatch();
+			for (int i = 0; i < 5; i++) {
+				field.sendGet();
+			}
+			assertEquals(0, board.device.getWrites());
+			board.serial.commit();
+			assertEquals(1, board.device.getWrites());
+		}
+	}
+
+	@Test
+	void immediateWritesSkipTheBatch() {
+		assertFalse(new Serial().printImmediately(new byte[1], 1)); // no port
+		try (SimulatedBoard board = new SimulatedBoard()) {
+			ArduinoField field = board.intField(1);
+			board.serial.beginBatch();
+			field.sendGet();
+			byte[] get = {'G', 1, 1};
+			assertTrue(board.serial.printImmediately(get, get.length));
+			assertEquals(1, board.device.getWrites());
+			board.serial.commit();
+			assertEquals(2, board.device.getWrites());
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package serial;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+import serial.ArduinoField.ArduinoType;
+
+/**
+ * Deadband, unchanged value skipping and rate limiting of SETs
+ */
+class WritePolicyTest {
+
+	private static byte[] floatValue(float value) {
+		return ByteBuffer.allocate(4).putFloat(value).array();
+	}
+
+	@Test
+	void deadbandSkipsSmallChanges() {
+		ArduinoField field = new ArduinoField(1, ArduinoType.Float);
+		WritePolicy policy = new WritePolicy(0.5, 0);
+		assertTrue(policy.skip(field, floatValue(1), floatValue(1.4f)));
+		assertTrue(policy.skip(field, floatValue(1), floatValue(1)));
+		assertFalse(policy.skip(field, floatValue(1), floatValue(1.6f)));
+		assertFalse(policy.skip(field, floatValue(1), floatValue(Float.NaN)));
+	}
+
+	@Test
+	void unchangedValuesCanBeSent() {
+		ArduinoField field = new ArduinoField(1, ArduinoType.Int);
+		WritePolicy policy = new WritePolicy();
+		byte[] value = SimulatedBoard.intValue(3);
+		assertTrue(policy.skip(field, value, value.clone()));
+		policy.setSkipUnchanged(false);
+		assertFalse(policy.skip(field, value, value.clone()));
+	}
+
+	@Test
+	void deadbandDoesNotSkipUnchangedNonNumericValues() {
+		WritePolicy policy = new WritePolicy(1, 0);
+		policy.setSkipUnchanged(false);
+		for (ArduinoField field : new ArduinoField[] {new ArduinoField(1, ArduinoType.Byte), new ArduinoField(2, ArduinoType.Bits, 8)}) {
+			byte[] value = {5};
+			assertFalse(policy.skip(field, value, value.clone()), field.getType().name());
+		}
+		policy.setSkipUnchanged(true);
+		assertTrue(policy.skip(new ArduinoField(1, ArduinoType.Byte), new byte[] {5}, new byte[] {5}));
+		assertFalse(policy.skip(new ArduinoField(1, ArduinoType.Byte), new byte[] {5}, new byte[] {6}));
+	}
+
+	@Test
+	void skippedSetsStayOffTheWire() throws Exception {
+		try (SimulatedBoard board = new SimulatedBoard()) {
+			ArduinoField field = board.intField(2);
+			field.setWritePolicy(new WritePolicy(2, 0));
+			long before = board.device.getFramesReceived();
+			field.set(10);
+			field.set(11);
+			field.set(12);
+			field.set(13);
+			Thread.sleep(100);
+			assertEquals(2, board.device.getFramesReceived() - before); // 10 and 13
+			assertEquals(2, field.getSkippedSets());
+			assertArrayEquals(SimulatedBoard.intValue(13), board.device.getValue(2));
+		}
+	}
+
+	@Test
+	void maxRateCoalescesToLatestValue() throws Exception {
+		try (SimulatedBoard board = new SimulatedBoard()) {
+			ArduinoField field = board.intField(2);
+			WritePolicy policy = new WritePolicy(0, 10);
+			policy.setSkipUnchanged(false);
+			field.setWritePolicy(policy);
+			long before = board.device.getFramesReceived();
+			for (int i = 1; i <= 50; i++) {
+				field.set(i);
+			}
+			Thread.sleep(300); // the coalesced value goes out 100ms after the first
+			assertEquals(2, board.device.getFramesReceived() - before);
+			assertEquals(48, field.getCoalescedSets());
+			assertArrayEquals(SimulatedBoard.intValue(50), board.device.getValue(2));
+		}
+	}
+
+	@Test
+	void criticalSetsIgnoreTheRate() throws Exception {
+		try (SimulatedBoard board = new SimulatedBoard()) {
+			ArduinoField field = board.intField(2);
+			WritePolicy policy = new WritePolicy(0, 1);
+			policy.setPriority(WritePriority.CRITICAL);
+			field.setWritePolicy(policy);
+			long before = board.device.getFramesReceived();
+			for (int i = 1; i <= 5; i++) {
+				field.set(i);
+			}
+			Thread.sleep(100);
+			assertEquals(5, board.device.getFramesReceived() - before);
+			assertArrayEquals(SimulatedBoard.intValue(5), board.device.getValue(2));
+		}
+	}
+}